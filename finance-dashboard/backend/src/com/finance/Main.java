@@ -1,22 +1,57 @@
 package com.finance;
 
 import com.finance.controller.TransactionController;
+import com.finance.service.LogFollower;
 import com.finance.service.TransactionService;
 
 import com.sun.net.httpserver.HttpServer;
+import java.io.File;
 import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
 
 public class Main {
 
+    private static final long FOLLOWER_POLL_MILLIS = 100;
+
+    /**
+     * Usage: {@code Main [--port N] [--follow path/to/leader/data/transactions]}.
+     * With {@code --follow} the process runs as a read-only replica of the leader's data directory.
+     */
     public static void main(String[] args) throws Exception {
-        HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
-        TransactionService transactionService = new TransactionService();
+        int port = 8080;
+        String followPath = null;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--port")) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--follow")) {
+                followPath = args[++i];
+            }
+        }
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        TransactionService transactionService;
+        LogFollower follower = null;
+        if (followPath == null) {
+            transactionService = new TransactionService();
+        } else {
+            transactionService = TransactionService.replica();
+            follower = new LogFollower(new File(followPath), transactionService, FOLLOWER_POLL_MILLIS);
+            follower.start();
+        }
 
-        TransactionController transactionController = new TransactionController(transactionService);
+        TransactionController transactionController = new TransactionController(transactionService, follower);
 
         server.createContext("/api/transactions", transactionController::handle);
-        server.setExecutor(null); // creates a default executor
-        System.out.println("Server started at http://localhost:8080");
+        server.createContext("/api/replication", transactionController::handleReplication);
+        server.createContext("/api/status", transactionController::handleStatus);
+        // A pool rather than the default single dispatcher thread, so a request waiting on a
+        // partition that is still loading does not block /api/status or other requests.
+        server.setExecutor(Executors.newCachedThreadPool());
+        if (follower == null) {
+            System.out.println("Server started at http://localhost:" + port);
+        } else {
+            System.out.println("Replica of " + followPath + " started at http://localhost:" + port);
+        }
         server.start();
     }
 }
@@ -1,6 +1,8 @@
 package com.finance.controller;
 
 import com.finance.model.Transaction;
+import com.finance.service.LogFollower;
+import com.finance.service.SeriesCache;
 import com.finance.service.TransactionService;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
@@ -8,16 +10,26 @@ import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TransactionController {
 
     private final TransactionService service;
     private final Gson gson = new Gson();
+    private final LogFollower follower;
 
     public TransactionController(TransactionService service) {
+        this(service, null);
+    }
+
+    public TransactionController(TransactionService service, LogFollower follower) {
         this.service = service;
+        this.follower = follower;
     }
 
     public void handle(HttpExchange exchange) throws IOException {
@@ -31,17 +43,84 @@ public class TransactionController {
         }
     }
 
+    public void handleReplication(HttpExchange exchange) throws IOException {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("role", follower == null ? "leader" : "follower");
+        status.put("lastAppliedId", service.getLastAppliedId());
+        if (follower != null) {
+            status.put("leaderDir", follower.getLeaderDir().getPath());
+            status.put("lagMillis", follower.getLagMillis());
+        }
+        sendResponse(exchange, 200, gson.toJson(status));
+    }
+
+    public void handleStatus(HttpExchange exchange) throws IOException {
+        sendResponse(exchange, 200, gson.toJson(service.getLoadStatus()));
+    }
+
     private void handleGet(HttpExchange exchange) throws IOException {
-        List<Transaction> transactions = service.getAllTransactions();
+        if (follower != null) {
+            exchange.getResponseHeaders().add("X-Replication-Lag-Ms", String.valueOf(follower.getLagMillis()));
+        }
+        if (exchange.getRequestURI().getPath().endsWith("/series")) {
+            handleSeries(exchange);
+            return;
+        }
+        Map<String, String> params = queryParams(exchange);
+        List<Transaction> transactions;
+        try {
+            transactions = service.getTransactions(params.get("from"), params.get("to"));
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, gson.toJson(Map.of("error", "from and to must be ISO dates (yyyy-MM-dd)")));
+            return;
+        }
         String json = gson.toJson(transactions);
         sendResponse(exchange, 200, json);
     }
 
+    private void handleSeries(HttpExchange exchange) throws IOException {
+        Map<String, String> params = queryParams(exchange);
+        SeriesCache.Bucket bucket;
+        int limit;
+        try {
+            bucket = SeriesCache.Bucket.parse(params.get("bucket"));
+            limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : 0;
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, gson.toJson(Map.of("error", "bucket must be one of day, week, month, year")));
+            return;
+        }
+        sendResponse(exchange, 200, gson.toJson(service.getSeries(bucket, limit)));
+    }
+
     private void handlePost(HttpExchange exchange) throws IOException {
+        if (service.isReplica()) {
+            sendResponse(exchange, 503, gson.toJson(Map.of("error", "read-only replica, send writes to the leader")));
+            return;
+        }
         String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
         Transaction transaction = gson.fromJson(body, Transaction.class);
-        service.addTransaction(transaction);
-        sendResponse(exchange, 201, gson.toJson(transaction));
+        String idempotencyKey = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        Transaction created = service.addTransaction(transaction, idempotencyKey);
+        if (created != transaction) {
+            exchange.getResponseHeaders().add("Idempotent-Replayed", "true");
+        }
+        sendResponse(exchange, 201, gson.toJson(created));
+    }
+
+    private Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
     }
 
     private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
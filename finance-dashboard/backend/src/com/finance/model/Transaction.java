@@ -6,6 +6,7 @@ public class Transaction {
     private double amount;
     private String category;
     private String date;
+    private String idempotencyKey;
 
     public Transaction() {}
 
@@ -33,4 +34,7 @@ public class Transaction {
 
     public String getDate() { return date; }
     public void setDate(String date) { this.date = date; }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
 }
@@ -0,0 +1,80 @@
+package com.finance.service;
+
+import com.finance.model.Transaction;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Bounded, time-expiring map of recently seen Idempotency-Key values to the
+ * transaction that was created for them. Oldest keys are evicted first once
+ * the size bound is reached.
+ */
+public class IdempotencyCache {
+
+    private static class Entry {
+        final String key;
+        final Transaction transaction;
+        final long expiresAt;
+
+        Entry(String key, Transaction transaction, long expiresAt) {
+            this.key = key;
+            this.transaction = transaction;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * Entries in the order they were put. An entry that has expired or been replaced is
+     * no longer the map's value for its key and is skipped, so a key put again after its
+     * entry expired cannot have the fresh entry evicted in the old one's place.
+     */
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    public IdempotencyCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public Transaction get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.transaction;
+    }
+
+    public void put(String key, Transaction transaction) {
+        Entry entry = new Entry(key, transaction, System.currentTimeMillis() + ttlMillis);
+        entries.put(key, entry);
+        insertionOrder.add(entry);
+        evict();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null) {
+            boolean current = entries.get(oldest.key) == oldest;
+            if (current && oldest.expiresAt >= now && entries.size() <= maxEntries) {
+                return;
+            }
+            if (insertionOrder.remove(oldest)) {
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.finance.service;
+
+import com.finance.model.Transaction;
+import com.finance.util.JsonUtil;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails a leader's partition files in a shared data directory and applies new entries
+ * to a replica {@link TransactionService}.
+ */
+public class LogFollower {
+
+    private final File leaderDir;
+    private final TransactionService replica;
+    private final long pollMillis;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "log-follower");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Last applied modification time and length per partition file.
+    private final Map<String, long[]> applied = new HashMap<>();
+    private volatile long caughtUpAt;
+
+    public LogFollower(File leaderDir, TransactionService replica, long pollMillis) {
+        this.leaderDir = leaderDir;
+        this.replica = replica;
+        this.pollMillis = pollMillis;
+    }
+
+    public void start() {
+        poll();
+        scheduler.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Milliseconds since the replica was last known to hold everything the leader had written,
+     * or -1 if it has never caught up.
+     */
+    public long getLagMillis() {
+        return caughtUpAt == 0 ? -1 : System.currentTimeMillis() - caughtUpAt;
+    }
+
+    public File getLeaderDir() {
+        return leaderDir;
+    }
+
+    private void poll() {
+        long startedAt = System.currentTimeMillis();
+        try {
+            if (!leaderDir.isDirectory()) {
+                return;
+            }
+            for (File file : TransactionService.listPartitionFiles(leaderDir)) {
+                long modified = file.lastModified();
+                long length = file.length();
+                long[] last = applied.get(file.getName());
+                if (last != null && last[0] == modified && last[1] == length) {
+                    continue;
+                }
+                List<Transaction> snapshot = JsonUtil.readFromFile(file, new TypeToken<List<Transaction>>(){}.getType());
+                if (snapshot == null) {
+                    return;
+                }
+                String key = file.getName().substring(0, file.getName().length() - ".json".length());
+                replica.applyReplicated(key, snapshot);
+                applied.put(file.getName(), new long[] {modified, length});
+            }
+            caughtUpAt = startedAt;
+        } catch (RuntimeException e) {
+            // Keep polling; a failed read is retried on the next tick.
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.finance.service;
+
+import com.finance.model.Transaction;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-category totals pre-aggregated into day, week, month and year buckets.
+ * Updated on every ingested transaction, so reading a series never touches raw rows.
+ */
+public class SeriesCache {
+
+    public enum Bucket {
+        DAY, WEEK, MONTH, YEAR;
+
+        String keyFor(LocalDate date) {
+            switch (this) {
+                case DAY:
+                    return date.toString();
+                case WEEK:
+                    return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toString();
+                case MONTH:
+                    return date.toString().substring(0, 7);
+                default:
+                    return date.toString().substring(0, 4);
+            }
+        }
+
+        public static Bucket parse(String value) {
+            if (value == null || value.isEmpty()) {
+                return DAY;
+            }
+            return Bucket.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public static class Point {
+        private final String bucket;
+        private final double total;
+        private final Map<String, Double> categories;
+
+        Point(String bucket, Map<String, Double> categories) {
+            this.bucket = bucket;
+            this.categories = new LinkedHashMap<>(categories);
+            this.total = categories.values().stream().mapToDouble(Double::doubleValue).sum();
+        }
+
+        public String getBucket() { return bucket; }
+        public double getTotal() { return total; }
+        public Map<String, Double> getCategories() { return categories; }
+    }
+
+    private final Map<Bucket, TreeMap<String, Map<String, Double>>> series = new EnumMap<>(Bucket.class);
+
+    public SeriesCache() {
+        for (Bucket bucket : Bucket.values()) {
+            series.put(bucket, new TreeMap<>());
+        }
+    }
+
+    public synchronized void add(Transaction transaction) {
+        LocalDate date;
+        try {
+            date = LocalDate.parse(transaction.getDate());
+        } catch (DateTimeParseException | NullPointerException e) {
+            return;
+        }
+        String category = transaction.getCategory() == null ? "" : transaction.getCategory();
+        for (Bucket bucket : Bucket.values()) {
+            series.get(bucket)
+                    .computeIfAbsent(bucket.keyFor(date), k -> new TreeMap<>())
+                    .merge(category, transaction.getAmount(), Double::sum);
+        }
+    }
+
+    public synchronized List<Point> get(Bucket bucket, int limit) {
+        List<Point> points = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Double>> entry : series.get(bucket).descendingMap().entrySet()) {
+            if (limit > 0 && points.size() == limit) {
+                break;
+            }
+            points.add(new Point(entry.getKey(), entry.getValue()));
+        }
+        Collections.reverse(points);
+        return points;
+    }
+}
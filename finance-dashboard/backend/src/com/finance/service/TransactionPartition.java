@@ -0,0 +1,43 @@
+package com.finance.service;
+
+import com.finance.model.Transaction;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One month of transactions, stored in its own file so startup can load months independently.
+ */
+class TransactionPartition {
+
+    static final String UNDATED = "undated";
+
+    final String key;
+    final File file;
+    final List<Transaction> transactions = new ArrayList<>();
+    final CompletableFuture<Void> loaded = new CompletableFuture<>();
+
+    TransactionPartition(String key, File file) {
+        this.key = key;
+        this.file = file;
+    }
+
+    /** Partition key for a transaction date: {@code yyyy-MM}, or {@link #UNDATED}. */
+    static String keyFor(String date) {
+        if (date != null && date.length() >= 7 && date.charAt(4) == '-'
+                && Character.isDigit(date.charAt(0)) && Character.isDigit(date.charAt(6))) {
+            return date.substring(0, 7);
+        }
+        return UNDATED;
+    }
+
+    boolean isLoaded() {
+        return loaded.isDone();
+    }
+
+    void awaitLoaded() {
+        loaded.join();
+    }
+}
@@ -5,29 +5,312 @@ import com.finance.util.JsonUtil;
 import com.google.gson.reflect.TypeToken;
 
 import java.io.File;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Transactions are stored as one file per month under the data directory. On startup only the
+ * directory listing and id counter are read; months are then loaded newest-first on a background
+ * thread while the server is already serving. Queries wait only for the months they cover.
+ */
 public class TransactionService {
 
-    private final File file = new File("backend/data/transactions.json");
+    private static final int IDEMPOTENCY_MAX_KEYS = 10_000;
+    private static final long IDEMPOTENCY_TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+    private static final int RECENT_DAYS = 90;
+    private static final String META_FILE = "_meta.json";
+    private static final Type TRANSACTION_LIST = new TypeToken<List<Transaction>>(){}.getType();
+
+    private final File dataDir;
     private final AtomicLong idGenerator = new AtomicLong(1);
+    private final IdempotencyCache idempotencyCache = new IdempotencyCache(IDEMPOTENCY_MAX_KEYS, IDEMPOTENCY_TTL_MILLIS);
+    private final SeriesCache seriesCache = new SeriesCache();
+    private final NavigableMap<String, TransactionPartition> partitions = new ConcurrentSkipListMap<>();
+    private final String recentCutoff = TransactionPartition.keyFor(LocalDate.now().minusDays(RECENT_DAYS).toString());
+    private volatile int loadedTransactions;
 
     public TransactionService() {
-        if (!file.exists()) {
-            JsonUtil.writeToFile(file, new ArrayList<Transaction>());
+        this(new File("backend/data/transactions"));
+    }
+
+    public TransactionService(File dataDir) {
+        this.dataDir = dataDir;
+        if (dataDir == null) {
+            return;
+        }
+        if (!dataDir.exists()) {
+            dataDir.mkdirs();
+            migrateLegacyFile(new File(dataDir.getParentFile(), "transactions.json"));
+        }
+        for (File file : listPartitionFiles(dataDir)) {
+            String key = file.getName().substring(0, file.getName().length() - ".json".length());
+            partitions.put(key, new TransactionPartition(key, file));
+        }
+        File metaFile = new File(dataDir, META_FILE);
+        Map<String, Long> meta = metaFile.exists()
+                ? JsonUtil.readFromFile(metaFile, new TypeToken<Map<String, Long>>(){}.getType())
+                : null;
+        if (meta == null || meta.get("nextId") == null) {
+            // No id counter on disk: read everything once to find the highest id.
+            loadPartitions();
+            idGenerator.set(getAllTransactions().stream().mapToLong(Transaction::getId).max().orElse(0) + 1);
+            writeMeta();
+            return;
+        }
+        idGenerator.set(meta.get("nextId"));
+        Thread loader = new Thread(this::loadPartitions, "partition-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * An in-memory, read-only store fed by {@link LogFollower} from a leader's data directory.
+     */
+    public static TransactionService replica() {
+        return new TransactionService(null);
+    }
+
+    public boolean isReplica() {
+        return dataDir == null;
+    }
+
+    public static List<File> listPartitionFiles(File dataDir) {
+        List<File> files = new ArrayList<>();
+        File[] listed = dataDir.listFiles((dir, name) -> name.endsWith(".json") && !name.startsWith("_"));
+        if (listed != null) {
+            for (File file : listed) {
+                files.add(file);
+            }
         }
+        return files;
     }
 
     public List<Transaction> getAllTransactions() {
-        return JsonUtil.readFromFile(file, new TypeToken<List<Transaction>>(){}.getType());
+        awaitAll();
+        return collect(partitions.values(), null, null);
+    }
+
+    /**
+     * Transactions dated within {@code [from, to]} (ISO dates, either may be null).
+     * Only the months in that range need to be loaded. A range with {@code from}
+     * after {@code to} is empty.
+     *
+     * @throws IllegalArgumentException if {@code from} or {@code to} does not start with {@code yyyy-MM}
+     */
+    public List<Transaction> getTransactions(String from, String to) {
+        if (from == null && to == null) {
+            return getAllTransactions();
+        }
+        String fromKey = from == null ? "0000-00" : rangeKey(from);
+        String toKey = to == null ? "9999-99" : rangeKey(to);
+        if (fromKey.compareTo(toKey) > 0) {
+            return new ArrayList<>();
+        }
+        List<TransactionPartition> needed = new ArrayList<>(partitions.subMap(fromKey, true, toKey, true).values());
+        needed.remove(partitions.get(TransactionPartition.UNDATED));
+        for (TransactionPartition partition : needed) {
+            partition.awaitLoaded();
+        }
+        return collect(needed, from, to);
+    }
+
+    public List<SeriesCache.Point> getSeries(SeriesCache.Bucket bucket, int limit) {
+        awaitAll();
+        return seriesCache.get(bucket, limit);
+    }
+
+    public Map<String, Object> getLoadStatus() {
+        int loaded = 0;
+        boolean recentReady = true;
+        List<String> pending = new ArrayList<>();
+        for (TransactionPartition partition : partitions.values()) {
+            if (partition.isLoaded()) {
+                loaded++;
+            } else {
+                pending.add(partition.key);
+                if (isRecent(partition.key)) {
+                    recentReady = false;
+                }
+            }
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("ready", pending.isEmpty());
+        status.put("recentReady", recentReady);
+        status.put("recentDays", RECENT_DAYS);
+        status.put("partitionsLoaded", loaded);
+        status.put("partitionsTotal", partitions.size());
+        status.put("transactionsLoaded", loadedTransactions);
+        status.put("pendingPartitions", pending);
+        return status;
     }
 
     public void addTransaction(Transaction transaction) {
-        List<Transaction> transactions = getAllTransactions();
-        transaction.setId(idGenerator.getAndIncrement());
-        transactions.add(transaction);
-        JsonUtil.writeToFile(file, transactions);
+        addTransaction(transaction, null);
+    }
+
+    /**
+     * Adds a transaction unless one was already created for the same idempotency key,
+     * in which case the original transaction is returned and nothing is written.
+     */
+    public Transaction addTransaction(Transaction transaction, String idempotencyKey) {
+        if (isReplica()) {
+            throw new IllegalStateException("Replica is read-only");
+        }
+        if (idempotencyKey != null) {
+            Transaction original = idempotencyCache.get(idempotencyKey);
+            if (original != null) {
+                return original;
+            }
+            // The original may sit in a month that has not been loaded yet.
+            awaitAll();
+        }
+        String key = TransactionPartition.keyFor(transaction.getDate());
+        TransactionPartition existing = partitions.get(key);
+        if (existing != null) {
+            existing.awaitLoaded();
+        }
+        synchronized (this) {
+            if (idempotencyKey != null) {
+                Transaction original = idempotencyCache.get(idempotencyKey);
+                if (original != null) {
+                    return original;
+                }
+                transaction.setIdempotencyKey(idempotencyKey);
+            }
+            TransactionPartition partition = partitions.computeIfAbsent(key, this::newLoadedPartition);
+            transaction.setId(idGenerator.getAndIncrement());
+            partition.transactions.add(transaction);
+            writeMeta();
+            JsonUtil.writeToFile(partition.file, partition.transactions);
+            index(transaction);
+            return transaction;
+        }
+    }
+
+    /**
+     * Applies the tail of a leader partition that this store has not seen yet.
+     * Partition files are append-only, so entries up to the current size are already applied.
+     */
+    public synchronized int applyReplicated(String partitionKey, List<Transaction> leaderTransactions) {
+        TransactionPartition partition = partitions.computeIfAbsent(partitionKey, this::newLoadedPartition);
+        int applied = 0;
+        for (int i = partition.transactions.size(); i < leaderTransactions.size(); i++) {
+            Transaction transaction = leaderTransactions.get(i);
+            partition.transactions.add(transaction);
+            index(transaction);
+            if (transaction.getId() >= idGenerator.get()) {
+                idGenerator.set(transaction.getId() + 1);
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    public long getLastAppliedId() {
+        return idGenerator.get() - 1;
+    }
+
+    private void loadPartitions() {
+        // Newest month first, undated entries last.
+        List<TransactionPartition> order = new ArrayList<>(partitions.descendingMap().values());
+        TransactionPartition undated = partitions.get(TransactionPartition.UNDATED);
+        if (order.remove(undated)) {
+            order.add(undated);
+        }
+        for (TransactionPartition partition : order) {
+            if (partition.isLoaded()) {
+                continue;
+            }
+            List<Transaction> stored = JsonUtil.readFromFile(partition.file, TRANSACTION_LIST);
+            synchronized (this) {
+                if (stored != null) {
+                    for (Transaction transaction : stored) {
+                        partition.transactions.add(transaction);
+                        index(transaction);
+                    }
+                }
+                partition.loaded.complete(null);
+            }
+        }
+    }
+
+    private void awaitAll() {
+        for (TransactionPartition partition : partitions.values()) {
+            partition.awaitLoaded();
+        }
+    }
+
+    private synchronized List<Transaction> collect(Iterable<TransactionPartition> source, String from, String to) {
+        List<Transaction> result = new ArrayList<>();
+        for (TransactionPartition partition : source) {
+            for (Transaction transaction : partition.transactions) {
+                String date = transaction.getDate();
+                if ((from == null || (date != null && date.compareTo(from) >= 0))
+                        && (to == null || (date != null && date.compareTo(to) <= 0))) {
+                    result.add(transaction);
+                }
+            }
+        }
+        result.sort(Comparator.comparingLong(Transaction::getId));
+        return result;
+    }
+
+    private static String rangeKey(String date) {
+        String key = TransactionPartition.keyFor(date);
+        if (key.equals(TransactionPartition.UNDATED)) {
+            throw new IllegalArgumentException("Not an ISO date: " + date);
+        }
+        return key;
+    }
+
+    private TransactionPartition newLoadedPartition(String key) {
+        TransactionPartition partition = new TransactionPartition(key, dataDir == null ? null : new File(dataDir, key + ".json"));
+        partition.loaded.complete(null);
+        return partition;
+    }
+
+    private boolean isRecent(String key) {
+        return !key.equals(TransactionPartition.UNDATED) && key.compareTo(recentCutoff) >= 0;
+    }
+
+    private void writeMeta() {
+        JsonUtil.writeToFile(new File(dataDir, META_FILE), Map.of("nextId", idGenerator.get()));
+    }
+
+    // One-time split of the single-file layout into monthly partitions.
+    private void migrateLegacyFile(File legacy) {
+        if (!legacy.exists()) {
+            return;
+        }
+        List<Transaction> stored = JsonUtil.readFromFile(legacy, TRANSACTION_LIST);
+        if (stored == null) {
+            return;
+        }
+        Map<String, List<Transaction>> byMonth = new LinkedHashMap<>();
+        for (Transaction transaction : stored) {
+            byMonth.computeIfAbsent(TransactionPartition.keyFor(transaction.getDate()), k -> new ArrayList<>()).add(transaction);
+        }
+        for (Map.Entry<String, List<Transaction>> entry : byMonth.entrySet()) {
+            JsonUtil.writeToFile(new File(dataDir, entry.getKey() + ".json"), entry.getValue());
+        }
+        legacy.renameTo(new File(legacy.getPath() + ".migrated"));
+    }
+
+    private void index(Transaction transaction) {
+        loadedTransactions++;
+        seriesCache.add(transaction);
+        // Keys are persisted with each transaction, so a retry after a restart is still deduplicated.
+        if (transaction.getIdempotencyKey() != null) {
+            idempotencyCache.put(transaction.getIdempotencyKey(), transaction);
+        }
     }
 }
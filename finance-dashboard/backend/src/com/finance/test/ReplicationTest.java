@@ -0,0 +1,170 @@
+package com.finance.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Two-process convergence check for follower mode: starts a leader and a follower of the
+ * leader's data directory as separate JVMs on free ports, POSTs transactions to the leader
+ * and checks that both serve the same GET /api/transactions body within a timeout.
+ * Run with the same classpath as {@code Main} (classes plus the Gson jar).
+ * Usage: {@code ReplicationTest [transactions] [timeoutMillis]}; exits 1 on failure.
+ */
+public class ReplicationTest {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long timeoutMillis = args.length > 1 ? Long.parseLong(args[1]) : 10_000;
+
+        Path work = Files.createTempDirectory("replication-test");
+        int leaderPort = freePort();
+        int followerPort = freePort();
+        File leaderData = work.resolve("backend/data/transactions").toFile();
+        List<Process> processes = new ArrayList<>();
+        boolean ok = false;
+        try {
+            // The leader keeps its data under backend/data/transactions relative to its working directory.
+            processes.add(start(work, "leader", "--port", String.valueOf(leaderPort)));
+            waitForServer(leaderPort, timeoutMillis);
+            processes.add(start(work, "follower", "--port", String.valueOf(followerPort),
+                    "--follow", leaderData.getAbsolutePath()));
+            waitForServer(followerPort, timeoutMillis);
+
+            for (int i = 0; i < count; i++) {
+                String body = "{\"description\":\"Item " + i + "\",\"amount\":" + (10 + i) + ".5"
+                        + ",\"category\":\"" + (i % 2 == 0 ? "Food" : "Travel") + "\""
+                        + ",\"date\":\"2024-" + String.format("%02d", 1 + i % 12) + "-15\"}";
+                int status = post(leaderPort, "/api/transactions", body, "replication-test-" + i);
+                check("POST " + i + " accepted", status == 201, true);
+            }
+            check("follower rejects writes", post(followerPort, "/api/transactions", "{}", null) == 503, true);
+
+            String leaderBody = get(leaderPort, "/api/transactions");
+            String followerBody = null;
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            long started = System.currentTimeMillis();
+            while (System.currentTimeMillis() < deadline) {
+                followerBody = get(followerPort, "/api/transactions");
+                if (leaderBody.equals(followerBody)) {
+                    break;
+                }
+                Thread.sleep(50);
+            }
+            check("leader holds " + count + " transactions", countIds(leaderBody) == count, false);
+            ok = check("follower converged in " + (System.currentTimeMillis() - started) + "ms",
+                    leaderBody.equals(followerBody), false);
+        } finally {
+            for (Process p : processes) {
+                p.destroy();
+                p.waitFor();
+            }
+            deleteRecursively(work);
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static Process start(Path work, String name, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(absoluteClassPath());
+        command.add("com.finance.Main");
+        command.addAll(List.of(args));
+        return new ProcessBuilder(command)
+                .directory(work.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(work.resolve(name + ".log").toFile())
+                .start();
+    }
+
+    // The child processes run in another working directory, so relative entries must be resolved here.
+    private static String absoluteClassPath() {
+        StringBuilder cp = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (cp.length() > 0) {
+                cp.append(File.pathSeparator);
+            }
+            cp.append(new File(entry).getAbsolutePath());
+        }
+        return cp.toString();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void waitForServer(int port, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                get(port, "/api/status");
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Server on port " + port + " did not start");
+    }
+
+    private static int post(int port, String path, String body, String idempotencyKey) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        con.setRequestMethod("POST");
+        con.setDoOutput(true);
+        con.setRequestProperty("Content-Type", "application/json");
+        if (idempotencyKey != null) {
+            con.setRequestProperty("Idempotency-Key", idempotencyKey);
+        }
+        try (OutputStream out = con.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = con.getResponseCode();
+        InputStream in = status < 400 ? con.getInputStream() : con.getErrorStream();
+        if (in != null) {
+            in.readAllBytes();
+            in.close();
+        }
+        return status;
+    }
+
+    private static String get(int port, String path) throws IOException {
+        HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+        try (InputStream in = con.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int countIds(String json) {
+        int n = 0;
+        for (int i = json.indexOf("\"id\":"); i >= 0; i = json.indexOf("\"id\":", i + 1)) {
+            n++;
+        }
+        return n;
+    }
+
+    private static boolean check(String what, boolean passed, boolean quietOnSuccess) {
+        if (!passed || !quietOnSuccess) {
+            System.out.println((passed ? "OK     " : "FAILED ") + what);
+        }
+        return passed;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
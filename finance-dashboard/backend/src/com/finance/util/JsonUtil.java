@@ -6,13 +6,23 @@ import java.io.FileWriter;
 import java.io.FileReader;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 public class JsonUtil {
     private static final Gson gson = new Gson();
 
+    // Written to a temp file and renamed into place, so readers never see a partial file.
     public static <T> void writeToFile(File file, T data) {
-        try (FileWriter writer = new FileWriter(file)) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileWriter writer = new FileWriter(tmp)) {
             gson.toJson(data, writer);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -27,7 +27,10 @@ const HomePage = () => {
 
     fetch('http://localhost:8080/api/transactions', {
       method: 'POST',
-      headers: { 'Content-Type': 'application/json' },
+      headers: {
+        'Content-Type': 'application/json',
+        'Idempotency-Key': crypto.randomUUID(),
+      },
       body: JSON.stringify(transaction),
     })
     .then(res => res.json())
@@ -0,0 +1,65 @@
+package com.purva.daoimpl;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import com.purva.pojo.Cart;
+import com.purva.pojo.CartSummary;
+import com.purva.utility.DaoExecutor;
+
+
+/*
+ * CartDao calls as CompletableFutures, run by DaoExecutor with at most one
+ * call per pooled connection in flight.
+ */
+public class AsyncCartDao {
+
+	private final CartDao delegate;
+	private final Semaphore permits;
+
+	public AsyncCartDao(CartDao delegate, Semaphore permits)
+	{
+		this.delegate = delegate;
+		this.permits = permits;
+	}
+
+	public AsyncCartDao(CartDao delegate)
+	{
+		this(delegate, DaoExecutor.sharedLimit());
+	}
+
+	public CompletableFuture<Boolean> addtoCart(Cart ct) {
+		return DaoExecutor.supply(permits, () -> delegate.addtoCart(ct));
+	}
+
+	public CompletableFuture<List<Cart>> showCart(String emailId) {
+		return DaoExecutor.supply(permits, () -> delegate.showCart(emailId));
+	}
+
+	public CompletableFuture<Boolean> deleteCart(int cartId) {
+		return DaoExecutor.supply(permits, () -> delegate.deleteCart(cartId));
+	}
+
+	public CompletableFuture<Boolean> deleteCart(int cartId, String emailId) {
+		return DaoExecutor.supply(permits, () -> delegate.deleteCart(cartId, emailId));
+	}
+
+	public CompletableFuture<int[]> addtoCarts(List<Cart> carts) {
+		return DaoExecutor.supply(permits, () -> delegate.addtoCarts(carts));
+	}
+
+	public CompletableFuture<CartSummary> cartSummary(String emailId) {
+		return DaoExecutor.supply(permits, () -> delegate.cartSummary(emailId));
+	}
+
+	public CompletableFuture<Boolean> flushCart(String emailId) {
+		return DaoExecutor.supply(permits, () -> delegate.flushCart(emailId));
+	}
+
+	public CartDao getDelegate()
+	{
+		return delegate;
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.purva.daoimpl;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import com.purva.pojo.Customer;
+import com.purva.utility.DaoExecutor;
+
+
+/*
+ * CustomerDao calls as CompletableFutures, run by DaoExecutor with at most
+ * one call per pooled connection in flight. streamAllCustomer has no async
+ * form: the stream holds a connection until the caller closes it; use
+ * forEachCustomer.
+ */
+public class AsyncCustomerDao {
+
+	private final CustomerDao delegate;
+	private final Semaphore permits;
+
+	public AsyncCustomerDao(CustomerDao delegate, Semaphore permits)
+	{
+		this.delegate = delegate;
+		this.permits = permits;
+	}
+
+	public AsyncCustomerDao(CustomerDao delegate)
+	{
+		this(delegate, DaoExecutor.sharedLimit());
+	}
+
+	public CompletableFuture<Boolean> addCustomer(Customer c) {
+		return DaoExecutor.supply(permits, () -> delegate.addCustomer(c));
+	}
+
+	public CompletableFuture<Boolean> updateCustomer(Customer c) {
+		return DaoExecutor.supply(permits, () -> delegate.updateCustomer(c));
+	}
+
+	public CompletableFuture<Boolean> deleteCustomer(int custId) {
+		return DaoExecutor.supply(permits, () -> delegate.deleteCustomer(custId));
+	}
+
+	public CompletableFuture<Customer> displayCustId(int custId) {
+		return DaoExecutor.supply(permits, () -> delegate.displayCustId(custId));
+	}
+
+	public CompletableFuture<Customer> findByEmail(String custEmailId) {
+		return DaoExecutor.supply(permits, () -> delegate.findByEmail(custEmailId));
+	}
+
+	public CompletableFuture<List<Customer>> displayAllCustomer() {
+		return DaoExecutor.supply(permits, () -> delegate.displayAllCustomer());
+	}
+
+	public CompletableFuture<int[]> addCustomers(List<Customer> customers) {
+		return DaoExecutor.supply(permits, () -> delegate.addCustomers(customers));
+	}
+
+	public CompletableFuture<List<Customer>> displayCustomerPage(int afterCustId, int limit) {
+		return DaoExecutor.supply(permits, () -> delegate.displayCustomerPage(afterCustId, limit));
+	}
+
+	public CompletableFuture<Void> forEachCustomer(Consumer<Customer> action) {
+		return DaoExecutor.run(permits, () -> delegate.forEachCustomer(action));
+	}
+
+	public CustomerDao getDelegate()
+	{
+		return delegate;
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.purva.daoimpl;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import com.purva.pojo.Garment;
+import com.purva.utility.DaoExecutor;
+
+
+/*
+ * GarDao calls as CompletableFutures, run by DaoExecutor with at most one
+ * call per pooled connection in flight. streamAllGar has no async form: the
+ * stream holds a connection until the caller closes it; use forEachGar.
+ */
+public class AsyncGarDao {
+
+	private final GarDao delegate;
+	private final Semaphore permits;
+
+	public AsyncGarDao(GarDao delegate, Semaphore permits)
+	{
+		this.delegate = delegate;
+		this.permits = permits;
+	}
+
+	public AsyncGarDao(GarDao delegate)
+	{
+		this(delegate, DaoExecutor.sharedLimit());
+	}
+
+	public CompletableFuture<Boolean> addGar(Garment g) {
+		return DaoExecutor.supply(permits, () -> delegate.addGar(g));
+	}
+
+	public CompletableFuture<Boolean> updateGar(Garment g) {
+		return DaoExecutor.supply(permits, () -> delegate.updateGar(g));
+	}
+
+	public CompletableFuture<Boolean> deleteGar(int garId) {
+		return DaoExecutor.supply(permits, () -> delegate.deleteGar(garId));
+	}
+
+	public CompletableFuture<Garment> displayGarId(int garId) {
+		return DaoExecutor.supply(permits, () -> delegate.displayGarId(garId));
+	}
+
+	public CompletableFuture<List<Garment>> displayAllGar() {
+		return DaoExecutor.supply(permits, () -> delegate.displayAllGar());
+	}
+
+	public CompletableFuture<int[]> addGars(List<Garment> garments) {
+		return DaoExecutor.supply(permits, () -> delegate.addGars(garments));
+	}
+
+	public CompletableFuture<Integer> updateGars(List<Garment> garments) {
+		return DaoExecutor.supply(permits, () -> delegate.updateGars(garments));
+	}
+
+	public CompletableFuture<Integer> deleteGars(int[] garIds) {
+		return DaoExecutor.supply(permits, () -> delegate.deleteGars(garIds));
+	}
+
+	public CompletableFuture<List<Garment>> displayGarPage(int afterGarId, int limit) {
+		return DaoExecutor.supply(permits, () -> delegate.displayGarPage(afterGarId, limit));
+	}
+
+	public CompletableFuture<Void> forEachGar(Consumer<Garment> action) {
+		return DaoExecutor.run(permits, () -> delegate.forEachGar(action));
+	}
+
+	public GarDao getDelegate()
+	{
+		return delegate;
+	}
+
+}
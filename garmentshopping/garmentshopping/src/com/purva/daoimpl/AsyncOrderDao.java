@@ -0,0 +1,61 @@
+package com.purva.daoimpl;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import com.purva.pojo.Order;
+import com.purva.pojo.OrderStats;
+import com.purva.utility.DaoExecutor;
+
+
+/*
+ * OrderDao calls as CompletableFutures, run by DaoExecutor with at most one
+ * call per pooled connection in flight.
+ */
+public class AsyncOrderDao {
+
+	private final OrderDao delegate;
+	private final Semaphore permits;
+
+	public AsyncOrderDao(OrderDao delegate, Semaphore permits)
+	{
+		this.delegate = delegate;
+		this.permits = permits;
+	}
+
+	public AsyncOrderDao(OrderDao delegate)
+	{
+		this(delegate, DaoExecutor.sharedLimit());
+	}
+
+	public CompletableFuture<Boolean> placeOrder(String custEmailId) {
+		return DaoExecutor.supply(permits, () -> delegate.placeOrder(custEmailId));
+	}
+
+	public CompletableFuture<Integer> checkout(String custEmailId) {
+		return DaoExecutor.supply(permits, () -> delegate.checkout(custEmailId));
+	}
+
+	public CompletableFuture<List<Order>> showOrder() {
+		return DaoExecutor.supply(permits, () -> delegate.showOrder());
+	}
+
+	public CompletableFuture<List<Order>> showOrders(String custEmailId, int beforeOrderId, int limit) {
+		return DaoExecutor.supply(permits, () -> delegate.showOrders(custEmailId, beforeOrderId, limit));
+	}
+
+	public CompletableFuture<List<Order>> showOrdersBetween(String fromDate, String toDate, Order after, int limit) {
+		return DaoExecutor.supply(permits, () -> delegate.showOrdersBetween(fromDate, toDate, after, limit));
+	}
+
+	public CompletableFuture<OrderStats> orderStats(String custEmailId) {
+		return DaoExecutor.supply(permits, () -> delegate.orderStats(custEmailId));
+	}
+
+	public OrderDao getDelegate()
+	{
+		return delegate;
+	}
+
+}
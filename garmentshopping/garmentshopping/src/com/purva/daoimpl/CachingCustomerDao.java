@@ -0,0 +1,149 @@
+package com.purva.daoimpl;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.purva.pojo.Customer;
+import com.purva.utility.BoundedCache;
+import com.purva.utility.DBUtility;
+
+
+/*
+ * CustomerDao with a bounded email -> Customer cache, so resolving the shopper
+ * at cart and checkout time costs no database round trip for active customers.
+ * Entries are dropped on update and delete. Returned customers are shared
+ * between callers and must not be modified.
+ */
+public class CachingCustomerDao implements CustomerDao {
+
+	private final CustomerDao delegate;
+	private final BoundedCache<String, Customer> byEmail;
+	private final AtomicLong writes = new AtomicLong();
+
+	public CachingCustomerDao(CustomerDao delegate, int maxEntries)
+	{
+		this.delegate = delegate;
+		this.byEmail = new BoundedCache<String, Customer>(maxEntries);
+	}
+
+	public CachingCustomerDao()
+	{
+		this(new CustomerDaoImpl(), Integer.getInteger("cache.customer.maxEntries", 10000));
+	}
+
+	// MySQL's default collation compares emails case-insensitively, so the cache does too.
+	private static String key(String email)
+	{
+		return email.trim().toLowerCase(Locale.ROOT);
+	}
+
+	@Override
+	public Customer findByEmail(String custEmailId) {
+		if (custEmailId == null)
+		{
+			return null;
+		}
+		String key = key(custEmailId);
+		Customer c = byEmail.get(key);
+		if (c == null)
+		{
+			long w = writes.get();
+			// From the primary, as in CachingGarDao: a lagging replica's row would stay cached.
+			c = DBUtility.readFromPrimary(() -> delegate.findByEmail(custEmailId));
+			// Cache first, then drop it again if a write happened meanwhile; see CachingGarDao.displayGarId.
+			if (c != null)
+			{
+				byEmail.put(key, c);
+				if (writes.get() != w)
+				{
+					byEmail.remove(key, c);
+				}
+			}
+		}
+		return c;
+	}
+
+	@Override
+	public boolean addCustomer(Customer g) {
+		boolean added = delegate.addCustomer(g);
+		writes.incrementAndGet();
+		if (g.getCustEmailId() != null)
+		{
+			byEmail.remove(key(g.getCustEmailId()));
+		}
+		return added;
+	}
+
+	@Override
+	public boolean updateCustomer(Customer g) {
+		boolean updated = delegate.updateCustomer(g);
+		// The email itself may have changed, so drop the entry under the old address too.
+		invalidateId(g.getCustId());
+		if (g.getCustEmailId() != null)
+		{
+			byEmail.remove(key(g.getCustEmailId()));
+		}
+		return updated;
+	}
+
+	@Override
+	public boolean deleteCustomer(int CustId) {
+		boolean deleted = delegate.deleteCustomer(CustId);
+		invalidateId(CustId);
+		return deleted;
+	}
+
+	@Override
+	public Customer displayCustId(int CustId) {
+		return delegate.displayCustId(CustId);
+	}
+
+	@Override
+	public List<Customer> displayAllCustomer() {
+		return delegate.displayAllCustomer();
+	}
+
+	@Override
+	public int[] addCustomers(List<Customer> customers) {
+		int[] ids = delegate.addCustomers(customers);
+		writes.incrementAndGet();
+		for (Customer c : customers)
+		{
+			if (c.getCustEmailId() != null)
+			{
+				byEmail.remove(key(c.getCustEmailId()));
+			}
+		}
+		return ids;
+	}
+
+	@Override
+	public List<Customer> displayCustomerPage(int afterCustId, int limit) {
+		return delegate.displayCustomerPage(afterCustId, limit);
+	}
+
+	@Override
+	public void forEachCustomer(Consumer<Customer> action) {
+		delegate.forEachCustomer(action);
+	}
+
+	@Override
+	public Stream<Customer> streamAllCustomer() {
+		return delegate.streamAllCustomer();
+	}
+
+	public BoundedCache.CacheStats getCacheStats()
+	{
+		return byEmail.getStats();
+	}
+
+	private void invalidateId(int custId)
+	{
+		writes.incrementAndGet();
+		byEmail.removeIf(c -> c.getCustId() == custId);
+	}
+
+}
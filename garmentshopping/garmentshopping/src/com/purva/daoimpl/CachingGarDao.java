@@ -0,0 +1,442 @@
+package com.purva.daoimpl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.purva.pojo.Garment;
+import com.purva.utility.BoundedCache;
+import com.purva.utility.DBUtility;
+
+
+/*
+ * Read-through cache in front of a GarDao.
+ * Single lookups go through a bounded LRU cache; displayAllGar is served from a
+ * versioned snapshot of the whole catalog. Every write bumps the catalog
+ * version, drops the garments it touched and discards the snapshot.
+ * Returned garments are shared between callers and must not be modified.
+ *
+ * With a snapshot file (cache.garment.snapshotFile) the catalog also
+ * survives restarts. At startup the last CatalogSnapshot is mapped and
+ * serves reads straight away, while a background load from the database
+ * takes over as soon as it is done. Every cache.garment.snapshotMs, and on
+ * close(), the catalog is written back if its content changed. Writes
+ * through this DAO drop the mapped snapshot like any other, and a file
+ * older than cache.garment.snapshotMaxAgeMs is not used at all.
+ *
+ * Misses are read from the primary even when read replicas are configured.
+ * A replica may not have the write that just invalidated an entry yet, and
+ * what it returned would then be cached until the next write.
+ */
+public class CachingGarDao implements GarDao {
+
+	private static class Snapshot
+	{
+		final long version;
+		final List<Garment> garments;
+		final Map<Integer, Garment> index;
+
+		Snapshot(long version, List<Garment> garments)
+		{
+			this.version = version;
+			this.garments = garments;
+			this.index = new HashMap<Integer, Garment>(garments.size() * 2);
+			for (Garment g : garments)
+			{
+				index.put(g.getGarId(), g);
+			}
+		}
+	}
+
+	private final GarDao delegate;
+	private final BoundedCache<Integer, Garment> byId;
+	private final AtomicLong version = new AtomicLong();
+	private volatile Snapshot snapshot;
+	private final AtomicLong snapshotHits = new AtomicLong();
+	private final AtomicLong snapshotMisses = new AtomicLong();
+
+	private final Path snapshotFile;
+	private final ScheduledExecutorService snapshotter;
+	// Last written snapshot, mapped; serves reads until the first load from the database.
+	private volatile CatalogSnapshot mapped;
+	private final AtomicLong mappedHits = new AtomicLong();
+	// Content of the file on disk, and the catalog version it was last checked at.
+	private volatile long savedChecksum;
+	private volatile long savedVersion = -1;
+	private final List<Runnable> refreshListeners = new CopyOnWriteArrayList<Runnable>();
+
+	public CachingGarDao(GarDao delegate, int maxEntries)
+	{
+		this(delegate, maxEntries, null, 0, 0);
+	}
+
+	/*
+	 * snapshotFile may be null for no snapshot file.
+	 */
+	public CachingGarDao(GarDao delegate, int maxEntries, Path snapshotFile, long snapshotIntervalMs, long maxAgeMs)
+	{
+		this.delegate = delegate;
+		this.byId = new BoundedCache<Integer, Garment>(maxEntries);
+		this.snapshotFile = snapshotFile;
+		if (snapshotFile == null)
+		{
+			snapshotter = null;
+			return;
+		}
+		snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "catalog-snapshot");
+			t.setDaemon(true);
+			return t;
+		});
+		CatalogSnapshot snap = CatalogSnapshot.open(snapshotFile);
+		if (snap != null && System.currentTimeMillis() - snap.getWrittenAt() > maxAgeMs)
+		{
+			System.out.println("Catalog snapshot " + snapshotFile + " is too old to serve from");
+			snap = null;
+		}
+		if (snap != null)
+		{
+			mapped = snap;
+			savedChecksum = snap.getChecksum();
+			snapshotter.execute(this::revalidate);
+		}
+		if (snapshotIntervalMs > 0)
+		{
+			snapshotter.scheduleWithFixedDelay(this::saveSnapshot, snapshotIntervalMs, snapshotIntervalMs,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/*
+	 * Settings from -Dcache.garment.maxEntries (10000), -Dcache.garment.snapshotFile
+	 * (none), -Dcache.garment.snapshotMs (60000) and -Dcache.garment.snapshotMaxAgeMs (one day).
+	 */
+	public CachingGarDao()
+	{
+		this(new GarDaoImpl(), Integer.getInteger("cache.garment.maxEntries", 10000),
+				System.getProperty("cache.garment.snapshotFile") != null ? Paths.get(System.getProperty("cache.garment.snapshotFile")) : null,
+				Long.getLong("cache.garment.snapshotMs", 60000),
+				Long.getLong("cache.garment.snapshotMaxAgeMs", 24 * 60 * 60 * 1000L));
+	}
+
+	@Override
+	public Garment displayGarId(int garId) {
+		Snapshot snap = snapshot;
+		long v = version.get();
+		if (snap != null && snap.version == v)
+		{
+			Garment g = snap.index.get(garId);
+			if (g != null)
+			{
+				return g;
+			}
+		}
+		CatalogSnapshot m = mapped;
+		if (m != null)
+		{
+			Garment g = m.get(garId);
+			if (g != null)
+			{
+				mappedHits.incrementAndGet();
+				return g;
+			}
+		}
+		Garment g = byId.get(garId);
+		if (g != null)
+		{
+			return g;
+		}
+		g = DBUtility.readFromPrimary(() -> delegate.displayGarId(garId));
+		if (g != null)
+		{
+			/*
+			 * Put first, then check the version. A write that bumps it after the
+			 * check removes the entry itself, and one that bumped it while we
+			 * were reading is caught here. Checking before the put would let a
+			 * write slip in between and leave its stale row cached.
+			 */
+			byId.put(garId, g);
+			if (version.get() != v)
+			{
+				byId.remove(garId, g);
+			}
+		}
+		return g;
+	}
+
+	@Override
+	public List<Garment> displayAllGar() {
+		Snapshot snap = snapshot;
+		long v = version.get();
+		if (snap != null && snap.version == v)
+		{
+			snapshotHits.incrementAndGet();
+			return snap.garments;
+		}
+		CatalogSnapshot m = mapped;
+		if (m != null)
+		{
+			mappedHits.incrementAndGet();
+			return m.garments();
+		}
+		snapshotMisses.incrementAndGet();
+		return load(v);
+	}
+
+	// Reads the catalog and keeps it as the snapshot unless a write came in meanwhile.
+	private List<Garment> load(long v)
+	{
+		List<Garment> garments = DBUtility.readFromPrimary(delegate::displayAllGar);
+		if (garments == null)
+		{
+			return null;
+		}
+		garments = Collections.unmodifiableList(new ArrayList<Garment>(garments));
+		if (version.get() == v)
+		{
+			snapshot = new Snapshot(v, garments);
+		}
+		return garments;
+	}
+
+	@Override
+	public boolean addGar(Garment g) {
+		boolean added = delegate.addGar(g);
+		if (added)
+		{
+			invalidate();
+		}
+		return added;
+	}
+
+	@Override
+	public boolean updateGar(Garment g) {
+		boolean updated = delegate.updateGar(g);
+		invalidate(g.getGarId());
+		return updated;
+	}
+
+	@Override
+	public boolean deleteGar(int garId) {
+		boolean deleted = delegate.deleteGar(garId);
+		invalidate(garId);
+		return deleted;
+	}
+
+	@Override
+	public int[] addGars(List<Garment> garments) {
+		int[] ids = delegate.addGars(garments);
+		invalidate();
+		return ids;
+	}
+
+	@Override
+	public int updateGars(List<Garment> garments) {
+		int rows = delegate.updateGars(garments);
+		int[] ids = new int[garments.size()];
+		for (int i = 0; i < ids.length; i++)
+		{
+			ids[i] = garments.get(i).getGarId();
+		}
+		invalidate(ids);
+		return rows;
+	}
+
+	@Override
+	public int deleteGars(int[] garIds) {
+		int rows = delegate.deleteGars(garIds);
+		invalidate(garIds);
+		return rows;
+	}
+
+	@Override
+	public List<Garment> displayGarPage(int afterGarId, int limit) {
+		return delegate.displayGarPage(afterGarId, limit);
+	}
+
+	@Override
+	public void forEachGar(Consumer<Garment> action) {
+		Snapshot snap = snapshot;
+		if (snap != null && snap.version == version.get())
+		{
+			snap.garments.forEach(action);
+			return;
+		}
+		CatalogSnapshot m = mapped;
+		if (m != null)
+		{
+			m.garments().forEach(action);
+			return;
+		}
+		delegate.forEachGar(action);
+	}
+
+	@Override
+	public Stream<Garment> streamAllGar() {
+		Snapshot snap = snapshot;
+		if (snap != null && snap.version == version.get())
+		{
+			return snap.garments.stream();
+		}
+		CatalogSnapshot m = mapped;
+		if (m != null)
+		{
+			return m.garments().stream();
+		}
+		return delegate.streamAllGar();
+	}
+
+	/*
+	 * Startup: replaces the mapped snapshot with the database's catalog and
+	 * rewrites the file if the two differ.
+	 */
+	private void revalidate()
+	{
+		long v = version.get();
+		List<Garment> garments = load(v);
+		if (garments == null)
+		{
+			// Database unavailable; keep serving the mapped snapshot and retry.
+			snapshotter.schedule(this::revalidate, 5, TimeUnit.SECONDS);
+			return;
+		}
+		mapped = null;
+		if (save(garments, v))
+		{
+			// Readers that copied the mapped catalog, like IndexedGarDao's index, now hold stale rows.
+			refreshListeners.forEach(Runnable::run);
+		}
+	}
+
+	/*
+	 * listener runs when the catalog this DAO serves is replaced other than
+	 * by a write through it: when startup revalidation finds the database
+	 * differs from the mapped snapshot file. It runs on the snapshot thread.
+	 */
+	public void addRefreshListener(Runnable listener)
+	{
+		refreshListeners.add(listener);
+	}
+
+	/*
+	 * Writes the catalog to the snapshot file if it changed since the last
+	 * save. Writes made by other processes are picked up by the next
+	 * startup's revalidation.
+	 */
+	private void saveSnapshot()
+	{
+		long v = version.get();
+		if (v == savedVersion || mapped != null)
+		{
+			return;
+		}
+		Snapshot snap = snapshot;
+		List<Garment> garments = snap != null && snap.version == v ? snap.garments : load(v);
+		if (garments != null)
+		{
+			save(garments, v);
+		}
+	}
+
+	// Returns whether garments differ from the file's last known content.
+	private boolean save(List<Garment> garments, long v)
+	{
+		boolean changed = true;
+		try
+		{
+			changed = CatalogSnapshot.checksum(garments) != savedChecksum;
+			if (changed || !snapshotFile.toFile().exists())
+			{
+				savedChecksum = CatalogSnapshot.write(snapshotFile, garments);
+			}
+			savedVersion = v;
+		}
+		catch (IOException | RuntimeException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		return changed;
+	}
+
+	/*
+	 * Stops the snapshot schedule and writes a last snapshot, so the next
+	 * start is warm.
+	 */
+	public void close()
+	{
+		if (snapshotter == null)
+		{
+			return;
+		}
+		snapshotter.shutdown();
+		try
+		{
+			snapshotter.awaitTermination(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		if (mapped == null)
+		{
+			saveSnapshot();
+		}
+	}
+
+	/*
+	 * Reads answered from the mapped snapshot file since startup.
+	 */
+	public long getMappedHits()
+	{
+		return mappedHits.get();
+	}
+
+	public boolean isServingMappedSnapshot()
+	{
+		return mapped != null;
+	}
+
+	/*
+	 * Catalog version; changes on every write that goes through this DAO.
+	 */
+	public long getVersion()
+	{
+		return version.get();
+	}
+
+	public BoundedCache.CacheStats getEntryStats()
+	{
+		return byId.getStats();
+	}
+
+	public BoundedCache.CacheStats getSnapshotStats()
+	{
+		Snapshot snap = snapshot;
+		return new BoundedCache.CacheStats(snapshotHits.get(), snapshotMisses.get(), 0, snap == null ? 0 : snap.garments.size());
+	}
+
+	private void invalidate(int... garIds)
+	{
+		version.incrementAndGet();
+		snapshot = null;
+		mapped = null;
+		for (int garId : garIds)
+		{
+			byId.remove(garId);
+		}
+	}
+
+}
@@ -3,12 +3,18 @@ package com.purva.daoimpl;
 import java.util.List;
 
 import com.purva.pojo.Cart;
+import com.purva.pojo.CartSummary;
 
 public interface CartDao {
 	
 	boolean addtoCart(Cart ct);
 	List<Cart>showCart(String emailId);
 	boolean deleteCart(int cartId);
+	boolean deleteCart(int cartId, String emailId);
+
+	int[] addtoCarts(List<Cart> carts);
+	CartSummary cartSummary(String emailId);
+	boolean flushCart(String emailId);
 
 
 }
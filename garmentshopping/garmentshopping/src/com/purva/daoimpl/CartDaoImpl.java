@@ -4,74 +4,128 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import com.purva.pojo.Cart;
+import com.purva.pojo.CartSummary;
+import com.purva.utility.BatchExecutor;
 import com.purva.utility.DBUtility;
+import com.purva.utility.QueryStreams;
+import com.purva.utility.Schema;
 
 
 
-public class CartDaoImpl {
-	
-	Connection con;
-	String query;
-    PreparedStatement ps;
-    int row;
-    ResultSet rs;
-	//@Override
+/*
+ * Stateless: every method works on its own connection and statement,
+ * so one instance can be shared across threads.
+ */
+public class CartDaoImpl implements CartDao {
+
+	// The garment price is copied onto the cart row, so the running total and the order lines agree.
+	private static final String INSERT_CART="insert into "+Schema.CART+"(garId, custEmailId, garQty, garPrice) "
+			+ "select garId, ?, ?, garPrice from "+Schema.GARMENT+" where garId=?";
+	private static final String SELECT_CART_BY_EMAIL="select c.cartId,c.garId,g.garName,c.garPrice,c.garQty from "+Schema.GARMENT+" AS g INNER "
+			+ "JOIN "+Schema.CART+" AS c on g.garId = c.garId where c.custEmailId = ?";
+	private static final String SELECT_CART_LINE="select custEmailId, garQty, garPrice from "+Schema.CART+" where cartId=?";
+	private static final String INSERT_PRICED_CART="insert into "+Schema.CART+"(garId, custEmailId, garQty, garPrice) values (?,?,?,?)";
+	private static final String SELECT_PRICES="select garId, garPrice from "+Schema.GARMENT+" where garId in (";
+	private static final String SELECT_OWN_CART_LINE=SELECT_CART_LINE+" and custEmailId=?";
+	private static final String DELETE_CART="Delete From "+Schema.CART+" where cartId=? and custEmailId=?";
+
+	private static final QueryStreams.RowReader<Cart> READ_CART_BY_EMAIL=RowMappers.CART.reader();
+
+	private final int batchSize;
+
+	public CartDaoImpl()
+	{
+		this(BatchExecutor.DEFAULT_BATCH_SIZE);
+	}
+
+	public CartDaoImpl(int batchSize)
+	{
+		this.batchSize=BatchExecutor.checkBatchSize(batchSize);
+	}
+
+	/*
+	 * Inserts the cart row and adds it to the customer's running total in one transaction.
+	 */
+	@Override
 	public boolean addtoCart(Cart ct) {
-		con=DBUtility.establishConnection();
-		query="insert into Cart(garId,CustemailId, garQty) values (?,?,?)";
-		try
+		try (Connection con=DBUtility.establishConnection(ct.getCustEmailId()))
 		{
-			ps=con.prepareStatement(query);
-			ps.setInt(1, ct.getCartId());
-			ps.setString(2, ct.getCustEmailId());
-			ps.setInt(3,ct.getGarQty());
-			
-			row=ps.executeUpdate();
-			if(row>0)
+			con.setAutoCommit(false);
+			try
 			{
+				CartSummaries.lock(con, ct.getCustEmailId());
+				CartSummary summary=CartSummaries.addGarment(con, ct.getCustEmailId(), ct.getGarId(), ct.getGarQty());
+				if(summary==null)
+				{
+					con.rollback();
+					return false;
+				}
+				try (PreparedStatement ps=con.prepareStatement(INSERT_CART, Statement.RETURN_GENERATED_KEYS))
+				{
+					ps.setString(1, ct.getCustEmailId());
+					ps.setInt(2,ct.getGarQty());
+					ps.setInt(3, ct.getGarId());
+					ps.executeUpdate();
+					try (ResultSet keys=ps.getGeneratedKeys())
+					{
+						if(keys.next())
+						{
+							ct.setCartId(keys.getInt(1));
+						}
+					}
+				}
+				con.commit();
+				CartSummaries.publish(summary);
 				return true;
 			}
-			
+			catch (SQLException e)
+			{
+				con.rollback();
+				throw e;
+			}
+			finally
+			{
+				con.setAutoCommit(true);
+			}
 		}
 		catch (Exception e) {
 			System.out.println(e);
 		e.printStackTrace();
 		}
-		
+
 		return false;
 	}
-	
-	
-	//@Override
+
+
+	@Override
 	public List<Cart> showCart(String emailId) {
-		con=DBUtility.establishConnection();
-		
-		query = "select g.garName,g.garPrice,c.garQty from Food_21828 AS f INNER "
-				+ "JOIN Cart_21828 AS c where f.foodId = c.foodId and c.custEmailID = ?";
 		List<Cart> cartList = new ArrayList<Cart>();
-		try 
+		try (Connection con=DBUtility.establishReadConnection(emailId);
+				PreparedStatement ps= con.prepareStatement(SELECT_CART_BY_EMAIL))
 		{
-			ps= con.prepareStatement(query);
-			
 			ps.setString(1,emailId);
-			rs = ps.executeQuery();
-			while(rs.next())
+			try (ResultSet rs = ps.executeQuery())
 			{
-				Cart ct = new Cart();
-				ct.setGarName(rs.getString("garName"));
-				ct.setGarPrice(rs.getInt("garPrice"));
-				ct.setGarQty(rs.getInt("garQty"));
-				
-				cartList.add(ct);
+				while(rs.next())
+				{
+					cartList.add(READ_CART_BY_EMAIL.read(rs));
+				}
 			}
 			return cartList;
-		
-		} 
-		catch (SQLException e) 
+		}
+		catch (SQLException e)
 		{
 			e.printStackTrace();
 		}
@@ -79,25 +133,274 @@ public class CartDaoImpl {
 	}
 
 
-	//@Override
+	/*
+	 * Deletes the cart row and takes it off the customer's running total in one transaction.
+	 */
+	@Override
 	public boolean deleteCart(int cartId) {
-		con=DBUtility.establishConnection();
-		query="Delete From Cart_21828 where cartId=?";
-try {
-	ps=con.prepareStatement(query);
-	ps.setInt(1,cartId);
-	row=ps.executeUpdate();
-	if(row>0)
+		return delete(cartId, null);
+	}
+
+
+	/*
+	 * As deleteCart(cartId), but only if the line is in emailId's cart.
+	 */
+	@Override
+	public boolean deleteCart(int cartId, String emailId) {
+		return emailId!=null && delete(cartId, emailId);
+	}
+
+
+	private boolean delete(int cartId, String owner)
 	{
+		try (Connection con=DBUtility.establishConnection())
+		{
+			String emailId;
+			int qty;
+			double price;
+			try (PreparedStatement ps=con.prepareStatement(owner==null ? SELECT_CART_LINE : SELECT_OWN_CART_LINE))
+			{
+				ps.setInt(1,cartId);
+				if(owner!=null)
+				{
+					// Compared by the database, with the same collation as every other email lookup.
+					ps.setString(2, owner);
+				}
+				try (ResultSet rs=ps.executeQuery())
+				{
+					if(!rs.next())
+					{
+						return false;
+					}
+					emailId=rs.getString("custEmailId");
+					qty=rs.getInt("garQty");
+					price=rs.getDouble("garPrice");
+				}
+			}
+			DBUtility.wrote(emailId);
+			con.setAutoCommit(false);
+			try
+			{
+				// Summary first: same lock order as addtoCart and checkout.
+				CartSummaries.lock(con, emailId);
+				CartSummary summary=CartSummaries.addDelta(con, emailId, -1, -qty, -qty*price);
+				try (PreparedStatement ps=con.prepareStatement(DELETE_CART))
+				{
+					ps.setInt(1,cartId);
+					ps.setString(2, emailId);
+					if(ps.executeUpdate()==0)
+					{
+						// Already gone, e.g. checked out meanwhile.
+						con.rollback();
+						return false;
+					}
+				}
+				con.commit();
+				CartSummaries.publish(summary);
+				return true;
+			}
+			catch (SQLException e)
+			{
+				con.rollback();
+				throw e;
+			}
+			finally
+			{
+				con.setAutoCommit(true);
+			}
+		}
+		catch (SQLException e) {
+
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+
+	@Override
+	public CartSummary cartSummary(String emailId) {
+		try
+		{
+			return CartSummaries.get(emailId);
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+
+	// Writes are synchronous, so there is never anything to flush.
+	@Override
+	public boolean flushCart(String emailId) {
 		return true;
 	}
-} 
 
-catch (SQLException e) {
-	
-	e.printStackTrace();
-}		
-		return false;
+
+	/*
+	 * Adds many cart rows in chunks of batchSize, one transaction per chunk.
+	 * Like addtoCart, each chunk locks its customers' summaries before it
+	 * inserts their lines and updates them in the same transaction, so a
+	 * checkout bills exactly the lines it moves into the order. The locks
+	 * are taken in email order, so two batches cannot deadlock on them.
+	 * Generated cart ids are set on the rows and returned in the same order.
+	 * A row whose garment does not exist is not inserted and gets id 0.
+	 * If a chunk fails null is returned; the chunks before it stay committed
+	 * and keep their ids, the others get 0.
+	 */
+	@Override
+	public int[] addtoCarts(List<Cart> carts) {
+		int[] ids=new int[carts.size()];
+		boolean done=false;
+		try (Connection con=DBUtility.establishConnection())
+		{
+			con.setAutoCommit(false);
+			try
+			{
+				for(int from=0;from<carts.size();from+=batchSize)
+				{
+					int to=Math.min(carts.size(), from+batchSize);
+					List<CartSummary> summaries;
+					try
+					{
+						summaries=addChunk(con, carts, from, to, ids);
+						con.commit();
+					}
+					catch(SQLException e)
+					{
+						con.rollback();
+						Arrays.fill(ids, from, ids.length, 0);
+						throw e;
+					}
+					summaries.forEach(CartSummaries::publish);
+				}
+				done=true;
+			}
+			finally
+			{
+				con.setAutoCommit(true);
+			}
+		}
+		catch(SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		for(int i=0;i<ids.length;i++)
+		{
+			carts.get(i).setCartId(ids[i]);
+		}
+		return done ? ids : null;
+	}
+
+	/*
+	 * Inserts carts[from, to) at their garments' current prices and returns
+	 * the updated summaries. Every row in the insert batch inserts exactly one
+	 * row, so the generated keys line up with the rows they were added for.
+	 */
+	private static List<CartSummary> addChunk(Connection con, List<Cart> carts, int from, int to, int[] ids) throws SQLException
+	{
+		TreeMap<String, String> emails=new TreeMap<String, String>();
+		for(int i=from;i<to;i++)
+		{
+			emails.putIfAbsent(key(carts.get(i).getCustEmailId()), carts.get(i).getCustEmailId());
+		}
+		for(String emailId : emails.values())
+		{
+			CartSummaries.lock(con, emailId);
+		}
+		Map<Integer, Double> prices=prices(con, carts, from, to);
+		Map<String, double[]> deltas=new HashMap<String, double[]>();
+		List<Integer> inserted=new ArrayList<Integer>(to-from);
+		try (PreparedStatement ps=con.prepareStatement(INSERT_PRICED_CART, Statement.RETURN_GENERATED_KEYS))
+		{
+			for(int i=from;i<to;i++)
+			{
+				Cart ct=carts.get(i);
+				Double price=prices.get(ct.getGarId());
+				if(price==null)
+				{
+					continue;
+				}
+				ps.setInt(1, ct.getGarId());
+				ps.setString(2, ct.getCustEmailId());
+				ps.setInt(3, ct.getGarQty());
+				ps.setDouble(4, price);
+				ps.addBatch();
+				inserted.add(i);
+				double[] d=deltas.computeIfAbsent(key(ct.getCustEmailId()), k -> new double[3]);
+				d[0]++;
+				d[1]+=ct.getGarQty();
+				d[2]+=ct.getGarQty()*price;
+			}
+			if(!inserted.isEmpty())
+			{
+				ps.executeBatch();
+				try (ResultSet keys=ps.getGeneratedKeys())
+				{
+					for(int i : inserted)
+					{
+						if(!keys.next())
+						{
+							throw new SQLException("fewer generated keys than cart rows inserted");
+						}
+						ids[i]=keys.getInt(1);
+					}
+				}
+			}
+		}
+		List<CartSummary> summaries=new ArrayList<CartSummary>(deltas.size());
+		for(Map.Entry<String, String> e : emails.entrySet())
+		{
+			double[] d=deltas.get(e.getKey());
+			if(d!=null)
+			{
+				summaries.add(CartSummaries.addDelta(con, e.getValue(), (int) d[0], (int) d[1], d[2]));
+				DBUtility.wrote(e.getValue());
+			}
+		}
+		return summaries;
+	}
+
+	// Current price of every garment the rows name; a garId missing from the result does not exist.
+	private static Map<Integer, Double> prices(Connection con, List<Cart> carts, int from, int to) throws SQLException
+	{
+		Set<Integer> garIds=new LinkedHashSet<Integer>();
+		for(int i=from;i<to;i++)
+		{
+			garIds.add(carts.get(i).getGarId());
+		}
+		StringBuilder sql=new StringBuilder(SELECT_PRICES);
+		for(int i=0;i<garIds.size();i++)
+		{
+			sql.append(i==0 ? "?" : ",?");
+		}
+		sql.append(")");
+		Map<Integer, Double> prices=new HashMap<Integer, Double>(garIds.size()*2);
+		try (PreparedStatement ps=con.prepareStatement(sql.toString()))
+		{
+			int n=1;
+			for(int garId : garIds)
+			{
+				ps.setInt(n++, garId);
+			}
+			try (ResultSet rs=ps.executeQuery())
+			{
+				while(rs.next())
+				{
+					prices.put(rs.getInt("garId"), rs.getDouble("garPrice"));
+				}
+			}
+		}
+		return prices;
+	}
+
+	// Same folding as CartSummaries, so one customer's rows share one lock.
+	private static String key(String email)
+	{
+		return email.trim().toLowerCase(Locale.ROOT);
 	}
 
 
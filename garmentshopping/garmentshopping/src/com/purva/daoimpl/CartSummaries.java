@@ -0,0 +1,184 @@
+package com.purva.daoimpl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.purva.pojo.CartSummary;
+import com.purva.utility.DBUtility;
+import com.purva.utility.Schema;
+
+
+/*
+ * Running line count, item count and total per customer cart, kept in
+ * CartSummary_21828 and mirrored in memory.
+ * Writers lock the row with lock() before touching any Cart_21828 rows and
+ * update it in the same transaction as the cart change, so cart edits and
+ * checkout serialize per customer without deadlocking.
+ * Every change bumps the row version; the in-memory copy only ever moves to
+ * a newer version, so publishing after commit is safe in any order.
+ */
+final class CartSummaries {
+
+	private static final String ADD_FROM_GARMENT="insert into "+Schema.CART_SUMMARY+"(custEmailId, lineCount, itemCount, cartTotal, version) "
+			+ "select ?, 1, ?, ? * garPrice, 1 from "+Schema.GARMENT+" where garId=? "
+			+ "on duplicate key update lineCount=lineCount+values(lineCount), itemCount=itemCount+values(itemCount), "
+			+ "cartTotal=cartTotal+values(cartTotal), version=version+1";
+	private static final String ADD_DELTA="update "+Schema.CART_SUMMARY+" set lineCount=lineCount+?, itemCount=itemCount+?, "
+			+ "cartTotal=cartTotal+?, version=version+1 where custEmailId=?";
+	private static final String REBUILD="insert into "+Schema.CART_SUMMARY+"(custEmailId, lineCount, itemCount, cartTotal, version) "
+			+ "select ?, count(*), coalesce(sum(garQty),0), coalesce(sum(garQty * garPrice),0), 1 from "+Schema.CART+" where custEmailId=? "
+			+ "on duplicate key update lineCount=values(lineCount), itemCount=values(itemCount), "
+			+ "cartTotal=values(cartTotal), version=version+1";
+	private static final String CLEAR="update "+Schema.CART_SUMMARY+" set lineCount=0, itemCount=0, cartTotal=0, version=version+1 "
+			+ "where custEmailId=?";
+	private static final String SELECT_SUMMARY="select custEmailId, lineCount, itemCount, cartTotal, version "
+			+ "from "+Schema.CART_SUMMARY+" where custEmailId=?";
+	private static final String LOCK_SUMMARY=SELECT_SUMMARY+" for update";
+
+	private static final ConcurrentHashMap<String, CartSummary> LIVE = new ConcurrentHashMap<String, CartSummary>();
+
+	private CartSummaries()
+	{
+	}
+
+	// MySQL's default collation compares emails case-insensitively, so the map does too.
+	private static String key(String email)
+	{
+		return email.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/*
+	 * Adds qty of garment garId at its current price. Returns null if the
+	 * garment does not exist, in which case nothing was written.
+	 */
+	static CartSummary addGarment(Connection con, String custEmailId, int garId, int qty) throws SQLException
+	{
+		try (PreparedStatement ps = con.prepareStatement(ADD_FROM_GARMENT))
+		{
+			ps.setString(1, custEmailId);
+			ps.setInt(2, qty);
+			ps.setInt(3, qty);
+			ps.setInt(4, garId);
+			if (ps.executeUpdate() == 0)
+			{
+				return null;
+			}
+		}
+		return select(con, custEmailId, false);
+	}
+
+	static CartSummary addDelta(Connection con, String custEmailId, int lines, int items, double amount) throws SQLException
+	{
+		try (PreparedStatement ps = con.prepareStatement(ADD_DELTA))
+		{
+			ps.setInt(1, lines);
+			ps.setInt(2, items);
+			ps.setDouble(3, amount);
+			ps.setString(4, custEmailId);
+			ps.executeUpdate();
+		}
+		return select(con, custEmailId, false);
+	}
+
+	/*
+	 * Recomputes the summary from the cart rows; also creates it for carts
+	 * that predate the summary table.
+	 */
+	static CartSummary rebuild(Connection con, String custEmailId) throws SQLException
+	{
+		try (PreparedStatement ps = con.prepareStatement(REBUILD))
+		{
+			ps.setString(1, custEmailId);
+			ps.setString(2, custEmailId);
+			ps.executeUpdate();
+		}
+		return select(con, custEmailId, false);
+	}
+
+	static CartSummary clear(Connection con, String custEmailId) throws SQLException
+	{
+		try (PreparedStatement ps = con.prepareStatement(CLEAR))
+		{
+			ps.setString(1, custEmailId);
+			ps.executeUpdate();
+		}
+		return select(con, custEmailId, false);
+	}
+
+	/*
+	 * Locks the summary row for the rest of the caller's transaction,
+	 * creating it first if the cart has none yet.
+	 */
+	static CartSummary lock(Connection con, String custEmailId) throws SQLException
+	{
+		CartSummary s = select(con, custEmailId, true);
+		return s != null ? s : rebuild(con, custEmailId);
+	}
+
+	private static CartSummary select(Connection con, String custEmailId, boolean forUpdate) throws SQLException
+	{
+		try (PreparedStatement ps = con.prepareStatement(forUpdate ? LOCK_SUMMARY : SELECT_SUMMARY))
+		{
+			ps.setString(1, custEmailId);
+			try (ResultSet rs = ps.executeQuery())
+			{
+				if (!rs.next())
+				{
+					return null;
+				}
+				CartSummary s = new CartSummary();
+				s.setCustEmailId(rs.getString("custEmailId"));
+				s.setLineCount(rs.getInt("lineCount"));
+				s.setItemCount(rs.getInt("itemCount"));
+				s.setCartTotal(rs.getDouble("cartTotal"));
+				s.setVersion(rs.getLong("version"));
+				return s;
+			}
+		}
+	}
+
+	/*
+	 * Makes a committed summary visible to readers. Call only after commit.
+	 */
+	static void publish(CartSummary s)
+	{
+		if (s != null)
+		{
+			LIVE.merge(key(s.getCustEmailId()), s, (old, nu) -> nu.getVersion() >= old.getVersion() ? nu : old);
+		}
+	}
+
+	/*
+	 * Current summary without touching the database when the customer is
+	 * already known; otherwise one primary-key read (or a rebuild for
+	 * carts that predate the summary table).
+	 */
+	static CartSummary get(String custEmailId) throws SQLException
+	{
+		CartSummary s = LIVE.get(key(custEmailId));
+		if (s != null)
+		{
+			return s;
+		}
+		return refresh(custEmailId);
+	}
+
+	static CartSummary refresh(String custEmailId) throws SQLException
+	{
+		try (Connection con = DBUtility.establishConnection())
+		{
+			CartSummary s = select(con, custEmailId, false);
+			if (s == null)
+			{
+				s = rebuild(con, custEmailId);
+			}
+			publish(s);
+			return LIVE.get(key(custEmailId));
+		}
+	}
+
+}
@@ -0,0 +1,693 @@
+package com.purva.daoimpl;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.purva.pojo.Garment;
+import com.purva.utility.Json;
+
+
+/*
+ * Bulk-loads a supplier catalog file into Garment.
+ *
+ * Accepted formats:
+ *   .csv: garName,garType,garPrice. A header row naming the columns is
+ *     optional; if present it may reorder them or add extra ones.
+ *   .ndjson / .jsonl: one flat JSON object per line with the same keys.
+ *
+ * Pipeline: this thread reads the file in chunks of batchSize records.
+ * Parser threads validate each chunk and drop names that already exist
+ * (case-insensitively, in the table or earlier in the file). Writer
+ * threads insert each chunk with GarDao.addGars on its own pooled
+ * connection, and bounded queues between the stages keep memory flat.
+ *
+ * After each chunk is written the importer saves a checkpoint,
+ * <file>.checkpoint, holding the last line up to which every chunk is in.
+ * A resumed import skips those lines. Chunks written after the checkpoint
+ * come back as duplicates, so resuming never inserts a garment twice.
+ * Rejected rows go to <file>.rejects with their line number and reason.
+ */
+public class CatalogImporter {
+
+	static final int MAX_NAME = 100;
+	static final int MAX_TYPE = 50;
+	private static final long PROGRESS_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+	private final GarDao dao;
+	private final int parsers;
+	private final int writers;
+	private final int batchSize;
+
+	public CatalogImporter(GarDao dao, int parsers, int writers, int batchSize)
+	{
+		this.dao = dao;
+		this.parsers = parsers;
+		this.writers = writers;
+		this.batchSize = batchSize;
+	}
+
+	/*
+	 * Settings from -Dimport.parsers (CPU count), -Dimport.writers (4) and
+	 * -Dimport.batchSize (1000).
+	 */
+	public CatalogImporter(GarDao dao)
+	{
+		this(dao, Integer.getInteger("import.parsers", Runtime.getRuntime().availableProcessors()),
+				Integer.getInteger("import.writers", 4), Integer.getInteger("import.batchSize", 1000));
+	}
+
+	public static class Result
+	{
+		// Counts cover this run only; a resumed run starts after the checkpoint.
+		private long read, imported, duplicates, rejected, resumedAfterLine, nanos;
+		private boolean completed;
+		private String error;
+
+		public long getRead() {
+			return read;
+		}
+		public long getImported() {
+			return imported;
+		}
+		public long getDuplicates() {
+			return duplicates;
+		}
+		public long getRejected() {
+			return rejected;
+		}
+		public long getResumedAfterLine() {
+			return resumedAfterLine;
+		}
+		public long getMillis() {
+			return nanos / 1000000;
+		}
+		public long getRowsPerSecond() {
+			return nanos == 0 ? 0 : (long) (read * 1e9 / nanos);
+		}
+		public boolean isCompleted() {
+			return completed;
+		}
+		public String getError() {
+			return error;
+		}
+		@Override
+		public String toString() {
+			return "Result [read=" + read + ", imported=" + imported + ", duplicates=" + duplicates + ", rejected="
+					+ rejected + ", resumedAfterLine=" + resumedAfterLine + ", millis=" + getMillis()
+					+ ", rowsPerSecond=" + getRowsPerSecond() + ", completed=" + completed
+					+ (error != null ? ", error=" + error : "") + "]";
+		}
+	}
+
+	// Raw records read from the file; lines[i] is where records[i] starts.
+	private static class Chunk
+	{
+		final long seq;
+		final List<String> records;
+		final long[] lines;
+		final long lastLine;
+
+		Chunk(long seq, List<String> records, long[] lines, long lastLine)
+		{
+			this.seq = seq;
+			this.records = records;
+			this.lines = lines;
+			this.lastLine = lastLine;
+		}
+	}
+
+	private static class Parsed
+	{
+		final long seq;
+		final long lastLine;
+		final List<Garment> rows;
+
+		Parsed(long seq, long lastLine, List<Garment> rows)
+		{
+			this.seq = seq;
+			this.lastLine = lastLine;
+			this.rows = rows;
+		}
+	}
+
+	private static final Chunk NO_MORE_CHUNKS = new Chunk(-1, null, null, 0);
+	private static final Parsed NO_MORE_ROWS = new Parsed(-1, 0, null);
+
+	public Result importFile(Path file, boolean resume) throws IOException
+	{
+		return new Run(file, resume).execute();
+	}
+
+	/*
+	 * State of one import.
+	 */
+	private class Run
+	{
+		final Path file;
+		final Path checkpointFile;
+		final Path rejectsFile;
+		final boolean json;
+		final boolean resume;
+
+		final Set<String> names = ConcurrentHashMap.newKeySet();
+		final BlockingQueue<Chunk> toParse = new ArrayBlockingQueue<Chunk>(parsers * 2);
+		final BlockingQueue<Parsed> toWrite = new ArrayBlockingQueue<Parsed>(writers * 2);
+		final AtomicInteger parsersLeft = new AtomicInteger(parsers);
+		final LongAdder read = new LongAdder();
+		final LongAdder imported = new LongAdder();
+		final LongAdder duplicates = new LongAdder();
+		final LongAdder rejected = new LongAdder();
+		volatile String error;
+
+		// Column positions from the CSV header: name, type, price.
+		int[] columns = { 0, 1, 2 };
+		Writer rejects;
+
+		// Checkpoint bookkeeping, guarded by this Run.
+		final Map<Long, Long> finished = new TreeMap<Long, Long>();
+		long nextSeq;
+		long checkpointLine;
+		long start = System.nanoTime();
+		long lastProgress = start;
+
+		Run(Path file, boolean resume)
+		{
+			this.file = file;
+			this.checkpointFile = file.resolveSibling(file.getFileName() + ".checkpoint");
+			this.rejectsFile = file.resolveSibling(file.getFileName() + ".rejects");
+			String lower = file.getFileName().toString().toLowerCase(Locale.ROOT);
+			this.json = lower.endsWith(".ndjson") || lower.endsWith(".jsonl") || lower.endsWith(".json");
+			this.resume = resume;
+		}
+
+		Result execute() throws IOException
+		{
+			long skipTo = resume ? loadCheckpoint() : 0;
+			checkpointLine = skipTo;
+			dao.forEachGar(g -> names.add(key(g.getGarName())));
+
+			List<Thread> threads = new ArrayList<Thread>();
+			for (int i = 0; i < parsers; i++)
+			{
+				threads.add(start(this::parse, "import-parser-" + i));
+			}
+			for (int i = 0; i < writers; i++)
+			{
+				threads.add(start(this::write, "import-writer-" + i));
+			}
+
+			try (InputStream in = Files.newInputStream(file);
+					BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16))
+			{
+				rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+						resume ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+				readChunks(reader, skipTo);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				fail("interrupted");
+			}
+			finally
+			{
+				put(toParse, NO_MORE_CHUNKS, parsers);
+				for (Thread t : threads)
+				{
+					join(t);
+				}
+				if (rejects != null)
+				{
+					rejects.close();
+				}
+			}
+
+			Result r = new Result();
+			r.read = read.sum();
+			r.imported = imported.sum();
+			r.duplicates = duplicates.sum();
+			r.rejected = rejected.sum();
+			r.resumedAfterLine = skipTo;
+			r.nanos = System.nanoTime() - start;
+			r.error = error;
+			r.completed = error == null;
+			if (r.completed)
+			{
+				Files.deleteIfExists(checkpointFile);
+			}
+			return r;
+		}
+
+		private void readChunks(BufferedReader reader, long skipTo) throws IOException, InterruptedException
+		{
+			long lineNo = 0;
+			long seq = 0;
+			List<String> records = new ArrayList<String>(batchSize);
+			long[] lines = new long[batchSize];
+			boolean first = true;
+			String line;
+			while (error == null && (line = reader.readLine()) != null)
+			{
+				lineNo++;
+				long recordLine = lineNo;
+				if (!json)
+				{
+					// A quoted CSV field may span lines.
+					StringBuilder record = null;
+					while (quotes(record != null ? record : line) % 2 != 0)
+					{
+						String more = reader.readLine();
+						if (more == null)
+						{
+							break;
+						}
+						lineNo++;
+						record = (record != null ? record : new StringBuilder(line)).append('\n').append(more);
+					}
+					if (record != null)
+					{
+						line = record.toString();
+					}
+					if (first)
+					{
+						first = false;
+						if (header(line))
+						{
+							continue;
+						}
+					}
+				}
+				if (lineNo <= skipTo || line.trim().isEmpty())
+				{
+					continue;
+				}
+				lines[records.size()] = recordLine;
+				records.add(line);
+				if (records.size() == batchSize)
+				{
+					toParse.put(new Chunk(seq++, records, lines, lineNo));
+					records = new ArrayList<String>(batchSize);
+					lines = new long[batchSize];
+				}
+			}
+			if (!records.isEmpty() && error == null)
+			{
+				toParse.put(new Chunk(seq++, records, lines, lineNo));
+			}
+		}
+
+		private boolean header(String line)
+		{
+			List<String> cells = splitCsv(line);
+			int[] found = { -1, -1, -1 };
+			for (int i = 0; i < cells.size(); i++)
+			{
+				String cell = cells.get(i).trim();
+				if (cell.equalsIgnoreCase("garName"))
+				{
+					found[0] = i;
+				}
+				else if (cell.equalsIgnoreCase("garType"))
+				{
+					found[1] = i;
+				}
+				else if (cell.equalsIgnoreCase("garPrice"))
+				{
+					found[2] = i;
+				}
+			}
+			if (found[0] < 0 && found[1] < 0 && found[2] < 0)
+			{
+				return false;
+			}
+			columns = found;
+			return true;
+		}
+
+		private void parse()
+		{
+			try
+			{
+				while (true)
+				{
+					Chunk chunk = toParse.take();
+					if (chunk == NO_MORE_CHUNKS)
+					{
+						break;
+					}
+					if (error != null)
+					{
+						// Drain quickly so the reader is not left waiting.
+						continue;
+					}
+					List<Garment> rows = new ArrayList<Garment>(chunk.records.size());
+					for (int i = 0; i < chunk.records.size(); i++)
+					{
+						read.increment();
+						String record = chunk.records.get(i);
+						Garment g;
+						try
+						{
+							g = json ? fromJson(record) : fromCsv(record, columns);
+						}
+						catch (IllegalArgumentException e)
+						{
+							reject(chunk.lines[i], e.getMessage(), record);
+							continue;
+						}
+						if (names.add(key(g.getGarName())))
+						{
+							rows.add(g);
+						}
+						else
+						{
+							duplicates.increment();
+						}
+					}
+					toWrite.put(new Parsed(chunk.seq, chunk.lastLine, rows));
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			catch (RuntimeException e)
+			{
+				fail(e.toString());
+			}
+			finally
+			{
+				if (parsersLeft.decrementAndGet() == 0)
+				{
+					put(toWrite, NO_MORE_ROWS, writers);
+				}
+			}
+		}
+
+		private void write()
+		{
+			try
+			{
+				while (true)
+				{
+					Parsed batch = toWrite.take();
+					if (batch == NO_MORE_ROWS)
+					{
+						break;
+					}
+					if (error != null)
+					{
+						continue;
+					}
+					if (!batch.rows.isEmpty() && dao.addGars(batch.rows) == null)
+					{
+						fail("writing the chunk ending at line " + batch.lastLine + " failed");
+						continue;
+					}
+					imported.add(batch.rows.size());
+					finished(batch.seq, batch.lastLine);
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		/*
+		 * Moves the checkpoint past every chunk that is written along with
+		 * all chunks before it.
+		 */
+		private synchronized void finished(long seq, long lastLine)
+		{
+			finished.put(seq, lastLine);
+			Long line;
+			boolean advanced = false;
+			while ((line = finished.remove(nextSeq)) != null)
+			{
+				checkpointLine = line;
+				nextSeq++;
+				advanced = true;
+			}
+			if (advanced)
+			{
+				saveCheckpoint();
+			}
+			long now = System.nanoTime();
+			if (now - lastProgress >= PROGRESS_NANOS)
+			{
+				lastProgress = now;
+				long rows = read.sum();
+				System.out.println("Imported " + imported.sum() + " of " + rows + " rows read, "
+						+ (long) (rows * 1e9 / (now - start)) + " rows/s");
+			}
+		}
+
+		private void saveCheckpoint()
+		{
+			Properties p = new Properties();
+			p.setProperty("line", String.valueOf(checkpointLine));
+			Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+			try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8))
+			{
+				p.store(w, "Catalog import of " + file.getFileName());
+			}
+			catch (IOException e)
+			{
+				System.out.println(e);
+				return;
+			}
+			try
+			{
+				Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (IOException e)
+			{
+				System.out.println(e);
+			}
+		}
+
+		private long loadCheckpoint() throws IOException
+		{
+			if (!Files.exists(checkpointFile))
+			{
+				return 0;
+			}
+			Properties p = new Properties();
+			try (BufferedReader r = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8))
+			{
+				p.load(r);
+			}
+			return Long.parseLong(p.getProperty("line", "0"));
+		}
+
+		private void reject(long line, String reason, String record)
+		{
+			rejected.increment();
+			synchronized (rejectsFile)
+			{
+				try
+				{
+					rejects.write("line " + line + ": " + reason + ": " + record.replace('\n', ' '));
+					rejects.write(System.lineSeparator());
+				}
+				catch (IOException e)
+				{
+					System.out.println(e);
+				}
+			}
+		}
+
+		private void fail(String message)
+		{
+			if (error == null)
+			{
+				error = message;
+			}
+		}
+
+		private Thread start(Runnable work, String name)
+		{
+			Thread t = new Thread(work, name);
+			t.setDaemon(true);
+			t.start();
+			return t;
+		}
+	}
+
+	private static <T> void put(BlockingQueue<T> queue, T item, int times)
+	{
+		for (int i = 0; i < times; i++)
+		{
+			try
+			{
+				queue.put(item);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private static void join(Thread t)
+	{
+		try
+		{
+			t.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static String key(String name)
+	{
+		return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+	}
+
+	private static int quotes(CharSequence s)
+	{
+		int n = 0;
+		for (int i = 0; i < s.length(); i++)
+		{
+			if (s.charAt(i) == '"')
+			{
+				n++;
+			}
+		}
+		return n;
+	}
+
+	static Garment fromCsv(String record, int[] columns)
+	{
+		List<String> cells = splitCsv(record);
+		return garment(cell(cells, columns[0]), cell(cells, columns[1]), cell(cells, columns[2]));
+	}
+
+	private static String cell(List<String> cells, int index)
+	{
+		return index >= 0 && index < cells.size() ? cells.get(index) : null;
+	}
+
+	/*
+	 * RFC 4180 fields: commas inside double quotes, "" for a quote.
+	 */
+	static List<String> splitCsv(String record)
+	{
+		List<String> cells = new ArrayList<String>(4);
+		StringBuilder cell = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < record.length(); i++)
+		{
+			char c = record.charAt(i);
+			if (quoted)
+			{
+				if (c == '"')
+				{
+					if (i + 1 < record.length() && record.charAt(i + 1) == '"')
+					{
+						cell.append('"');
+						i++;
+					}
+					else
+					{
+						quoted = false;
+					}
+				}
+				else
+				{
+					cell.append(c);
+				}
+			}
+			else if (c == '"')
+			{
+				quoted = true;
+			}
+			else if (c == ',')
+			{
+				cells.add(cell.toString());
+				cell.setLength(0);
+			}
+			else
+			{
+				cell.append(c);
+			}
+		}
+		cells.add(cell.toString());
+		return cells;
+	}
+
+	static Garment fromJson(String record)
+	{
+		Map<String, String> fields = Json.parseObject(record);
+		return garment(fields.get("garName"), fields.get("garType"), fields.get("garPrice"));
+	}
+
+	/*
+	 * Validates one row; the exception message becomes the reject reason.
+	 */
+	private static Garment garment(String name, String type, String price)
+	{
+		name = name != null ? name.trim() : "";
+		type = type != null ? type.trim() : "";
+		if (name.isEmpty())
+		{
+			throw new IllegalArgumentException("missing garName");
+		}
+		if (name.length() > MAX_NAME)
+		{
+			throw new IllegalArgumentException("garName longer than " + MAX_NAME);
+		}
+		if (type.isEmpty())
+		{
+			throw new IllegalArgumentException("missing garType");
+		}
+		if (type.length() > MAX_TYPE)
+		{
+			throw new IllegalArgumentException("garType longer than " + MAX_TYPE);
+		}
+		int p;
+		try
+		{
+			p = Integer.parseInt(price != null ? price.trim() : "");
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException("garPrice is not a whole number");
+		}
+		if (p <= 0)
+		{
+			throw new IllegalArgumentException("garPrice must be positive");
+		}
+		Garment g = new Garment();
+		g.setGarName(name);
+		g.setGarType(type);
+		g.setGarPrice(p);
+		return g;
+	}
+
+}
@@ -0,0 +1,563 @@
+package com.purva.daoimpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import com.purva.pojo.CatalogQuery;
+import com.purva.pojo.CatalogResult;
+import com.purva.pojo.Garment;
+
+
+/*
+ * In-memory search index over the catalog.
+ * garName is split into lower-case words. Each word maps to a BitSet of
+ * garIds, and the words are kept in a TreeMap so a prefix is one subMap
+ * range. A query word with no exact or prefix match falls back to words
+ * within edit distance 1 (2 for words of 8+ letters), where swapping two
+ * neighbouring letters counts as one edit.
+ * Filters are BitSet ANDs. Facet counts take one pass over the matches,
+ * bucketing by type and price band; each facet is counted with every filter
+ * except its own, so a UI can show what choosing another value would give.
+ * Reads share a read lock; put and remove take the write lock briefly.
+ * Returned garments are shared and must not be modified.
+ */
+public class CatalogIndex {
+
+	private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private final int[] bandFloors;
+	private final String[] bandLabels;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Integer, Garment> docs = new HashMap<Integer, Garment>();
+	private final TreeMap<String, Posting> words = new TreeMap<String, Posting>();
+	private final Map<String, BitSet> types = new HashMap<String, BitSet>();
+	private final Map<String, String> typeNames = new TreeMap<String, String>();
+	private final Map<String, Integer> typeOrdinals = new HashMap<String, Integer>();
+	private final List<String> typeKeys = new ArrayList<String>();
+	private final BitSet all = new BitSet();
+	private int[] prices = new int[1024];
+	private int[] typeOf = new int[1024];
+	// Flat copy of the words for the fuzzy scan; rebuilt on first fuzzy lookup after a change.
+	private volatile Lexicon lexicon;
+
+	private static class Posting
+	{
+		final BitSet ids = new BitSet();
+		final long chars;
+
+		Posting(String word)
+		{
+			chars = charMask(word);
+		}
+	}
+
+	private static class Lexicon
+	{
+		final String[] words;
+		final long[] chars;
+		final BitSet[] ids;
+
+		Lexicon(TreeMap<String, Posting> postings)
+		{
+			int n = postings.size();
+			words = new String[n];
+			chars = new long[n];
+			ids = new BitSet[n];
+			int i = 0;
+			for (Map.Entry<String, Posting> e : postings.entrySet())
+			{
+				words[i] = e.getKey();
+				chars[i] = e.getValue().chars;
+				ids[i++] = e.getValue().ids;
+			}
+		}
+	}
+
+	/*
+	 * bandFloors are the ascending lower bounds of the price bands, e.g.
+	 * {0, 500, 1000} gives "0-499", "500-999" and "1000+".
+	 */
+	public CatalogIndex(int[] bandFloors)
+	{
+		this.bandFloors = bandFloors.clone();
+		this.bandLabels = new String[bandFloors.length];
+		for (int i = 0; i < bandFloors.length; i++)
+		{
+			bandLabels[i] = i + 1 < bandFloors.length ? bandFloors[i] + "-" + (bandFloors[i + 1] - 1) : bandFloors[i] + "+";
+		}
+	}
+
+	// An empty index with the same price bands, to be filled and swapped in for this one.
+	CatalogIndex emptyCopy()
+	{
+		return new CatalogIndex(bandFloors);
+	}
+
+	public CatalogIndex()
+	{
+		this(Arrays.stream(System.getProperty("catalog.priceBands", "0,500,1000,2000,5000").split(","))
+				.mapToInt(b -> Integer.parseInt(b.trim())).toArray());
+	}
+
+	static List<String> words(String text)
+	{
+		List<String> out = new ArrayList<String>();
+		if (text != null)
+		{
+			for (String w : NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+			{
+				if (!w.isEmpty())
+				{
+					out.add(w);
+				}
+			}
+		}
+		return out;
+	}
+
+	private static String typeKey(String garType)
+	{
+		return garType == null ? "" : garType.trim().toLowerCase(Locale.ROOT);
+	}
+
+	private int band(int price)
+	{
+		int b = 0;
+		while (b + 1 < bandFloors.length && price >= bandFloors[b + 1])
+		{
+			b++;
+		}
+		return b;
+	}
+
+	/*
+	 * Adds the garment, replacing any earlier version with the same id.
+	 */
+	public void put(Garment g)
+	{
+		Garment copy = new Garment();
+		copy.setGarId(g.getGarId());
+		copy.setGarName(g.getGarName());
+		copy.setGarType(g.getGarType());
+		copy.setGarPrice(g.getGarPrice());
+		int id = copy.getGarId();
+		lock.writeLock().lock();
+		try
+		{
+			unindex(id);
+			docs.put(id, copy);
+			all.set(id);
+			for (String w : words(copy.getGarName()))
+			{
+				if (!words.containsKey(w))
+				{
+					words.put(w, new Posting(w));
+					lexicon = null;
+				}
+				words.get(w).ids.set(id);
+			}
+			String type = typeKey(copy.getGarType());
+			types.computeIfAbsent(type, k -> new BitSet()).set(id);
+			typeNames.putIfAbsent(type, copy.getGarType() == null ? "" : copy.getGarType().trim());
+			if (id >= prices.length)
+			{
+				prices = Arrays.copyOf(prices, Math.max(id + 1, prices.length * 2));
+				typeOf = Arrays.copyOf(typeOf, prices.length);
+			}
+			prices[id] = copy.getGarPrice();
+			typeOf[id] = typeOrdinals.computeIfAbsent(type, k -> {
+				typeKeys.add(k);
+				return typeKeys.size() - 1;
+			});
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(int garId)
+	{
+		lock.writeLock().lock();
+		try
+		{
+			unindex(garId);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void clear()
+	{
+		lock.writeLock().lock();
+		try
+		{
+			docs.clear();
+			words.clear();
+			lexicon = null;
+			types.clear();
+			typeNames.clear();
+			typeOrdinals.clear();
+			typeKeys.clear();
+			all.clear();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void unindex(int id)
+	{
+		Garment old = docs.remove(id);
+		if (old == null)
+		{
+			return;
+		}
+		all.clear(id);
+		for (String w : words(old.getGarName()))
+		{
+			Posting p = words.get(w);
+			if (p != null)
+			{
+				p.ids.clear(id);
+				if (p.ids.isEmpty())
+				{
+					words.remove(w);
+					lexicon = null;
+				}
+			}
+		}
+		String type = typeKey(old.getGarType());
+		BitSet ids = types.get(type);
+		if (ids != null)
+		{
+			ids.clear(id);
+			if (ids.isEmpty())
+			{
+				types.remove(type);
+				typeNames.remove(type);
+			}
+		}
+	}
+
+	public int size()
+	{
+		lock.readLock().lock();
+		try
+		{
+			return docs.size();
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	public CatalogResult search(CatalogQuery q)
+	{
+		lock.readLock().lock();
+		try
+		{
+			BitSet text = (BitSet) all.clone();
+			for (String w : words(q.getText()))
+			{
+				text.and(match(w));
+			}
+			BitSet type = q.getGarType() == null ? null : types.getOrDefault(typeKey(q.getGarType()), new BitSet());
+			BitSet price = priceFilter(text, q.getMinPrice(), q.getMaxPrice());
+
+			// One pass over the matches per facet, bucketing each garment by its type or price band.
+			BitSet forTypes = (BitSet) text.clone();
+			if (price != null)
+			{
+				forTypes.and(price);
+			}
+			int[] perType = new int[typeKeys.size()];
+			for (int id = forTypes.nextSetBit(0); id >= 0; id = forTypes.nextSetBit(id + 1))
+			{
+				perType[typeOf[id]]++;
+			}
+			Map<String, Integer> typeCounts = new LinkedHashMap<String, Integer>();
+			for (Map.Entry<String, String> t : typeNames.entrySet())
+			{
+				int n = perType[typeOrdinals.get(t.getKey())];
+				if (n > 0)
+				{
+					typeCounts.put(t.getValue(), n);
+				}
+			}
+
+			BitSet forBands = (BitSet) text.clone();
+			if (type != null)
+			{
+				forBands.and(type);
+			}
+			int[] perBand = new int[bandFloors.length];
+			for (int id = forBands.nextSetBit(0); id >= 0; id = forBands.nextSetBit(id + 1))
+			{
+				perBand[band(prices[id])]++;
+			}
+			Map<String, Integer> bandCounts = new LinkedHashMap<String, Integer>();
+			for (int i = 0; i < perBand.length; i++)
+			{
+				if (perBand[i] > 0)
+				{
+					bandCounts.put(bandLabels[i], perBand[i]);
+				}
+			}
+
+			BitSet hits = forTypes;
+			if (type != null)
+			{
+				hits.and(type);
+			}
+
+			CatalogResult result = new CatalogResult();
+			result.setTotal(hits.cardinality());
+			result.setGarments(page(hits, q));
+			result.setTypeCounts(typeCounts);
+			result.setPriceBandCounts(bandCounts);
+			return result;
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	private BitSet match(String word)
+	{
+		BitSet ids = new BitSet();
+		for (Posting prefixed : words.subMap(word, true, word + Character.MAX_VALUE, true).values())
+		{
+			ids.or(prefixed.ids);
+		}
+		if (ids.isEmpty() && word.length() >= 3)
+		{
+			int maxEdits = word.length() >= 8 ? 2 : 1;
+			long chars = charMask(word);
+			Lexicon lex = lexicon();
+			for (int i = 0; i < lex.words.length; i++)
+			{
+				// Each edit adds or drops at most one distinct character, which rules out most words cheaply.
+				if (Long.bitCount(chars & ~lex.chars[i]) <= maxEdits && Long.bitCount(lex.chars[i] & ~chars) <= maxEdits
+						&& Math.abs(lex.words[i].length() - word.length()) <= maxEdits
+						&& withinEdits(word, lex.words[i], maxEdits))
+				{
+					ids.or(lex.ids[i]);
+				}
+			}
+		}
+		return ids;
+	}
+
+	// Called under the read lock, so the words cannot change while the copy is made.
+	private Lexicon lexicon()
+	{
+		Lexicon lex = lexicon;
+		if (lex == null)
+		{
+			lex = new Lexicon(words);
+			lexicon = lex;
+		}
+		return lex;
+	}
+
+	private static long charMask(String word)
+	{
+		long mask = 0;
+		for (int i = 0; i < word.length(); i++)
+		{
+			mask |= 1L << (word.charAt(i) & 63);
+		}
+		return mask;
+	}
+
+	/*
+	 * Edit distance <= max, counting a swap of two neighbouring letters as one
+	 * edit (optimal string alignment). Gives up as soon as a whole row exceeds max.
+	 */
+	static boolean withinEdits(String a, String b, int max)
+	{
+		int[] prev2 = new int[b.length() + 1];
+		int[] prev = new int[b.length() + 1];
+		int[] cur = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++)
+		{
+			prev[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++)
+		{
+			cur[0] = i;
+			int rowMin = cur[0];
+			for (int j = 1; j <= b.length(); j++)
+			{
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1))
+				{
+					cur[j] = Math.min(cur[j], prev2[j - 2] + 1);
+				}
+				rowMin = Math.min(rowMin, cur[j]);
+			}
+			if (rowMin > max)
+			{
+				return false;
+			}
+			int[] t = prev2;
+			prev2 = prev;
+			prev = cur;
+			cur = t;
+		}
+		return prev[b.length()] <= max;
+	}
+
+	private BitSet priceFilter(BitSet candidates, int min, int max)
+	{
+		if (min <= 0 && max == Integer.MAX_VALUE)
+		{
+			return null;
+		}
+		BitSet ok = new BitSet();
+		for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1))
+		{
+			if (prices[id] >= min && prices[id] <= max)
+			{
+				ok.set(id);
+			}
+		}
+		return ok;
+	}
+
+	private List<Garment> page(BitSet hits, CatalogQuery q)
+	{
+		int n = hits.cardinality();
+		int want = (int) Math.min(n, (long) q.getOffset() + q.getLimit());
+		List<Garment> out = new ArrayList<Garment>(Math.max(0, want - q.getOffset()));
+		if (q.getSort() == CatalogQuery.Sort.GAR_ID)
+		{
+			int i = 0;
+			for (int id = hits.nextSetBit(0); id >= 0 && i < want; id = hits.nextSetBit(id + 1), i++)
+			{
+				if (i >= q.getOffset())
+				{
+					out.add(docs.get(id));
+				}
+			}
+			return out;
+		}
+		boolean desc = q.getSort() == CatalogQuery.Sort.PRICE_DESC;
+		// Price in the high half, id in the low half: ordering the longs orders by price, then id.
+		// Only the first offset+limit are needed, so keep them in a bounded heap instead of sorting everything.
+		LongHeap top = new LongHeap(want, desc);
+		for (int id = hits.nextSetBit(0); id >= 0; id = hits.nextSetBit(id + 1))
+		{
+			top.offer(((long) prices[id] << 32) | id);
+		}
+		long[] keys = top.sorted();
+		for (int i = q.getOffset(); i < keys.length; i++)
+		{
+			out.add(docs.get((int) keys[i]));
+		}
+		return out;
+	}
+
+	/*
+	 * Keeps the k best longs seen: smallest, or largest when descending.
+	 */
+	private static class LongHeap
+	{
+		private final long[] heap;
+		private final boolean desc;
+		private int size;
+
+		LongHeap(int k, boolean desc)
+		{
+			this.heap = new long[k];
+			this.desc = desc;
+		}
+
+		// True if a belongs further from the top of the heap than b, i.e. is a better result.
+		private boolean better(long a, long b)
+		{
+			return desc ? a > b : a < b;
+		}
+
+		void offer(long v)
+		{
+			if (heap.length == 0)
+			{
+				return;
+			}
+			if (size < heap.length)
+			{
+				int i = size++;
+				heap[i] = v;
+				while (i > 0 && better(heap[(i - 1) / 2], heap[i]))
+				{
+					swap(i, (i - 1) / 2);
+					i = (i - 1) / 2;
+				}
+			}
+			else if (better(v, heap[0]))
+			{
+				heap[0] = v;
+				int i = 0;
+				for (;;)
+				{
+					int worst = i, l = 2 * i + 1, r = l + 1;
+					if (l < size && better(heap[worst], heap[l]))
+					{
+						worst = l;
+					}
+					if (r < size && better(heap[worst], heap[r]))
+					{
+						worst = r;
+					}
+					if (worst == i)
+					{
+						break;
+					}
+					swap(i, worst);
+					i = worst;
+				}
+			}
+		}
+
+		private void swap(int i, int j)
+		{
+			long t = heap[i];
+			heap[i] = heap[j];
+			heap[j] = t;
+		}
+
+		long[] sorted()
+		{
+			long[] out = Arrays.copyOf(heap, size);
+			Arrays.sort(out);
+			if (desc)
+			{
+				for (int i = 0, j = out.length - 1; i < j; i++, j--)
+				{
+					long t = out[i];
+					out[i] = out[j];
+					out[j] = t;
+				}
+			}
+			return out;
+		}
+	}
+
+}
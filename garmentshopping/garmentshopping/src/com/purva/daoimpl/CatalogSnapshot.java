@@ -0,0 +1,289 @@
+package com.purva.daoimpl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+
+import com.purva.pojo.Garment;
+
+
+/*
+ * The whole catalog in one compact binary file, memory-mapped read-only.
+ *
+ * Layout (big-endian):
+ *   header  magic "GSNP", format int, writtenAt long (epoch millis),
+ *           checksum long (CRC32 of everything after the header), count int
+ *   index   count x (garId int, offset int), sorted by garId
+ *   rows    garPrice int, garName (length short, UTF-8), garType (length short, UTF-8);
+ *           a null name or type is stored as empty
+ *
+ * Rows are decoded only when asked for: displayGarId is a binary search of
+ * the index plus one row, so a fresh process serves reads as soon as the
+ * file is mapped, straight from the page cache. The checksum doubles as
+ * the content version: two snapshots of the same rows have the same one.
+ *
+ * write() goes through a temp file and an atomic rename, so a reader
+ * never sees a half-written snapshot, and processes that still map the
+ * old file keep reading it.
+ */
+public class CatalogSnapshot {
+
+	private static final int MAGIC = 0x47534E50;
+	private static final int FORMAT = 1;
+	private static final int HEADER = 4 + 4 + 8 + 8 + 4;
+	private static final int INDEX_ENTRY = 8;
+
+	private final ByteBuffer buffer;
+	private final long writtenAt;
+	private final long checksum;
+	private final int count;
+	private final List<Garment> garments;
+
+	private CatalogSnapshot(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+		this.writtenAt = buffer.getLong(8);
+		this.checksum = buffer.getLong(16);
+		this.count = buffer.getInt(24);
+		this.garments = new View();
+	}
+
+	// Decodes row i on every get, so callers may keep or change what they are given.
+	private class View extends AbstractList<Garment> implements RandomAccess
+	{
+		@Override
+		public Garment get(int i)
+		{
+			if (i < 0 || i >= count)
+			{
+				throw new IndexOutOfBoundsException(i);
+			}
+			return row(i);
+		}
+
+		@Override
+		public int size()
+		{
+			return count;
+		}
+	}
+
+	/*
+	 * Maps the snapshot at file. Returns null when there is none, or when it
+	 * is unreadable, of another format or fails its checksum.
+	 */
+	public static CatalogSnapshot open(Path file)
+	{
+		if (!Files.isRegularFile(file))
+		{
+			return null;
+		}
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			long size = ch.size();
+			if (size < HEADER || size > Integer.MAX_VALUE)
+			{
+				System.out.println("Catalog snapshot " + file + " has a bad size: " + size);
+				return null;
+			}
+			// The mapping stays valid after the channel is closed.
+			MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (map.getInt(0) != MAGIC || map.getInt(4) != FORMAT)
+			{
+				System.out.println("Catalog snapshot " + file + " is not in format " + FORMAT);
+				return null;
+			}
+			int count = map.getInt(24);
+			if (count < 0 || HEADER + (long) count * INDEX_ENTRY > size)
+			{
+				System.out.println("Catalog snapshot " + file + " is truncated");
+				return null;
+			}
+			if (crc(map, HEADER, (int) size) != map.getLong(16))
+			{
+				System.out.println("Catalog snapshot " + file + " fails its checksum");
+				return null;
+			}
+			return new CatalogSnapshot(map);
+		}
+		catch (IOException e)
+		{
+			System.out.println(e);
+			return null;
+		}
+	}
+
+	/*
+	 * Writes garments as the snapshot at file, replacing any previous one,
+	 * and returns the content checksum.
+	 */
+	public static long write(Path file, List<Garment> garments) throws IOException
+	{
+		ByteBuffer buf = encode(garments);
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			while (buf.hasRemaining())
+			{
+				ch.write(buf);
+			}
+			ch.force(true);
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return buf.getLong(16);
+	}
+
+	/*
+	 * Checksum the snapshot of garments would have, for telling whether
+	 * the database still matches a file without rewriting it.
+	 */
+	public static long checksum(List<Garment> garments)
+	{
+		return encode(garments).getLong(16);
+	}
+
+	private static ByteBuffer encode(List<Garment> garments)
+	{
+		List<Garment> sorted = new ArrayList<Garment>(garments);
+		sorted.sort(Comparator.comparingInt(Garment::getGarId));
+		int n = sorted.size();
+		byte[][] names = new byte[n][];
+		byte[][] types = new byte[n][];
+		long size = HEADER + (long) n * INDEX_ENTRY;
+		for (int i = 0; i < n; i++)
+		{
+			names[i] = utf8(sorted.get(i).getGarName());
+			types[i] = utf8(sorted.get(i).getGarType());
+			size += 4 + 2 + names[i].length + 2 + types[i].length;
+		}
+		if (size > Integer.MAX_VALUE)
+		{
+			throw new IllegalStateException("Catalog too large for one snapshot: " + size + " bytes");
+		}
+		ByteBuffer buf = ByteBuffer.allocate((int) size);
+		buf.putInt(MAGIC).putInt(FORMAT).putLong(System.currentTimeMillis()).putLong(0).putInt(n);
+		int offset = HEADER + n * INDEX_ENTRY;
+		for (int i = 0; i < n; i++)
+		{
+			buf.putInt(sorted.get(i).getGarId()).putInt(offset);
+			offset += 4 + 2 + names[i].length + 2 + types[i].length;
+		}
+		for (int i = 0; i < n; i++)
+		{
+			buf.putInt(sorted.get(i).getGarPrice());
+			buf.putShort((short) names[i].length).put(names[i]);
+			buf.putShort((short) types[i].length).put(types[i]);
+		}
+		buf.putLong(16, crc(buf, HEADER, buf.capacity()));
+		buf.flip();
+		return buf;
+	}
+
+	private static byte[] utf8(String s)
+	{
+		if (s == null)
+		{
+			return new byte[0];
+		}
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		if (b.length > Short.MAX_VALUE)
+		{
+			throw new IllegalStateException("Garment text too long for a snapshot: " + b.length + " bytes");
+		}
+		return b;
+	}
+
+	private static long crc(ByteBuffer buf, int from, int to)
+	{
+		CRC32 crc = new CRC32();
+		ByteBuffer part = buf.duplicate();
+		part.limit(to).position(from);
+		crc.update(part);
+		return crc.getValue();
+	}
+
+	/*
+	 * The garment with this id, or null if the snapshot has none.
+	 */
+	public Garment get(int garId)
+	{
+		int lo = 0, hi = count - 1;
+		while (lo <= hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			int id = buffer.getInt(HEADER + mid * INDEX_ENTRY);
+			if (id < garId)
+			{
+				lo = mid + 1;
+			}
+			else if (id > garId)
+			{
+				hi = mid - 1;
+			}
+			else
+			{
+				return row(mid);
+			}
+		}
+		return null;
+	}
+
+	private Garment row(int i)
+	{
+		int entry = HEADER + i * INDEX_ENTRY;
+		int at = buffer.getInt(entry + 4);
+		Garment g = new Garment();
+		g.setGarId(buffer.getInt(entry));
+		g.setGarPrice(buffer.getInt(at));
+		at += 4;
+		int len = buffer.getShort(at);
+		g.setGarName(string(at + 2, len));
+		at += 2 + len;
+		g.setGarType(string(at + 2, buffer.getShort(at)));
+		return g;
+	}
+
+	private String string(int at, int len)
+	{
+		byte[] b = new byte[len];
+		buffer.get(at, b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	/*
+	 * Every garment in garId order, decoded as it is read.
+	 */
+	public List<Garment> garments()
+	{
+		return garments;
+	}
+
+	public int size()
+	{
+		return count;
+	}
+
+	public long getWrittenAt()
+	{
+		return writtenAt;
+	}
+
+	public long getChecksum()
+	{
+		return checksum;
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.purva.daoimpl;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.purva.pojo.Cart;
+import com.purva.pojo.CartSummary;
+import com.purva.pojo.CheckoutPage;
+import com.purva.pojo.Customer;
+import com.purva.pojo.Garment;
+import com.purva.utility.QueryMetrics;
+
+
+/*
+ * Loads everything the checkout page shows with the four lookups in flight
+ * at once, so the page waits for the slowest one instead of their sum.
+ */
+public class CheckoutPageLoader {
+
+	private final AsyncCustomerDao customers;
+	private final AsyncCartDao carts;
+	private final AsyncGarDao garments;
+
+	public CheckoutPageLoader(AsyncCustomerDao customers, AsyncCartDao carts, AsyncGarDao garments)
+	{
+		this.customers = customers;
+		this.carts = carts;
+		this.garments = garments;
+	}
+
+	public CheckoutPageLoader(CustomerDao customers, CartDao carts, GarDao garments)
+	{
+		this(new AsyncCustomerDao(customers), new AsyncCartDao(carts), new AsyncGarDao(garments));
+	}
+
+	public CompletableFuture<CheckoutPage> load(String custEmailId)
+	{
+		QueryMetrics.Scope scope = QueryMetrics.newScope("checkout page");
+		QueryMetrics.Scope previous = QueryMetrics.attach(scope);
+		CompletableFuture<Customer> customer;
+		CompletableFuture<List<Cart>> lines;
+		CompletableFuture<CartSummary> summary;
+		CompletableFuture<List<Garment>> catalog;
+		try
+		{
+			customer = customers.findByEmail(custEmailId);
+			lines = carts.showCart(custEmailId);
+			summary = carts.cartSummary(custEmailId);
+			catalog = garments.displayAllGar();
+		}
+		finally
+		{
+			QueryMetrics.attach(previous);
+		}
+		CompletableFuture<Void> all = CompletableFuture.allOf(customer, lines, summary, catalog);
+		all.whenComplete((v, e) -> scope.close());
+		return all.thenApply(v -> {
+			CheckoutPage page = new CheckoutPage();
+			page.setCustomer(customer.join());
+			page.setCartLines(lines.join());
+			page.setCartSummary(summary.join());
+			page.setCatalog(catalog.join());
+			return page;
+		});
+	}
+
+}
@@ -1,6 +1,8 @@
 package com.purva.daoimpl;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import com.purva.pojo.Customer;
 
@@ -10,6 +12,13 @@ public interface CustomerDao {
 	boolean updateCustomer(Customer g);
     boolean	deleteCustomer(int CustId);
 	Customer displayCustId(int CustId);
+	Customer findByEmail(String custEmailId);
 	List<Customer> displayAllCustomer();
 
+	int[] addCustomers(List<Customer> customers);
+
+	List<Customer> displayCustomerPage(int afterCustId, int limit);
+	void forEachCustomer(Consumer<Customer> action);
+	Stream<Customer> streamAllCustomer();
+
 }
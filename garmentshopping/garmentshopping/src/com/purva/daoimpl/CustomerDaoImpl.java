@@ -6,93 +6,108 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import com.purva.pojo.Customer;
+import com.purva.utility.BatchExecutor;
 import com.purva.utility.DBUtility;
+import com.purva.utility.QueryStreams;
+import com.purva.utility.Schema;
 
 
 
-public class CustomerDaoImpl {
-	Connection con=null;
-	PreparedStatement ps=null;
-	int rows;
-	String query;
-	
-	public boolean addCustomer(Customer g) {
-		con= DBUtility.establishConnection();
-		query="insert into Customer_21828(custName, custAddr, custCont,custEmailId, custPassword) "
-				+ "values(?,?,?,?,?)";
-		
-		try {
-			
-		ps=con.prepareStatement(query);
-		ps.setString(1, g.getCustName());
-		ps.setString(2, g.getCustAddr());
-		ps.setInt(3, g.getCustCont());
-		ps.setString(4, g.getCustEmailId());
-		ps.setString(5, g.getPassword());
-		
-		rows=ps.executeUpdate();
-		if(rows>0) 
-		{
-			return true;
-		}
+/*
+ * Stateless: every method works on its own connection and statement,
+ * so one instance can be shared across threads.
+ */
+public class CustomerDaoImpl implements CustomerDao {
+
+	private static final String INSERT_CUSTOMER="insert into "+Schema.CUSTOMER+"(custName, custAddr, custCont,custEmailId, custPassword) "
+			+ "values(?,?,?,?,?)";
+	private static final String UPDATE_CUSTOMER="Update "+Schema.CUSTOMER+" set custName=?, custAddr=?, custCont=?,custEmailId=?, custPassword=? where custId=?";
+	private static final String DELETE_CUSTOMER="Delete From "+Schema.CUSTOMER+" where custId=?";
+	// Bulk scans never need the password column.
+	private static final String PUBLIC_COLUMNS="custId, custName, custAddr, custCont, custEmailId";
+	private static final String SELECT_CUSTOMER_BY_ID="select "+PUBLIC_COLUMNS+", custPassword from "+Schema.CUSTOMER+" where custId=?";
+	private static final String SELECT_CUSTOMER_BY_EMAIL="select "+PUBLIC_COLUMNS+", custPassword from "+Schema.CUSTOMER+" where custEmailId=?";
+	private static final String SELECT_ALL_CUSTOMER="select "+PUBLIC_COLUMNS+" from "+Schema.CUSTOMER;
+	private static final String SELECT_CUSTOMER_PAGE="select "+PUBLIC_COLUMNS+" from "+Schema.CUSTOMER+" "
+			+ "where custId>? order by custId limit ?";
+
+	private static final QueryStreams.RowReader<Customer> READ_CUSTOMER_BY_ID=RowMappers.CUSTOMER.reader();
+	private static final QueryStreams.RowReader<Customer> READ_CUSTOMER_BY_EMAIL=RowMappers.CUSTOMER.reader();
+	private static final QueryStreams.RowReader<Customer> READ_ALL_CUSTOMER=RowMappers.CUSTOMER.reader();
+	private static final QueryStreams.RowReader<Customer> READ_CUSTOMER_PAGE=RowMappers.CUSTOMER.reader();
+
+	private final int batchSize;
+
+	public CustomerDaoImpl()
+	{
+		this(BatchExecutor.DEFAULT_BATCH_SIZE);
 	}
-	catch (SQLException e)
+
+	public CustomerDaoImpl(int batchSize)
 	{
-		System.out.println(e);
-		e.printStackTrace();
+		this.batchSize=BatchExecutor.checkBatchSize(batchSize);
 	}
+
+	@Override
+	public boolean addCustomer(Customer g) {
+		try (Connection con= DBUtility.establishConnection(g.getCustEmailId());
+				PreparedStatement ps=con.prepareStatement(INSERT_CUSTOMER))
+		{
+			ps.setString(1, g.getCustName());
+			ps.setString(2, g.getCustAddr());
+			ps.setInt(3, g.getCustCont());
+			ps.setString(4, g.getCustEmailId());
+			ps.setString(5, g.getPassword());
+
+			return ps.executeUpdate()>0;
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
 		return false;
 	}
 
 
+	@Override
 	public boolean updateCustomer(Customer g) {
-		
-		con= DBUtility.establishConnection();
-		query="Update Customer_21828 set custName=?, custAddr=?, custCont=?,custEmailId=?, custPassword=? where custId=?";
-		
-		try {
-			
-		ps=con.prepareStatement(query);
-		ps.setString(1, g.getCustName());
-		ps.setString(2, g.getCustAddr());
-		ps.setInt(3, g.getCustCont());
-		ps.setString(4, g.getCustEmailId());
-		ps.setString(5, g.getPassword());
-		ps.setInt(6, g.getCustId());
-		
-		rows=ps.executeUpdate();
-		if(rows>0) 
-		{
-			return true;
+		try (Connection con= DBUtility.establishConnection(g.getCustEmailId());
+				PreparedStatement ps=con.prepareStatement(UPDATE_CUSTOMER))
+		{
+			ps.setString(1, g.getCustName());
+			ps.setString(2, g.getCustAddr());
+			ps.setInt(3, g.getCustCont());
+			ps.setString(4, g.getCustEmailId());
+			ps.setString(5, g.getPassword());
+			ps.setInt(6, g.getCustId());
+
+			return ps.executeUpdate()>0;
 		}
-	}
-	catch (SQLException e)
-	{
-		System.out.println(e);
-		e.printStackTrace();
-	}
-		return false;
+		catch (SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
 		}
+		return false;
+	}
 
-	
-	
-	
-	
+
+
+
+
+	@Override
 	public boolean deleteCustomer(int CustId) {
-		con=DBUtility.establishConnection();
-		query="Delete From Customer_21828 where custId=?";
-		
-		try {
-			ps=con.prepareStatement(query);
-		ps.setInt(1,CustId);
-		
-		rows=ps.executeUpdate();
-		if(rows>0)
+		try (Connection con=DBUtility.establishConnection(null);
+				PreparedStatement ps=con.prepareStatement(DELETE_CUSTOMER))
 		{
-			return true;
-		}
+			ps.setInt(1,CustId);
+
+			return ps.executeUpdate()>0;
 		}
 		catch(SQLException e)
 		{
@@ -101,36 +116,48 @@ public class CustomerDaoImpl {
 		return false;
 	}
 
-	
-	
-	
-	
-	
+
+
+
+
+
+	@Override
 	public Customer displayCustId(int CustId) {
-		
-		ResultSet rs=null;
-		con=DBUtility.establishConnection();
-		query="Select * from Customer_21828 where custId=?";
-		
-		try
+		try (Connection con=DBUtility.establishReadConnection(null);
+				PreparedStatement ps=con.prepareStatement(SELECT_CUSTOMER_BY_ID))
 		{
-			ps=con.prepareStatement(query);
 			ps.setInt(1,CustId);
-			
-			rs=ps.executeQuery();
-			
-		while(rs.next())
-		{
-			Customer ct=new Customer();
-			ct.setCustId(rs.getInt(1));
-			ct.setCustName(rs.getString(2));
-			ct.setCustAddr(rs.getString(3));
-			ct.setCustCont(rs.getInt(4));
-			ct.setCustEmailId(rs.getString(5));
-			ct.setPassword(rs.getString(6));
-
-		return ct;
+
+			try (ResultSet rs=ps.executeQuery())
+			{
+				if(rs.next())
+				{
+					return READ_CUSTOMER_BY_ID.read(rs);
+				}
+			}
+		}
+		catch(SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		return null;
 	}
+
+	@Override
+	public Customer findByEmail(String custEmailId) {
+		try (Connection con=DBUtility.establishReadConnection(custEmailId);
+				PreparedStatement ps=con.prepareStatement(SELECT_CUSTOMER_BY_EMAIL))
+		{
+			ps.setString(1,custEmailId);
+
+			try (ResultSet rs=ps.executeQuery())
+			{
+				if(rs.next())
+				{
+					return READ_CUSTOMER_BY_EMAIL.read(rs);
+				}
+			}
 		}
 		catch(SQLException e)
 		{
@@ -140,38 +167,134 @@ public class CustomerDaoImpl {
 		return null;
 	}
 
-	public List<Customer> displayAllCustomer() 
+	@Override
+	public List<Customer> displayAllCustomer()
 	{
-		con=DBUtility.establishConnection();
-		query="Select * from Customer_21828";
 		List<Customer> CustomerList = new ArrayList<Customer>();
-		try
+		try (Connection con=DBUtility.establishReadConnection(null);
+				PreparedStatement ps=con.prepareStatement(SELECT_ALL_CUSTOMER);
+				ResultSet rs=ps.executeQuery())
 		{
-			ps=con.prepareStatement(query);
-			ResultSet rs=ps.executeQuery();
-			
 			while(rs.next()) {
-				Customer co=new Customer();
-				co.setCustId(rs.getInt(1));
-				co.setCustName(rs.getString(2));
-				co.setCustAddr(rs.getString(3));
-				co.setCustCont(rs.getInt(4));
-				co.setCustEmailId(rs.getString(5));
-				co.setPassword(rs.getString(6));
-				CustomerList.add(co);
+				CustomerList.add(READ_ALL_CUSTOMER.read(rs));
 			}
-			
-		
-		return CustomerList;
+
+			return CustomerList;
+		}
+		catch(SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		return null;
 	}
 
+	/*
+	 * Inserts all customers in chunks of batchSize, one transaction per chunk.
+	 * Generated ids are set on the customers and returned in the same order.
+	 * If a chunk fails null is returned, but the customers of the chunks
+	 * committed before it still get their ids; the others get 0.
+	 */
+	@Override
+	public int[] addCustomers(List<Customer> customers) {
+		try
+		{
+			int[] ids=BatchExecutor.execute(INSERT_CUSTOMER, customers, batchSize, true, (ps, g) -> {
+				ps.setString(1, g.getCustName());
+				ps.setString(2, g.getCustAddr());
+				ps.setInt(3, g.getCustCont());
+				ps.setString(4, g.getCustEmailId());
+				ps.setString(5, g.getPassword());
+			});
+			setCustIds(customers, ids);
+			return ids;
+		}
+		catch(BatchExecutor.PartialBatchException e)
+		{
+			setCustIds(customers, e.getResults());
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		catch(SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		return null;
+	}
 
-	catch(SQLException e)
+	private static void setCustIds(List<Customer> customers, int[] ids)
 	{
-		System.out.println(e);
-		e.printStackTrace();
+		for(int i=0;i<ids.length;i++)
+		{
+			customers.get(i).setCustId(ids[i]);
+		}
 	}
+
+	/*
+	 * Keyset pagination: pass 0 for the first page, then the last custId of the previous page.
+	 * Passwords are not loaded.
+	 */
+	@Override
+	public List<Customer> displayCustomerPage(int afterCustId, int limit) {
+		if(limit<=0)
+		{
+			if(limit<0)
+			{
+				throw new IllegalArgumentException("limit must not be negative: "+limit);
+			}
+			return new ArrayList<Customer>();
+		}
+		List<Customer> page = new ArrayList<Customer>(limit);
+		try (Connection con=DBUtility.establishReadConnection(null);
+				PreparedStatement ps=con.prepareStatement(SELECT_CUSTOMER_PAGE))
+		{
+			ps.setInt(1, afterCustId);
+			ps.setInt(2, limit);
+			try (ResultSet rs=ps.executeQuery())
+			{
+				while(rs.next())
+				{
+					page.add(READ_CUSTOMER_PAGE.read(rs));
+				}
+			}
+			return page;
+		}
+		catch(SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
 		return null;
 	}
 
+	@Override
+	public void forEachCustomer(Consumer<Customer> action) {
+		try
+		{
+			QueryStreams.forEach(SELECT_ALL_CUSTOMER, READ_ALL_CUSTOMER, action);
+		}
+		catch(SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+	}
+
+	/*
+	 * Streams all customers (without passwords) in constant memory. The stream
+	 * holds a connection until closed, so use it in try-with-resources.
+	 */
+	@Override
+	public Stream<Customer> streamAllCustomer() {
+		try
+		{
+			return QueryStreams.stream(SELECT_ALL_CUSTOMER, READ_ALL_CUSTOMER);
+		}
+		catch(SQLException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
 }
@@ -1,6 +1,8 @@
 package com.purva.daoimpl;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import com.purva.pojo.Garment;
 
@@ -12,4 +14,12 @@ public interface GarDao {
 	Garment displayGarId(int GarId);
 	List<Garment> displayAllGar();
 
+	int[] addGars(List<Garment> garments);
+	int updateGars(List<Garment> garments);
+	int deleteGars(int[] garIds);
+
+	List<Garment> displayGarPage(int afterGarId, int limit);
+	void forEachGar(Consumer<Garment> action);
+	Stream<Garment> streamAllGar();
+
 }
@@ -4,35 +4,69 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import com.purva.pojo.Garment;
+import com.purva.utility.BatchExecutor;
 import com.purva.utility.DBUtility;
+import com.purva.utility.QueryStreams;
+import com.purva.utility.Schema;
 
 
-public class GarDaoImpl {
-	
-	Connection con=null;
-	PreparedStatement ps=null;
-	int rows;
-	String query;
+/*
+ * Stateless: every method works on its own connection and statement,
+ * so one instance can be shared across threads.
+ */
+public class GarDaoImpl implements GarDao {
 
+	private static final String INSERT_GAR="insert into "+Schema.GARMENT+"(garName, garType,garPrice)values(?,?,?)";
+	private static final String UPDATE_GAR="Update "+Schema.GARMENT+" set garName=?, garType=?, garPrice=? where garId=?";
+	private static final String DELETE_GAR="Delete From "+Schema.GARMENT+" where garId=?";
+	private static final String GAR_COLUMNS="garId, garName, garType, garPrice";
+	private static final String SELECT_GAR_BY_ID="select "+GAR_COLUMNS+" from "+Schema.GARMENT+" where garId=?";
+	private static final String SELECT_ALL_GAR="select "+GAR_COLUMNS+" from "+Schema.GARMENT;
+	private static final String SELECT_GAR_PAGE="select "+GAR_COLUMNS+" from "+Schema.GARMENT+" where garId>? order by garId limit ?";
 
+	private static final QueryStreams.RowReader<Garment> READ_GAR_BY_ID=RowMappers.GARMENT.reader();
+	private static final QueryStreams.RowReader<Garment> READ_ALL_GAR=RowMappers.GARMENT.reader();
+	private static final QueryStreams.RowReader<Garment> READ_GAR_PAGE=RowMappers.GARMENT.reader();
+
+	private final int batchSize;
+
+	public GarDaoImpl()
+	{
+		this(BatchExecutor.DEFAULT_BATCH_SIZE);
+	}
+
+	public GarDaoImpl(int batchSize)
+	{
+		this.batchSize=BatchExecutor.checkBatchSize(batchSize);
+	}
+
+		@Override
 		public boolean addGar(Garment g) {
-			con= DBUtility.establishConnection();
-			query="insert into Garment(garName, garType,garPrice)values(?,?,?)";
-			try 
+			try (Connection con=DBUtility.establishConnection(null);
+					PreparedStatement ps=con.prepareStatement(INSERT_GAR, Statement.RETURN_GENERATED_KEYS))
 			{
-				ps= con.prepareStatement(query);
-
 				ps.setString(1, g.getGarName());
 				ps.setString(2, g.getGarType());
 				ps.setInt(3,  g.getGarPrice());
-				
-				rows=ps.executeUpdate();
-				if(rows>0) 
+
+				if(ps.executeUpdate()>0)
 				{
+					try (ResultSet keys=ps.getGeneratedKeys())
+					{
+						if(keys.next())
+						{
+							g.setGarId(keys.getInt(1));
+						}
+					}
 					return true;
 				}
 			}
@@ -41,31 +75,23 @@ public class GarDaoImpl {
 				System.out.println(e);
 				e.printStackTrace();
 			}
-			
-			
 			return false;
 		}
 
-		
-		
+
+
+		@Override
 		public boolean updateGar(Garment g) {
-			con=DBUtility.establishConnection();
-			query="Update Garment set garName=?, garType=?, garPrice=? where garId=?";
-			
-			
-			try {
-				ps=con.prepareStatement(query);
-				
+			try (Connection con=DBUtility.establishConnection(null);
+					PreparedStatement ps=con.prepareStatement(UPDATE_GAR))
+			{
 				ps.setString(1, g.getGarName());
 				ps.setString(2, g.getGarType());
 				ps.setDouble(3, g.getGarPrice());
-				
+
 				ps.setInt(4, g.getGarId());
-				
-				rows=ps.executeUpdate();
-				if(rows>0) {
-					return true;
-				}
+
+				return ps.executeUpdate()>0;
 			}
 			catch(SQLException e) {
 				System.out.println(e);
@@ -74,23 +100,18 @@ public class GarDaoImpl {
 			return false;
 		}
 
-		
-		
 
+
+
+		@Override
 		public boolean deleteGar(int garId) {
-			con=DBUtility.establishConnection();
-			query="Delete From Garment where garId=?";
-			
-			try {
-				ps=con.prepareStatement(query);
-				
+			try (Connection con=DBUtility.establishConnection(null);
+					PreparedStatement ps=con.prepareStatement(DELETE_GAR))
+			{
 				ps.setInt(1,garId);
-			
-			rows=ps.executeUpdate();
-			if(rows>0) {
-				return true;
+
+				return ps.executeUpdate()>0;
 			}
-		}
 			catch(SQLException e)
 			{
 				System.out.println(e);
@@ -99,32 +120,24 @@ public class GarDaoImpl {
 			return false;
 		}
 
-		
 
-		
 
+
+
+		@Override
 		public Garment displayGarId(int garId) {
-			ResultSet rs=null;
-			con=DBUtility.establishConnection();
-			query="Select * from Garment where garId=?";
-			
-			try
+			try (Connection con=DBUtility.establishReadConnection(null);
+					PreparedStatement ps=con.prepareStatement(SELECT_GAR_BY_ID))
 			{
-				ps=con.prepareStatement(query);
 				ps.setInt(1, garId);
-				
-				rs=ps.executeQuery();
-				
-			while(rs.next())
-			{
-				Garment gd=new Garment();
-				gd.setGarId(rs.getInt(1));
-				gd.setGarName(rs.getString(2));
-				gd.setGarType(rs.getString(3));
-				gd.setGarPrice(rs.getInt(4));
-
-			return gd;
-		}
+
+				try (ResultSet rs=ps.executeQuery())
+				{
+					if(rs.next())
+					{
+						return READ_GAR_BY_ID.read(rs);
+					}
+				}
 			}
 			catch(SQLException e)
 			{
@@ -133,37 +146,200 @@ public class GarDaoImpl {
 			}
 			return null;
 		}
-			
-		
+
+
+		@Override
 		public List<Garment> displayAllGar() {
-			con=DBUtility.establishConnection();
-			query="Select * from Garment";
 			List<Garment> garList = new ArrayList<Garment>();
-			try
+			try (Connection con=DBUtility.establishReadConnection(null);
+					PreparedStatement ps=con.prepareStatement(SELECT_ALL_GAR);
+					ResultSet rs=ps.executeQuery())
 			{
-				ps=con.prepareStatement(query);
-				ResultSet rs=ps.executeQuery();
-				
 				while(rs.next()) {
-					Garment gda=new Garment();
-					gda.setGarId(rs.getInt(1));
-					gda.setGarName(rs.getString(2));
-					gda.setGarType(rs.getString(3));
-					gda.setGarPrice(rs.getInt(4));
-					garList.add(gda);
+					garList.add(READ_ALL_GAR.read(rs));
 				}
-				
-			
-			return garList;
+
+				return garList;
+			}
+			catch(SQLException e)
+			{
+				System.out.println(e);
+				e.printStackTrace();
+			}
+			return null;
 		}
 
 
-		catch(SQLException e)
+		/*
+		 * Inserts all garments in chunks of batchSize, one transaction per chunk.
+		 * Generated ids are set on the garments and returned in the same order.
+		 * If a chunk fails null is returned, but the garments of the chunks
+		 * committed before it still get their ids; the others get 0.
+		 */
+		@Override
+		public int[] addGars(List<Garment> garments) {
+			try
+			{
+				int[] ids=BatchExecutor.execute(INSERT_GAR, garments, batchSize, true, (ps, g) -> {
+					ps.setString(1, g.getGarName());
+					ps.setString(2, g.getGarType());
+					ps.setInt(3, g.getGarPrice());
+				});
+				setGarIds(garments, ids);
+				return ids;
+			}
+			catch(BatchExecutor.PartialBatchException e)
+			{
+				setGarIds(garments, e.getResults());
+				System.out.println(e);
+				e.printStackTrace();
+			}
+			catch(SQLException e)
+			{
+				System.out.println(e);
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+
+		private static void setGarIds(List<Garment> garments, int[] ids)
 		{
-			System.out.println(e);
-			e.printStackTrace();
+			for(int i=0;i<ids.length;i++)
+			{
+				garments.get(i).setGarId(ids[i]);
+			}
+		}
+
+
+		/*
+		 * Updates in garId order, so two concurrent batches lock their rows in
+		 * the same order instead of deadlocking. Returns the rows updated by
+		 * the committed chunks, also when a later chunk failed.
+		 */
+		@Override
+		public int updateGars(List<Garment> garments) {
+			List<Garment> sorted=new ArrayList<Garment>(garments);
+			sorted.sort(Comparator.comparingInt(Garment::getGarId));
+			try
+			{
+				return BatchExecutor.sum(BatchExecutor.execute(UPDATE_GAR, sorted, batchSize, false, (ps, g) -> {
+					ps.setString(1, g.getGarName());
+					ps.setString(2, g.getGarType());
+					ps.setDouble(3, g.getGarPrice());
+					ps.setInt(4, g.getGarId());
+				}));
+			}
+			catch(BatchExecutor.PartialBatchException e)
+			{
+				System.out.println(e);
+				e.printStackTrace();
+				return BatchExecutor.sum(e.getResults());
+			}
+			catch(SQLException e)
+			{
+				System.out.println(e);
+				e.printStackTrace();
+			}
+			return 0;
+		}
+
+
+		// Same lock order and partial-failure result as updateGars.
+		@Override
+		public int deleteGars(int[] garIds) {
+			List<Integer> ids=new ArrayList<Integer>(garIds.length);
+			for(int id : garIds)
+			{
+				ids.add(id);
+			}
+			Collections.sort(ids);
+			try
+			{
+				return BatchExecutor.sum(BatchExecutor.execute(DELETE_GAR, ids, batchSize, false,
+						(ps, id) -> ps.setInt(1, id)));
+			}
+			catch(BatchExecutor.PartialBatchException e)
+			{
+				System.out.println(e);
+				e.printStackTrace();
+				return BatchExecutor.sum(e.getResults());
+			}
+			catch(SQLException e)
+			{
+				System.out.println(e);
+				e.printStackTrace();
+			}
+			return 0;
+		}
+
+
+		/*
+		 * Keyset pagination: pass 0 for the first page, then the last garId of the previous page.
+		 */
+		@Override
+		public List<Garment> displayGarPage(int afterGarId, int limit) {
+			if(limit<=0)
+			{
+				// A page of nothing needs no query; a negative size is the caller's bug.
+				if(limit<0)
+				{
+					throw new IllegalArgumentException("limit must not be negative: "+limit);
+				}
+				return new ArrayList<Garment>();
+			}
+			List<Garment> page = new ArrayList<Garment>(limit);
+			try (Connection con=DBUtility.establishReadConnection(null);
+					PreparedStatement ps=con.prepareStatement(SELECT_GAR_PAGE))
+			{
+				ps.setInt(1, afterGarId);
+				ps.setInt(2, limit);
+				try (ResultSet rs=ps.executeQuery())
+				{
+					while(rs.next())
+					{
+						page.add(READ_GAR_PAGE.read(rs));
+					}
+				}
+				return page;
+			}
+			catch(SQLException e)
+			{
+				System.out.println(e);
+				e.printStackTrace();
+			}
+			return null;
+		}
+
+
+		@Override
+		public void forEachGar(Consumer<Garment> action) {
+			try
+			{
+				QueryStreams.forEach(SELECT_ALL_GAR, READ_ALL_GAR, action);
+			}
+			catch(SQLException e)
+			{
+				System.out.println(e);
+				e.printStackTrace();
+			}
+		}
+
+
+		/*
+		 * Streams the whole catalog in constant memory. The stream holds a
+		 * connection until closed, so use it in try-with-resources.
+		 */
+		@Override
+		public Stream<Garment> streamAllGar() {
+			try
+			{
+				return QueryStreams.stream(SELECT_ALL_GAR, READ_ALL_GAR);
+			}
+			catch(SQLException e)
+			{
+				throw new RuntimeException(e);
+			}
 		}
-		return null;
-	}
 
 }
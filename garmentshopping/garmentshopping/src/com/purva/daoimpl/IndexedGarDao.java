@@ -0,0 +1,233 @@
+package com.purva.daoimpl;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.purva.pojo.CatalogQuery;
+import com.purva.pojo.CatalogResult;
+import com.purva.pojo.Garment;
+
+
+/*
+ * GarDao that keeps a CatalogIndex in step with every write made through it,
+ * so search() never touches MySQL. The index is built from one catalog scan
+ * on the first search; writes after that update just the garments they touch.
+ * Over a CachingGarDao that scan may come from its mapped snapshot file, so
+ * the index is rebuilt when the cache replaces that with the database's catalog.
+ * A rebuild fills a new index and swaps it in, so searches meanwhile keep
+ * using the old one; if the scan fails, the old one stays.
+ */
+public class IndexedGarDao implements GarDao {
+
+	private final GarDao delegate;
+	private volatile CatalogIndex index;
+	private volatile boolean loaded;
+
+	public IndexedGarDao(GarDao delegate, CatalogIndex index)
+	{
+		this.delegate = delegate;
+		this.index = index;
+		if (delegate instanceof CachingGarDao)
+		{
+			((CachingGarDao) delegate).addRefreshListener(this::refreshed);
+		}
+	}
+
+	public IndexedGarDao(GarDao delegate)
+	{
+		this(delegate, new CatalogIndex());
+	}
+
+	public IndexedGarDao()
+	{
+		this(new CachingGarDao());
+	}
+
+	public CatalogResult search(CatalogQuery q)
+	{
+		if (!loaded)
+		{
+			synchronized (this)
+			{
+				if (!loaded)
+				{
+					rebuild();
+				}
+			}
+		}
+		return index.search(q);
+	}
+
+	/*
+	 * Reloads the whole index, e.g. after the catalog was changed outside this DAO.
+	 * Index updates from writes wait for the scan and are applied to the new
+	 * index after it, so a garment written during the scan ends up in its new state.
+	 * Returns false, keeping the current index, if the catalog could not be read.
+	 */
+	public synchronized boolean rebuild()
+	{
+		CatalogIndex fresh = index.emptyCopy();
+		// forEachGar only logs a failed query, so scan through a stream that throws.
+		try (Stream<Garment> garments = delegate.streamAllGar())
+		{
+			garments.forEach(fresh::put);
+		}
+		catch (RuntimeException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+			return false;
+		}
+		index = fresh;
+		loaded = true;
+		return true;
+	}
+
+	// An index not built yet is built from the new catalog by the first search anyway.
+	private synchronized void refreshed()
+	{
+		if (loaded)
+		{
+			rebuild();
+		}
+	}
+
+	private synchronized void indexed(Garment g)
+	{
+		index.put(g);
+	}
+
+	private synchronized void unindexed(int garId)
+	{
+		index.remove(garId);
+	}
+
+	@Override
+	public boolean addGar(Garment g) {
+		boolean added = delegate.addGar(g);
+		if (added)
+		{
+			indexed(g);
+		}
+		return added;
+	}
+
+	@Override
+	public boolean updateGar(Garment g) {
+		boolean updated = delegate.updateGar(g);
+		if (updated)
+		{
+			indexed(g);
+		}
+		return updated;
+	}
+
+	@Override
+	public boolean deleteGar(int garId) {
+		boolean deleted = delegate.deleteGar(garId);
+		if (deleted)
+		{
+			unindexed(garId);
+		}
+		return deleted;
+	}
+
+	@Override
+	public Garment displayGarId(int garId) {
+		return delegate.displayGarId(garId);
+	}
+
+	@Override
+	public List<Garment> displayAllGar() {
+		return delegate.displayAllGar();
+	}
+
+	@Override
+	public int[] addGars(List<Garment> garments) {
+		int[] ids = delegate.addGars(garments);
+		for (Garment g : garments)
+		{
+			// GarDaoImpl.addGars has set the generated ids on the garments it
+			// committed, even when a later chunk failed, and 0 on the rest.
+			if (g.getGarId() > 0)
+			{
+				indexed(g);
+			}
+		}
+		return ids;
+	}
+
+	/*
+	 * Fewer rows than garments means a chunk failed (or some garIds do not
+	 * exist), and which garments were committed is not known, so they are
+	 * read back. The same goes for deleteGars.
+	 */
+	@Override
+	public int updateGars(List<Garment> garments) {
+		int rows = delegate.updateGars(garments);
+		if (rows == garments.size())
+		{
+			garments.forEach(this::indexed);
+		}
+		else if (rows > 0)
+		{
+			for (Garment g : garments)
+			{
+				reindexed(g.getGarId());
+			}
+		}
+		return rows;
+	}
+
+	@Override
+	public int deleteGars(int[] garIds) {
+		int rows = delegate.deleteGars(garIds);
+		for (int garId : garIds)
+		{
+			if (rows == garIds.length)
+			{
+				unindexed(garId);
+			}
+			else if (rows > 0)
+			{
+				reindexed(garId);
+			}
+		}
+		return rows;
+	}
+
+	private void reindexed(int garId)
+	{
+		Garment current = delegate.displayGarId(garId);
+		if (current != null)
+		{
+			indexed(current);
+		}
+		else
+		{
+			unindexed(garId);
+		}
+	}
+
+	@Override
+	public List<Garment> displayGarPage(int afterGarId, int limit) {
+		return delegate.displayGarPage(afterGarId, limit);
+	}
+
+	@Override
+	public void forEachGar(Consumer<Garment> action) {
+		delegate.forEachGar(action);
+	}
+
+	@Override
+	public Stream<Garment> streamAllGar() {
+		return delegate.streamAllGar();
+	}
+
+	public CatalogIndex getIndex()
+	{
+		return index;
+	}
+
+}
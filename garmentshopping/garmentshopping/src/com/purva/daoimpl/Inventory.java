@@ -0,0 +1,470 @@
+package com.purva.daoimpl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.purva.pojo.Cart;
+import com.purva.utility.DBUtility;
+import com.purva.utility.Schema;
+import com.purva.utility.TimingWheel;
+
+
+/*
+ * Per-garment stock counters held in memory and reconciled to Stock_21828.
+ * Reserving stock is a compare-and-set on the garment's counter, so buyers
+ * of one hot garment never queue on a lock, and different garments share
+ * nothing. A reservation is held for holdMillis and then handed back by a
+ * timing wheel unless it is confirmed (sold) or released first.
+ * Confirmed units are subtracted from Stock_21828 in one batch every
+ * reconcileIntervalMs; units confirmed since the last batch are not in the
+ * database if the process dies.
+ * Garments without a Stock_21828 row are not tracked and never run out.
+ */
+public class Inventory implements AutoCloseable {
+
+	private static final String SELECT_STOCK="select onHand from "+Schema.STOCK+" where garId=?";
+	private static final String SUBTRACT_SOLD="update "+Schema.STOCK+" set onHand=onHand-? where garId=?";
+	private static final String RESTOCK="insert into "+Schema.STOCK+"(garId, onHand) values (?,?) "
+			+ "on duplicate key update onHand=onHand+values(onHand)";
+
+	private static final int HELD = 0, CONFIRMED = 1, RELEASED = 2;
+
+	private static class Stock
+	{
+		final int garId;
+		final boolean tracked;
+		final AtomicInteger available;
+		// Confirmed but not yet subtracted in the database.
+		final AtomicInteger unsynced = new AtomicInteger();
+
+		Stock(int garId, boolean tracked, int available)
+		{
+			this.garId = garId;
+			this.tracked = tracked;
+			this.available = new AtomicInteger(available);
+		}
+	}
+
+	public static class Reservation
+	{
+		private final String custEmailId;
+		private final int garId, qty;
+		private final AtomicInteger state = new AtomicInteger(HELD);
+		private volatile TimingWheel.Timeout timeout;
+
+		Reservation(String custEmailId, int garId, int qty)
+		{
+			this.custEmailId = custEmailId;
+			this.garId = garId;
+			this.qty = qty;
+		}
+
+		public int getGarId() {
+			return garId;
+		}
+		public int getQty() {
+			return qty;
+		}
+		public boolean isHeld() {
+			return state.get() == HELD;
+		}
+
+		@Override
+		public String toString() {
+			return "Reservation [custEmailId=" + custEmailId + ", garId=" + garId + ", qty=" + qty + ", state=" + state
+					+ "]";
+		}
+	}
+
+	private final Map<Integer, Stock> stock = new ConcurrentHashMap<Integer, Stock>();
+	private final Map<String, Queue<Reservation>> holds = new ConcurrentHashMap<String, Queue<Reservation>>();
+	private final long holdMillis;
+	private final TimingWheel wheel;
+	private final ScheduledExecutorService reconciler;
+
+	/*
+	 * reconcileIntervalMs <= 0 keeps everything in memory, e.g. for benchmarks.
+	 */
+	public Inventory(long holdMillis, long reconcileIntervalMs)
+	{
+		this.holdMillis = holdMillis;
+		this.wheel = new TimingWheel(Math.max(10, holdMillis / 512), 512);
+		if (reconcileIntervalMs > 0)
+		{
+			reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "inventory-reconciler");
+				t.setDaemon(true);
+				return t;
+			});
+			reconciler.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMs, reconcileIntervalMs, TimeUnit.MILLISECONDS);
+		}
+		else
+		{
+			reconciler = null;
+		}
+	}
+
+	public Inventory()
+	{
+		this(Long.getLong("inventory.holdMs", 15 * 60 * 1000L), Long.getLong("inventory.reconcileMs", 1000));
+	}
+
+	// MySQL's default collation compares emails case-insensitively, so the map does too.
+	private static String key(String email)
+	{
+		return email.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/*
+	 * Sets the in-memory stock of a garment without touching the database.
+	 */
+	public void track(int garId, int onHand)
+	{
+		stock.put(garId, new Stock(garId, true, onHand));
+	}
+
+	private Stock stock(int garId) throws SQLException
+	{
+		Stock s = stock.get(garId);
+		if (s != null)
+		{
+			return s;
+		}
+		try (Connection con = DBUtility.establishConnection())
+		{
+			if (con == null)
+			{
+				throw new SQLException("No database connection available");
+			}
+			return load(con, garId);
+		}
+	}
+
+	/*
+	 * Reads a garment not loaded yet on con, which may be in the caller's
+	 * transaction; a caller already holding a pooled connection must not
+	 * wait for a second one.
+	 */
+	private Stock stock(Connection con, int garId) throws SQLException
+	{
+		Stock s = stock.get(garId);
+		return s != null ? s : load(con, garId);
+	}
+
+	// Read outside the map so a slow load does not block other garments.
+	private Stock load(Connection con, int garId) throws SQLException
+	{
+		Stock s;
+		try (PreparedStatement ps = con.prepareStatement(SELECT_STOCK))
+		{
+			ps.setInt(1, garId);
+			try (ResultSet rs = ps.executeQuery())
+			{
+				s = rs.next() ? new Stock(garId, true, rs.getInt("onHand")) : new Stock(garId, false, 0);
+			}
+		}
+		Stock raced = stock.putIfAbsent(garId, s);
+		return raced != null ? raced : s;
+	}
+
+	/*
+	 * Takes qty units off the garment's available stock. Returns null if
+	 * there are not enough; throws if the garment's stock could not be read,
+	 * which is not the same as running out.
+	 */
+	public Reservation reserve(String custEmailId, int garId, int qty) throws SQLException
+	{
+		return reserve(stock(garId), custEmailId, qty);
+	}
+
+	private Reservation reserve(Stock s, String custEmailId, int qty)
+	{
+		if (s.tracked)
+		{
+			for (;;)
+			{
+				int available = s.available.get();
+				if (available < qty)
+				{
+					return null;
+				}
+				if (s.available.compareAndSet(available, available - qty))
+				{
+					break;
+				}
+			}
+		}
+		Reservation r = new Reservation(custEmailId, s.garId, qty);
+		holds.compute(key(custEmailId), (k, q) -> {
+			q = q != null ? q : new ConcurrentLinkedQueue<Reservation>();
+			q.add(r);
+			return q;
+		});
+		r.timeout = wheel.schedule(() -> release(r), holdMillis);
+		return r;
+	}
+
+	/*
+	 * Hands held units back. Returns false if the reservation was already
+	 * confirmed, released or expired.
+	 */
+	public boolean release(Reservation r)
+	{
+		if (!r.state.compareAndSet(HELD, RELEASED))
+		{
+			return false;
+		}
+		forget(r);
+		Stock s = stock.get(r.garId);
+		if (s != null && s.tracked)
+		{
+			s.available.addAndGet(r.qty);
+		}
+		return true;
+	}
+
+	/*
+	 * Turns held units into sold ones. Returns false if the reservation had
+	 * already expired or been released.
+	 */
+	public boolean confirm(Reservation r)
+	{
+		if (!r.state.compareAndSet(HELD, CONFIRMED))
+		{
+			return false;
+		}
+		forget(r);
+		Stock s = stock.get(r.garId);
+		if (s != null && s.tracked)
+		{
+			s.unsynced.addAndGet(r.qty);
+		}
+		return true;
+	}
+
+	private void forget(Reservation r)
+	{
+		TimingWheel.Timeout t = r.timeout;
+		if (t != null)
+		{
+			t.cancel();
+		}
+		// Drop the customer's queue once empty so idle customers cost nothing.
+		holds.computeIfPresent(key(r.custEmailId), (k, q) -> q.remove(r) && q.isEmpty() ? null : q);
+	}
+
+	/*
+	 * Makes the customer's held reservations match the cart lines exactly:
+	 * surplus holds are released and missing or expired ones are reserved
+	 * again. Returns the reservations covering the lines, or null (holding
+	 * nothing new) if some garment has run out. Stock not loaded yet is read
+	 * on con, the caller's connection.
+	 */
+	public List<Reservation> holdAll(Connection con, String custEmailId, List<Cart> lines) throws SQLException
+	{
+		Map<Integer, Integer> needed = new HashMap<Integer, Integer>();
+		for (Cart ct : lines)
+		{
+			needed.merge(ct.getGarId(), ct.getGarQty(), Integer::sum);
+		}
+		List<Reservation> covering = new ArrayList<Reservation>();
+		Queue<Reservation> q = holds.get(key(custEmailId));
+		if (q != null)
+		{
+			for (Iterator<Reservation> it = q.iterator(); it.hasNext();)
+			{
+				Reservation r = it.next();
+				int need = needed.getOrDefault(r.garId, 0);
+				if (r.qty <= need && r.isHeld())
+				{
+					needed.put(r.garId, need - r.qty);
+					covering.add(r);
+				}
+				else
+				{
+					release(r);
+				}
+			}
+		}
+		List<Reservation> fresh = new ArrayList<Reservation>();
+		for (Map.Entry<Integer, Integer> e : needed.entrySet())
+		{
+			if (e.getValue() <= 0)
+			{
+				continue;
+			}
+			Reservation r;
+			try
+			{
+				r = reserve(stock(con, e.getKey()), custEmailId, e.getValue());
+			}
+			catch (SQLException ex)
+			{
+				fresh.forEach(this::release);
+				throw ex;
+			}
+			if (r == null)
+			{
+				fresh.forEach(this::release);
+				return null;
+			}
+			fresh.add(r);
+		}
+		covering.addAll(fresh);
+		return covering;
+	}
+
+	/*
+	 * Returns false if any reservation expired before it could be confirmed;
+	 * the others are still confirmed.
+	 */
+	public boolean confirmAll(List<Reservation> reservations)
+	{
+		boolean all = true;
+		for (Reservation r : reservations)
+		{
+			all &= confirm(r);
+		}
+		return all;
+	}
+
+	public void releaseAll(String custEmailId)
+	{
+		Queue<Reservation> q = holds.remove(key(custEmailId));
+		if (q != null)
+		{
+			for (Reservation r : q)
+			{
+				release(r);
+			}
+		}
+	}
+
+	/*
+	 * Units that can still be reserved, or -1 if the garment is not tracked.
+	 */
+	public int available(int garId)
+	{
+		try
+		{
+			Stock s = stock(garId);
+			return s.tracked ? s.available.get() : -1;
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		return -1;
+	}
+
+	/*
+	 * Adds stock in the database and makes it available right away;
+	 * also starts tracking a garment that had no stock row.
+	 */
+	public boolean restock(int garId, int qty)
+	{
+		try (Connection con = DBUtility.establishConnection();
+				PreparedStatement ps = con.prepareStatement(RESTOCK))
+		{
+			ps.setInt(1, garId);
+			ps.setInt(2, qty);
+			ps.executeUpdate();
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+			return false;
+		}
+		Stock s = stock.get(garId);
+		if (s != null && s.tracked)
+		{
+			s.available.addAndGet(qty);
+		}
+		else
+		{
+			// Reloaded from the new row on next use.
+			stock.remove(garId);
+		}
+		return true;
+	}
+
+	/*
+	 * Subtracts everything confirmed since the last run from Stock_21828 in
+	 * one batch. Failed amounts are kept and retried on the next run.
+	 */
+	public void reconcile()
+	{
+		List<Stock> touched = new ArrayList<Stock>();
+		List<Integer> amounts = new ArrayList<Integer>();
+		for (Stock s : stock.values())
+		{
+			int sold = s.unsynced.getAndSet(0);
+			if (sold > 0)
+			{
+				touched.add(s);
+				amounts.add(sold);
+			}
+		}
+		if (touched.isEmpty())
+		{
+			return;
+		}
+		try (Connection con = DBUtility.establishConnection();
+				PreparedStatement ps = con.prepareStatement(SUBTRACT_SOLD))
+		{
+			for (int i = 0; i < touched.size(); i++)
+			{
+				ps.setInt(1, amounts.get(i));
+				ps.setInt(2, touched.get(i).garId);
+				ps.addBatch();
+			}
+			ps.executeBatch();
+		}
+		catch (SQLException | RuntimeException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+			for (int i = 0; i < touched.size(); i++)
+			{
+				touched.get(i).unsynced.addAndGet(amounts.get(i));
+			}
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		if (reconciler != null)
+		{
+			reconciler.shutdown();
+			try
+			{
+				reconciler.awaitTermination(5, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			reconcile();
+		}
+		wheel.close();
+	}
+
+}
@@ -0,0 +1,178 @@
+package com.purva.daoimpl;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.purva.pojo.Cart;
+import com.purva.pojo.CartSummary;
+
+
+/*
+ * CartDao that reserves stock for every line put in the cart and hands it
+ * back when the line is deleted. Adding fails when the garment has run out.
+ * Checkout confirms the reservations (see OrderDaoImpl).
+ */
+public class InventoryCartDao implements CartDao {
+
+	private final CartDao delegate;
+	private final Inventory inventory;
+	private final Map<Integer, Inventory.Reservation> byCartId = new ConcurrentHashMap<Integer, Inventory.Reservation>();
+	private final Map<String, List<Integer>> cartIdsByEmail = new ConcurrentHashMap<String, List<Integer>>();
+
+	public InventoryCartDao(CartDao delegate, Inventory inventory)
+	{
+		this.delegate = delegate;
+		this.inventory = inventory;
+	}
+
+	@Override
+	public boolean addtoCart(Cart ct) {
+		Inventory.Reservation r;
+		try
+		{
+			r = inventory.reserve(ct.getCustEmailId(), ct.getGarId(), ct.getGarQty());
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+			return false;
+		}
+		if (r == null)
+		{
+			return false;
+		}
+		if (!delegate.addtoCart(ct))
+		{
+			inventory.release(r);
+			return false;
+		}
+		remember(ct.getCustEmailId(), ct.getCartId(), r);
+		return true;
+	}
+
+	@Override
+	public List<Cart> showCart(String emailId) {
+		return delegate.showCart(emailId);
+	}
+
+	@Override
+	public boolean deleteCart(int cartId) {
+		boolean deleted = delegate.deleteCart(cartId);
+		Inventory.Reservation r = byCartId.remove(cartId);
+		if (deleted && r != null)
+		{
+			inventory.release(r);
+		}
+		return deleted;
+	}
+
+	// A line that is not emailId's keeps its reservation.
+	@Override
+	public boolean deleteCart(int cartId, String emailId) {
+		boolean deleted = delegate.deleteCart(cartId, emailId);
+		if (deleted)
+		{
+			Inventory.Reservation r = byCartId.remove(cartId);
+			if (r != null)
+			{
+				inventory.release(r);
+			}
+		}
+		return deleted;
+	}
+
+	@Override
+	public int[] addtoCarts(List<Cart> carts) {
+		List<Inventory.Reservation> reserved = new ArrayList<Inventory.Reservation>(carts.size());
+		try
+		{
+			for (Cart ct : carts)
+			{
+				Inventory.Reservation r = inventory.reserve(ct.getCustEmailId(), ct.getGarId(), ct.getGarQty());
+				if (r == null)
+				{
+					reserved.forEach(inventory::release);
+					return null;
+				}
+				reserved.add(r);
+			}
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+			reserved.forEach(inventory::release);
+			return null;
+		}
+		int[] ids = delegate.addtoCarts(carts);
+		for (int i = 0; i < carts.size(); i++)
+		{
+			// Rows that were not added, even when others were, have id 0; write-behind ids are negative.
+			if (carts.get(i).getCartId() != 0)
+			{
+				remember(carts.get(i).getCustEmailId(), carts.get(i).getCartId(), reserved.get(i));
+			}
+			else
+			{
+				inventory.release(reserved.get(i));
+			}
+		}
+		return ids;
+	}
+
+	@Override
+	public CartSummary cartSummary(String emailId) {
+		return delegate.cartSummary(emailId);
+	}
+
+	/*
+	 * Also forgets the customer's lines whose reservations are gone, which
+	 * after checkout is all of them.
+	 */
+	@Override
+	public boolean flushCart(String emailId) {
+		if (!delegate.flushCart(emailId))
+		{
+			return false;
+		}
+		cartIdsByEmail.computeIfPresent(key(emailId), (k, ids) -> {
+			ids.removeIf(id -> {
+				Inventory.Reservation r = byCartId.get(id);
+				if (r != null && r.isHeld())
+				{
+					return false;
+				}
+				byCartId.remove(id);
+				return true;
+			});
+			return ids.isEmpty() ? null : ids;
+		});
+		return true;
+	}
+
+	private void remember(String emailId, int cartId, Inventory.Reservation r)
+	{
+		byCartId.put(cartId, r);
+		cartIdsByEmail.compute(key(emailId), (k, ids) -> {
+			ids = ids != null ? ids : new ArrayList<Integer>();
+			ids.add(cartId);
+			return ids;
+		});
+	}
+
+	private static String key(String email)
+	{
+		return email.trim().toLowerCase(Locale.ROOT);
+	}
+
+	public Inventory getInventory()
+	{
+		return inventory;
+	}
+
+}
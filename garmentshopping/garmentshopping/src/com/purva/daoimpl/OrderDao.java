@@ -3,11 +3,18 @@ package com.purva.daoimpl;
 import java.util.List;
 
 import com.purva.pojo.Order;
+import com.purva.pojo.OrderStats;
 
 public interface OrderDao {
 	
+	// checkout result when some garment in the cart has run out
+	int OUT_OF_STOCK = -2;
+
 	boolean placeOrder( String custEmailId);
+	int checkout(String custEmailId);
 	List<Order>showOrder();
-	
+	List<Order> showOrders(String custEmailId, int beforeOrderId, int limit);
+	List<Order> showOrdersBetween(String fromDate, String toDate, Order after, int limit);
+	OrderStats orderStats(String custEmailId);
 
 }
@@ -4,83 +4,376 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
+import com.purva.pojo.Cart;
+import com.purva.pojo.CartSummary;
 import com.purva.pojo.Order;
+import com.purva.pojo.OrderStats;
 import com.purva.utility.DBUtility;
+import com.purva.utility.QueryStreams;
+import com.purva.utility.Schema;
 
 
-public class OrderDaoImpl {
-	
-	Connection con = null;
-	String query;
-	PreparedStatement ps;
-	ResultSet rs;
-	int row;
-	public boolean placeOrder(String custEmailId) 
+/*
+ * Stateless: every method works on its own connection and statement,
+ * so one instance can be shared across threads.
+ */
+public class OrderDaoImpl implements OrderDao {
+
+	private static final String INSERT_ORDER="insert into "+Schema.ORDER+"(custEmailId, orderDate, totalBill) values (?, now(), ?)";
+	// Cart rows carry the price they were added at, so no join with Garment is needed.
+	private static final String INSERT_ITEMS_FROM_CART="insert into "+Schema.ORDER_ITEM+"(orderId, garId, garQty, garPrice) "
+			+ "select ?, garId, garQty, garPrice from "+Schema.CART+" where custEmailId = ?";
+	private static final String CLEAR_CART="delete from "+Schema.CART+" where custEmailId=?";
+	private static final String SELECT_CART_LINES="select garId, garQty from "+Schema.CART+" where custEmailId=?";
+	private static final String ORDER_COLUMNS="orderId, custEmailId, orderDate, totalBill";
+	private static final String SELECT_ALL_ORDER="select "+ORDER_COLUMNS+" from "+Schema.ORDER;
+	// Keyset pages, served by the (custEmailId, orderId) and (orderDate, orderId) indexes.
+	private static final String SELECT_CUSTOMER_ORDER_PAGE="select "+ORDER_COLUMNS+" from "+Schema.ORDER+" "
+			+ "where custEmailId=? and orderId<? order by orderId desc limit ?";
+	private static final String SELECT_DATE_ORDER_PAGE="select "+ORDER_COLUMNS+" from "+Schema.ORDER+" "
+			+ "where orderDate>=? and orderDate<? and (orderDate>? or (orderDate=? and orderId>?)) "
+			+ "order by orderDate, orderId limit ?";
+	// One row per customer, kept current by checkout.
+	private static final String ADD_TO_ORDER_STATS="update "+Schema.ORDER_STATS+" set orderCount=orderCount+1, "
+			+ "lifetimeSpend=lifetimeSpend+?, lastOrderDate=(select orderDate from "+Schema.ORDER+" where orderId=?) "
+			+ "where custEmailId=?";
+	// First order since the table existed: start from the customer's whole history, the new order included.
+	private static final String BUILD_ORDER_STATS="insert into "+Schema.ORDER_STATS+"(custEmailId, orderCount, lifetimeSpend, lastOrderDate) "
+			+ "select ?, count(*), coalesce(sum(totalBill),0), max(orderDate) from "+Schema.ORDER+" where custEmailId=?";
+	private static final String SELECT_ORDER_STATS="select custEmailId, orderCount, lifetimeSpend, lastOrderDate "
+			+ "from "+Schema.ORDER_STATS+" where custEmailId=?";
+	private static final String AGGREGATE_ORDERS="select ? as custEmailId, count(*) as orderCount, "
+			+ "coalesce(sum(totalBill),0) as lifetimeSpend, max(orderDate) as lastOrderDate from "+Schema.ORDER+" where custEmailId=?";
+
+	private static final QueryStreams.RowReader<Cart> READ_CART_LINES=RowMappers.CART.reader();
+	private static final QueryStreams.RowReader<Order> READ_ALL_ORDER=RowMappers.ORDER.reader();
+	private static final QueryStreams.RowReader<Order> READ_CUSTOMER_ORDER_PAGE=RowMappers.ORDER.reader();
+	private static final QueryStreams.RowReader<Order> READ_DATE_ORDER_PAGE=RowMappers.ORDER.reader();
+	private static final QueryStreams.RowReader<OrderStats> READ_ORDER_STATS=RowMappers.ORDER_STATS.reader();
+	private static final QueryStreams.RowReader<OrderStats> READ_AGGREGATE_ORDERS=RowMappers.ORDER_STATS.reader();
+
+	private final CartDao cartDao;
+	private final Inventory inventory;
+
+	public OrderDaoImpl()
+	{
+		this(new CartDaoImpl());
+	}
+
+	/*
+	 * cartDao is the DAO the shop edits carts through; its pending writes are
+	 * flushed before checkout reads the cart. Stock is checked when it is an
+	 * InventoryCartDao.
+	 */
+	public OrderDaoImpl(CartDao cartDao)
+	{
+		this(cartDao, cartDao instanceof InventoryCartDao ? ((InventoryCartDao) cartDao).getInventory() : null);
+	}
+
+	public OrderDaoImpl(CartDao cartDao, Inventory inventory)
+	{
+		this.cartDao = cartDao;
+		this.inventory = inventory;
+	}
+
+	@Override
+	public boolean placeOrder(String custEmailId)
 	{
-		double totalBill=0;
-		String orderDate = new Date().toString();
-		con = DBUtility.establishConnection();
-		query = "select sum(g.garPrice * c.garQty) AS totalBill from garment AS f INNER JOIN cart AS c where g.garmentId = c.foodId and custEmailId = ?";
-		try 
-		{
-			ps = con.prepareStatement(query);
-			ps.setString(1,custEmailId);
-			rs = ps.executeQuery();
-			if(rs.next())
+		return checkout(custEmailId)>0;
+	}
+
+	/*
+	 * Turns the customer's cart into an order in one transaction: the header
+	 * takes the cart's precomputed total, the line items are copied
+	 * server-side with INSERT ... SELECT, then the cart is cleared.
+	 * With an inventory, stock for every line is held before the order is
+	 * written and confirmed once it is committed.
+	 * Returns the new order id, 0 if the cart is empty, OUT_OF_STOCK, or -1 on
+	 * failure, including when a write-behind cart could not be flushed first.
+	 */
+	@Override
+	public int checkout(String custEmailId)
+	{
+		if (!cartDao.flushCart(custEmailId))
+		{
+			// The database cart lacks the shopper's latest edits; ordering it would bill the wrong lines.
+			System.out.println("Checkout for " + custEmailId + " aborted: the cart could not be flushed");
+			return -1;
+		}
+		try (Connection con = DBUtility.establishConnection(custEmailId))
+		{
+			con.setAutoCommit(false);
+			try
 			{
-				totalBill = rs.getDouble("totalBill");
-			}	
-			query = "insert into Orderrs(totalBill,custEmailId,orderDate) values (?,?,?)";
-			ps = con.prepareStatement(query);
-			ps.setDouble(1, totalBill);
-			ps.setString(2,custEmailId);
-			ps.setString(3,orderDate);
-			row = ps.executeUpdate();
-			if(row>0)
+				List<Inventory.Reservation> held = null;
+				if (inventory != null)
+				{
+					CartSummaries.lock(con, custEmailId);
+					// Stock is read on con: borrowing a second connection while holding the summary lock can exhaust the pool.
+					held = inventory.holdAll(con, custEmailId, cartLines(con, custEmailId));
+					if (held == null)
+					{
+						con.rollback();
+						return OUT_OF_STOCK;
+					}
+				}
+				int orderId = placeOrder(con, custEmailId);
+				CartSummary cleared = orderId > 0 ? CartSummaries.clear(con, custEmailId) : null;
+				con.commit();
+				CartSummaries.publish(cleared);
+				if (held != null && orderId > 0 && !inventory.confirmAll(held))
+				{
+					System.out.println("Order " + orderId + " confirmed stock after its hold expired");
+				}
+				// Drop what a write-behind cart loaded while we were checking out.
+				cartDao.flushCart(custEmailId);
+				return orderId;
+			}
+			catch (SQLException e)
+			{
+				con.rollback();
+				throw e;
+			}
+			finally
 			{
-				return true;
+				con.setAutoCommit(true);
 			}
-			
-		} 
-		catch (SQLException e) 
+		}
+		catch (SQLException e)
 		{
 			e.printStackTrace();
 		}
-		return false;
+		return -1;
 	}
 
+	/*
+	 * Checkout steps on a connection whose transaction the caller controls.
+	 * Leaves the cart summary locked; the caller clears it. The customer's
+	 * order stats are updated in the same transaction; the summary lock
+	 * keeps two checkouts of one customer from both creating the stats row.
+	 */
+	int placeOrder(Connection con, String custEmailId) throws SQLException
+	{
+		// Locking the summary makes a concurrent checkout or cart edit wait for this one.
+		CartSummary summary = CartSummaries.lock(con, custEmailId);
+		if (summary == null || summary.isEmpty())
+		{
+			return 0;
+		}
+		int orderId;
+		try (PreparedStatement ps = con.prepareStatement(INSERT_ORDER, Statement.RETURN_GENERATED_KEYS))
+		{
+			ps.setString(1, custEmailId);
+			ps.setDouble(2, summary.getCartTotal());
+			ps.executeUpdate();
+			try (ResultSet keys = ps.getGeneratedKeys())
+			{
+				keys.next();
+				orderId = keys.getInt(1);
+			}
+		}
+		try (PreparedStatement ps = con.prepareStatement(INSERT_ITEMS_FROM_CART))
+		{
+			ps.setInt(1, orderId);
+			ps.setString(2, custEmailId);
+			ps.executeUpdate();
+		}
+		try (PreparedStatement ps = con.prepareStatement(CLEAR_CART))
+		{
+			ps.setString(1, custEmailId);
+			ps.executeUpdate();
+		}
+		addToOrderStats(con, custEmailId, orderId, summary.getCartTotal());
+		return orderId;
+	}
+
+	private static void addToOrderStats(Connection con, String custEmailId, int orderId, double total) throws SQLException
+	{
+		try (PreparedStatement ps = con.prepareStatement(ADD_TO_ORDER_STATS))
+		{
+			ps.setDouble(1, total);
+			ps.setInt(2, orderId);
+			ps.setString(3, custEmailId);
+			if (ps.executeUpdate() > 0)
+			{
+				return;
+			}
+		}
+		try (PreparedStatement ps = con.prepareStatement(BUILD_ORDER_STATS))
+		{
+			ps.setString(1, custEmailId);
+			ps.setString(2, custEmailId);
+			ps.executeUpdate();
+		}
+	}
+
+	private static List<Cart> cartLines(Connection con, String custEmailId) throws SQLException
+	{
+		List<Cart> lines = new ArrayList<Cart>();
+		try (PreparedStatement ps = con.prepareStatement(SELECT_CART_LINES))
+		{
+			ps.setString(1, custEmailId);
+			try (ResultSet rs = ps.executeQuery())
+			{
+				while (rs.next())
+				{
+					lines.add(READ_CART_LINES.read(rs));
+				}
+			}
+		}
+		return lines;
+	}
+
+	/*
+	 * Every order in the system; prefer the paged methods below.
+	 */
+	@Override
 	public List<Order> showOrder() {
-		
-		
+
+
 
 		List<Order> list = new ArrayList<Order>();
-		con = DBUtility.establishConnection();
-		query = "select * from Order_21828";
-		try 
+		try (Connection con = DBUtility.establishReadConnection(null);
+				PreparedStatement ps = con.prepareStatement(SELECT_ALL_ORDER);
+				ResultSet rs = ps.executeQuery())
 		{
-			Order o = new Order();
-			ps = con.prepareStatement(query);
-			rs = ps.executeQuery();
 			while(rs.next())
 			{
-				o.setOrderId(rs.getInt(1));
-				o.setCustEmailId(rs.getString(2));
-				o.setOrderDate(rs.getString(3));
-				o.setTotalBill(rs.getDouble(4));
-				list.add(o);
+				list.add(READ_ALL_ORDER.read(rs));
 			}
 			return list;
-		
-		} 
+
+		}
 		catch (SQLException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
-		
+
+		return null;
+	}
+
+	/*
+	 * One page of the customer's orders, newest first. Pass 0 for the first
+	 * page, then the smallest orderId of the previous page. Each page is an
+	 * index range scan, so its cost does not grow with the order table.
+	 */
+	@Override
+	public List<Order> showOrders(String custEmailId, int beforeOrderId, int limit) {
+		if (limit <= 0)
+		{
+			if (limit < 0)
+			{
+				throw new IllegalArgumentException("limit must not be negative: " + limit);
+			}
+			return new ArrayList<Order>();
+		}
+		List<Order> page = new ArrayList<Order>(limit);
+		try (Connection con = DBUtility.establishReadConnection(custEmailId);
+				PreparedStatement ps = con.prepareStatement(SELECT_CUSTOMER_ORDER_PAGE))
+		{
+			ps.setString(1, custEmailId);
+			ps.setInt(2, beforeOrderId > 0 ? beforeOrderId : Integer.MAX_VALUE);
+			ps.setInt(3, limit);
+			try (ResultSet rs = ps.executeQuery())
+			{
+				while (rs.next())
+				{
+					page.add(READ_CUSTOMER_ORDER_PAGE.read(rs));
+				}
+			}
+			return page;
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/*
+	 * One page of all orders placed from fromDate (inclusive) to toDate
+	 * (exclusive), oldest first. Dates are 'yyyy-MM-dd[ HH:mm:ss]'. Pass null
+	 * for the first page, then the last order of the previous page.
+	 */
+	@Override
+	public List<Order> showOrdersBetween(String fromDate, String toDate, Order after, int limit) {
+		if (limit <= 0)
+		{
+			if (limit < 0)
+			{
+				throw new IllegalArgumentException("limit must not be negative: " + limit);
+			}
+			return new ArrayList<Order>();
+		}
+		List<Order> page = new ArrayList<Order>(limit);
+		try (Connection con = DBUtility.establishReadConnection(null);
+				PreparedStatement ps = con.prepareStatement(SELECT_DATE_ORDER_PAGE))
+		{
+			String afterDate = after != null ? after.getOrderDate() : fromDate;
+			ps.setString(1, fromDate);
+			ps.setString(2, toDate);
+			ps.setString(3, afterDate);
+			ps.setString(4, afterDate);
+			ps.setInt(5, after != null ? after.getOrderId() : 0);
+			ps.setInt(6, limit);
+			try (ResultSet rs = ps.executeQuery())
+			{
+				while (rs.next())
+				{
+					page.add(READ_DATE_ORDER_PAGE.read(rs));
+				}
+			}
+			return page;
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/*
+	 * Order count, lifetime spend and last order date: one primary-key read.
+	 * Customers with no stats row yet (no order since the table was added)
+	 * are aggregated from their orders instead.
+	 */
+	@Override
+	public OrderStats orderStats(String custEmailId) {
+		try (Connection con = DBUtility.establishReadConnection(custEmailId))
+		{
+			try (PreparedStatement ps = con.prepareStatement(SELECT_ORDER_STATS))
+			{
+				ps.setString(1, custEmailId);
+				try (ResultSet rs = ps.executeQuery())
+				{
+					if (rs.next())
+					{
+						return READ_ORDER_STATS.read(rs);
+					}
+				}
+			}
+			try (PreparedStatement ps = con.prepareStatement(AGGREGATE_ORDERS))
+			{
+				ps.setString(1, custEmailId);
+				ps.setString(2, custEmailId);
+				try (ResultSet rs = ps.executeQuery())
+				{
+					rs.next();
+					return READ_AGGREGATE_ORDERS.read(rs);
+				}
+			}
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
 		return null;
 	}
 
@@ -0,0 +1,55 @@
+package com.purva.daoimpl;
+
+import com.purva.pojo.Cart;
+import com.purva.pojo.Customer;
+import com.purva.pojo.Garment;
+import com.purva.pojo.Order;
+import com.purva.pojo.OrderStats;
+import com.purva.utility.RowMapper;
+
+
+/*
+ * Column-to-field mappings for the shop's tables. Each DAO takes one
+ * reader() per SELECT it runs; columns a query leaves out stay unset.
+ */
+final class RowMappers {
+
+	static final RowMapper<Garment> GARMENT = RowMapper.of(Garment::new)
+			.intColumn("garId", Garment::setGarId)
+			.stringColumn("garName", Garment::setGarName)
+			.stringColumn("garType", Garment::setGarType)
+			.intColumn("garPrice", Garment::setGarPrice);
+
+	static final RowMapper<Customer> CUSTOMER = RowMapper.of(Customer::new)
+			.intColumn("custId", Customer::setCustId)
+			.stringColumn("custName", Customer::setCustName)
+			.stringColumn("custAddr", Customer::setCustAddr)
+			.intColumn("custCont", Customer::setCustCont)
+			.stringColumn("custEmailId", Customer::setCustEmailId)
+			.stringColumn("custPassword", Customer::setPassword);
+
+	static final RowMapper<Cart> CART = RowMapper.of(Cart::new)
+			.intColumn("cartId", Cart::setCartId)
+			.intColumn("garId", Cart::setGarId)
+			.stringColumn("custEmailId", Cart::setCustEmailId)
+			.stringColumn("garName", Cart::setGarName)
+			.intColumn("garQty", Cart::setGarQty)
+			.doubleColumn("garPrice", Cart::setGarPrice);
+
+	static final RowMapper<Order> ORDER = RowMapper.of(Order::new)
+			.intColumn("orderId", Order::setOrderId)
+			.stringColumn("custEmailId", Order::setCustEmailId)
+			.stringColumn("orderDate", Order::setOrderDate)
+			.doubleColumn("totalBill", Order::setTotalBill);
+
+	static final RowMapper<OrderStats> ORDER_STATS = RowMapper.of(OrderStats::new)
+			.stringColumn("custEmailId", OrderStats::setCustEmailId)
+			.intColumn("orderCount", OrderStats::setOrderCount)
+			.doubleColumn("lifetimeSpend", OrderStats::setLifetimeSpend)
+			.stringColumn("lastOrderDate", OrderStats::setLastOrderDate);
+
+	private RowMappers()
+	{
+	}
+
+}
@@ -0,0 +1,643 @@
+package com.purva.daoimpl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.purva.pojo.Cart;
+import com.purva.pojo.CartSummary;
+import com.purva.pojo.Garment;
+import com.purva.utility.DBUtility;
+import com.purva.utility.Schema;
+
+
+/*
+ * CartDao that keeps each shopper's cart in memory and writes it to
+ * Cart_21828 behind their back.
+ * Carts live in a striped map keyed by email and are loaded on first use.
+ * Edits only touch memory and mark the cart dirty. A background thread
+ * flushes dirty carts every flushIntervalMs: one transaction per cart,
+ * with the removals and additions since the last flush sent as batches.
+ * An add followed by a delete of the same line never reaches the database.
+ * Lines that are not yet written carry a negative cart id; it stays valid
+ * for deleteCart after the row gets its real id.
+ * Checkout must call flushCart first (OrderDaoImpl does). Edits made since
+ * the last flush are lost if the process dies. Share one instance per process.
+ */
+public class WriteBehindCartDao implements CartDao, AutoCloseable {
+
+	private static final String SELECT_CART_LINES="select cartId, garId, garQty, garPrice from "+Schema.CART+" where custEmailId=?";
+	private static final String INSERT_CART_LINE="insert into "+Schema.CART+"(garId, custEmailId, garQty, garPrice) values (?,?,?,?)";
+	private static final String DELETE_CART_LINE="delete from "+Schema.CART+" where cartId=? and custEmailId=?";
+
+	private static final int STRIPES = 64;
+
+	private static class Line
+	{
+		final String custEmailId;
+		final int tempId, garId;
+		final double garPrice;
+		final int qty;
+		int cartId;
+		boolean inFlight, removed;
+
+		Line(String custEmailId, int tempId, int cartId, int garId, int qty, double garPrice)
+		{
+			this.custEmailId = custEmailId;
+			this.tempId = tempId;
+			this.cartId = cartId;
+			this.garId = garId;
+			this.qty = qty;
+			this.garPrice = garPrice;
+		}
+
+		boolean persisted()
+		{
+			return cartId > 0;
+		}
+
+		int id()
+		{
+			return persisted() ? cartId : tempId;
+		}
+	}
+
+	private static class SessionCart
+	{
+		final String custEmailId;
+		final List<Line> lines = new ArrayList<Line>();
+		final List<Line> added = new ArrayList<Line>();
+		final List<Integer> removed = new ArrayList<Integer>();
+		final ReentrantLock flushLock = new ReentrantLock();
+		long lastAccess = System.currentTimeMillis();
+
+		SessionCart(String custEmailId)
+		{
+			this.custEmailId = custEmailId;
+		}
+
+		boolean clean()
+		{
+			if (!added.isEmpty() || !removed.isEmpty())
+			{
+				return false;
+			}
+			for (Line l : lines)
+			{
+				if (l.inFlight)
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static class Stripe
+	{
+		final Map<String, SessionCart> carts = new HashMap<String, SessionCart>();
+	}
+
+	private final CartDao delegate;
+	private final GarDao garDao;
+	private final long idleMillis;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+	private final Map<Integer, Line> byId = new ConcurrentHashMap<Integer, Line>();
+	private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger tempIds = new AtomicInteger();
+	private final ScheduledExecutorService flusher;
+
+	public WriteBehindCartDao(CartDao delegate, GarDao garDao, long flushIntervalMs, long idleMillis)
+	{
+		this.delegate = delegate;
+		this.garDao = garDao;
+		this.idleMillis = idleMillis;
+		for (int i = 0; i < STRIPES; i++)
+		{
+			stripes[i] = new Stripe();
+		}
+		flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "cart-write-behind");
+			t.setDaemon(true);
+			return t;
+		});
+		flusher.scheduleWithFixedDelay(this::flushDirty, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(this::flushAll, "cart-write-behind-shutdown"));
+	}
+
+	public WriteBehindCartDao()
+	{
+		this(new CartDaoImpl(), new CachingGarDao(), Long.getLong("cart.flushIntervalMs", 200),
+				Long.getLong("cart.session.idleMs", 30 * 60 * 1000L));
+	}
+
+	// MySQL's default collation compares emails case-insensitively, so the map does too.
+	private static String key(String email)
+	{
+		return email.trim().toLowerCase(Locale.ROOT);
+	}
+
+	private Stripe stripeFor(String key)
+	{
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return stripes[h & (STRIPES - 1)];
+	}
+
+	private SessionCart session(String custEmailId) throws SQLException
+	{
+		String key = key(custEmailId);
+		Stripe stripe = stripeFor(key);
+		synchronized (stripe)
+		{
+			SessionCart cart = stripe.carts.get(key);
+			if (cart != null)
+			{
+				cart.lastAccess = System.currentTimeMillis();
+				return cart;
+			}
+		}
+		// Load outside the stripe lock so other shoppers in the stripe are not held up.
+		List<Line> rows = new ArrayList<Line>();
+		try (Connection con = DBUtility.establishConnection();
+				PreparedStatement ps = con.prepareStatement(SELECT_CART_LINES))
+		{
+			ps.setString(1, custEmailId);
+			try (ResultSet rs = ps.executeQuery())
+			{
+				while (rs.next())
+				{
+					rows.add(new Line(custEmailId, tempIds.decrementAndGet(), rs.getInt("cartId"), rs.getInt("garId"),
+							rs.getInt("garQty"), rs.getDouble("garPrice")));
+				}
+			}
+		}
+		synchronized (stripe)
+		{
+			SessionCart cart = stripe.carts.get(key);
+			if (cart == null)
+			{
+				cart = new SessionCart(custEmailId);
+				cart.lines.addAll(rows);
+				for (Line l : rows)
+				{
+					byId.put(l.cartId, l);
+				}
+				stripe.carts.put(key, cart);
+			}
+			return cart;
+		}
+	}
+
+	@Override
+	public boolean addtoCart(Cart ct) {
+		try
+		{
+			Garment g = garDao.displayGarId(ct.getGarId());
+			if (g == null || ct.getGarQty() <= 0)
+			{
+				return false;
+			}
+			String key = key(ct.getCustEmailId());
+			Stripe stripe = stripeFor(key);
+			for (;;)
+			{
+				SessionCart cart = session(ct.getCustEmailId());
+				synchronized (stripe)
+				{
+					if (stripe.carts.get(key) != cart)
+					{
+						// Evicted between lookup and lock; load it again.
+						continue;
+					}
+					Line line = new Line(cart.custEmailId, tempIds.decrementAndGet(), 0, ct.getGarId(), ct.getGarQty(), g.getGarPrice());
+					cart.lines.add(line);
+					cart.added.add(line);
+					byId.put(line.tempId, line);
+					ct.setCartId(line.id());
+					ct.setGarPrice(line.garPrice);
+				}
+				break;
+			}
+			dirty.add(key);
+			return true;
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	@Override
+	public List<Cart> showCart(String emailId) {
+		List<Cart> cartList = new ArrayList<Cart>();
+		try
+		{
+			SessionCart cart = session(emailId);
+			synchronized (stripeFor(key(emailId)))
+			{
+				for (Line l : cart.lines)
+				{
+					Cart ct = new Cart();
+					ct.setCartId(l.id());
+					ct.setGarId(l.garId);
+					ct.setCustEmailId(cart.custEmailId);
+					ct.setGarQty(l.qty);
+					ct.setGarPrice(l.garPrice);
+					cartList.add(ct);
+				}
+			}
+			for (Cart ct : cartList)
+			{
+				Garment g = garDao.displayGarId(ct.getGarId());
+				if (g != null)
+				{
+					ct.setGarName(g.getGarName());
+				}
+			}
+			return cartList;
+		}
+		catch (SQLException e)
+		{
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	@Override
+	public boolean deleteCart(int cartId) {
+		Line line = byId.get(cartId);
+		if (line == null)
+		{
+			// Not in any loaded cart, so memory has nothing to keep in step with.
+			return cartId > 0 && delegate.deleteCart(cartId);
+		}
+		String key = key(line.custEmailId);
+		Stripe stripe = stripeFor(key);
+		synchronized (stripe)
+		{
+			SessionCart cart = stripe.carts.get(key);
+			if (line.removed)
+			{
+				return false;
+			}
+			if (cart != null && cart.lines.remove(line))
+			{
+				line.removed = true;
+				byId.remove(line.tempId);
+				if (line.persisted())
+				{
+					byId.remove(line.cartId);
+					cart.removed.add(line.cartId);
+				}
+				else if (!line.inFlight)
+				{
+					// Never written, so there is nothing to undo in the database.
+					cart.added.remove(line);
+					return true;
+				}
+				// An in-flight line is deleted once its insert comes back with an id.
+				dirty.add(key);
+				return true;
+			}
+		}
+		// The cart was evicted clean in the meantime, so the row is as in the database.
+		return line.persisted() && delegate.deleteCart(line.cartId);
+	}
+
+	@Override
+	public boolean deleteCart(int cartId, String emailId) {
+		if (emailId == null)
+		{
+			return false;
+		}
+		Line line = byId.get(cartId);
+		if (line == null)
+		{
+			return cartId > 0 && delegate.deleteCart(cartId, emailId);
+		}
+		// Lines never change hands, so once the owner matches the plain delete applies.
+		return key(line.custEmailId).equals(key(emailId)) && deleteCart(cartId);
+	}
+
+	/*
+	 * Adds the rows to memory one by one; they reach the database with the next flush.
+	 */
+	@Override
+	public int[] addtoCarts(List<Cart> carts) {
+		int[] ids = new int[carts.size()];
+		for (int i = 0; i < ids.length; i++)
+		{
+			if (!addtoCart(carts.get(i)))
+			{
+				return null;
+			}
+			ids[i] = carts.get(i).getCartId();
+		}
+		return ids;
+	}
+
+	@Override
+	public CartSummary cartSummary(String emailId) {
+		try
+		{
+			SessionCart cart = session(emailId);
+			CartSummary s = new CartSummary();
+			s.setCustEmailId(cart.custEmailId);
+			synchronized (stripeFor(key(emailId)))
+			{
+				int items = 0;
+				double total = 0;
+				for (Line l : cart.lines)
+				{
+					items += l.qty;
+					total += l.qty * l.garPrice;
+				}
+				s.setLineCount(cart.lines.size());
+				s.setItemCount(items);
+				s.setCartTotal(total);
+			}
+			return s;
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/*
+	 * Writes the shopper's pending edits now and drops the in-memory cart, so
+	 * the next access reloads it. Call before and after checkout. Returns
+	 * false if the edits could not be written; they stay queued for the
+	 * next flush, so the database cart is not the shopper's cart yet.
+	 */
+	@Override
+	public boolean flushCart(String emailId) {
+		String key = key(emailId);
+		dirty.remove(key);
+		if (!flush(key))
+		{
+			return false;
+		}
+		evict(key, 0);
+		return true;
+	}
+
+	/*
+	 * Returns false if the cart still has unwritten edits.
+	 */
+	private boolean flush(String key)
+	{
+		Stripe stripe = stripeFor(key);
+		SessionCart cart;
+		synchronized (stripe)
+		{
+			cart = stripe.carts.get(key);
+		}
+		if (cart == null)
+		{
+			return true;
+		}
+		cart.flushLock.lock();
+		try
+		{
+			List<Line> adds;
+			List<Integer> removes;
+			synchronized (stripe)
+			{
+				adds = new ArrayList<Line>(cart.added);
+				removes = new ArrayList<Integer>(cart.removed);
+				cart.added.clear();
+				cart.removed.clear();
+				for (Line l : adds)
+				{
+					l.inFlight = true;
+				}
+			}
+			if (adds.isEmpty() && removes.isEmpty())
+			{
+				return true;
+			}
+			int[] ids;
+			CartSummary summary;
+			try
+			{
+				ids = new int[adds.size()];
+				summary = write(cart.custEmailId, adds, removes, ids);
+			}
+			catch (SQLException e)
+			{
+				System.out.println(e);
+				e.printStackTrace();
+				synchronized (stripe)
+				{
+					for (Line l : adds)
+					{
+						l.inFlight = false;
+					}
+					adds.removeIf(l -> l.removed);
+					cart.added.addAll(0, adds);
+					cart.removed.addAll(0, removes);
+				}
+				dirty.add(key);
+				return false;
+			}
+			CartSummaries.publish(summary);
+			boolean again = false;
+			synchronized (stripe)
+			{
+				for (int i = 0; i < adds.size(); i++)
+				{
+					Line l = adds.get(i);
+					l.cartId = ids[i];
+					l.inFlight = false;
+					if (l.removed)
+					{
+						cart.removed.add(l.cartId);
+						again = true;
+					}
+					else
+					{
+						byId.put(l.cartId, l);
+					}
+				}
+			}
+			if (again)
+			{
+				return flush(key);
+			}
+			return true;
+		}
+		finally
+		{
+			cart.flushLock.unlock();
+		}
+	}
+
+	/*
+	 * One transaction per cart. The summary row is locked first, in the same
+	 * order as the other cart writers, and rebuilt at the end.
+	 */
+	private CartSummary write(String custEmailId, List<Line> adds, List<Integer> removes, int[] ids) throws SQLException
+	{
+		try (Connection con = DBUtility.establishConnection(custEmailId))
+		{
+			con.setAutoCommit(false);
+			try
+			{
+				CartSummaries.lock(con, custEmailId);
+				if (!removes.isEmpty())
+				{
+					try (PreparedStatement ps = con.prepareStatement(DELETE_CART_LINE))
+					{
+						for (int cartId : removes)
+						{
+							ps.setInt(1, cartId);
+							ps.setString(2, custEmailId);
+							ps.addBatch();
+						}
+						ps.executeBatch();
+					}
+				}
+				if (!adds.isEmpty())
+				{
+					try (PreparedStatement ps = con.prepareStatement(INSERT_CART_LINE, Statement.RETURN_GENERATED_KEYS))
+					{
+						for (Line l : adds)
+						{
+							ps.setInt(1, l.garId);
+							ps.setString(2, custEmailId);
+							ps.setInt(3, l.qty);
+							ps.setDouble(4, l.garPrice);
+							ps.addBatch();
+						}
+						ps.executeBatch();
+						try (ResultSet keys = ps.getGeneratedKeys())
+						{
+							for (int i = 0; i < ids.length && keys.next(); i++)
+							{
+								ids[i] = keys.getInt(1);
+							}
+						}
+					}
+				}
+				CartSummary summary = CartSummaries.rebuild(con, custEmailId);
+				con.commit();
+				return summary;
+			}
+			catch (SQLException e)
+			{
+				con.rollback();
+				throw e;
+			}
+			finally
+			{
+				con.setAutoCommit(true);
+			}
+		}
+	}
+
+	private void evict(String key, long idleFor)
+	{
+		Stripe stripe = stripeFor(key);
+		synchronized (stripe)
+		{
+			SessionCart cart = stripe.carts.get(key);
+			if (cart != null && cart.clean() && System.currentTimeMillis() - cart.lastAccess >= idleFor)
+			{
+				stripe.carts.remove(key);
+				for (Line l : cart.lines)
+				{
+					byId.remove(l.tempId);
+					byId.remove(l.cartId);
+				}
+			}
+		}
+	}
+
+	private void flushDirty()
+	{
+		try
+		{
+			for (Iterator<String> it = dirty.iterator(); it.hasNext();)
+			{
+				String key = it.next();
+				it.remove();
+				flush(key);
+			}
+			List<String> keys = new ArrayList<String>();
+			for (Stripe stripe : stripes)
+			{
+				synchronized (stripe)
+				{
+					keys.addAll(stripe.carts.keySet());
+				}
+			}
+			for (String key : keys)
+			{
+				evict(key, idleMillis);
+			}
+		}
+		catch (RuntimeException e)
+		{
+			// Keep the scheduler alive; a failed cart stays dirty and is retried.
+			e.printStackTrace();
+		}
+	}
+
+	public void flushAll()
+	{
+		List<String> keys = new ArrayList<String>();
+		for (Stripe stripe : stripes)
+		{
+			synchronized (stripe)
+			{
+				keys.addAll(stripe.carts.keySet());
+			}
+		}
+		for (String key : keys)
+		{
+			flush(key);
+		}
+	}
+
+	public int getDirtyCount()
+	{
+		return dirty.size();
+	}
+
+	@Override
+	public void close()
+	{
+		flusher.shutdown();
+		try
+		{
+			flusher.awaitTermination(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		flushAll();
+	}
+
+}
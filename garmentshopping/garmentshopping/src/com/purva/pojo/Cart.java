@@ -14,6 +14,9 @@ public class Cart {
 	public int getFoodId() {
 		return garId;
 	}
+	public int getGarId() {
+		return garId;
+	}
 	public void setGarId(int garId) {
 		this.garId = garId;
 	}
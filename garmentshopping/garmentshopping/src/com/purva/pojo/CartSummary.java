@@ -0,0 +1,48 @@
+package com.purva.pojo;
+
+public class CartSummary {
+
+	private String custEmailId;
+	private int lineCount,itemCount;
+	private double cartTotal;
+	private long version;
+	public String getCustEmailId() {
+		return custEmailId;
+	}
+	public void setCustEmailId(String custEmailId) {
+		this.custEmailId = custEmailId;
+	}
+	public int getLineCount() {
+		return lineCount;
+	}
+	public void setLineCount(int lineCount) {
+		this.lineCount = lineCount;
+	}
+	public int getItemCount() {
+		return itemCount;
+	}
+	public void setItemCount(int itemCount) {
+		this.itemCount = itemCount;
+	}
+	public double getCartTotal() {
+		return cartTotal;
+	}
+	public void setCartTotal(double cartTotal) {
+		this.cartTotal = cartTotal;
+	}
+	public long getVersion() {
+		return version;
+	}
+	public void setVersion(long version) {
+		this.version = version;
+	}
+	public boolean isEmpty() {
+		return lineCount == 0;
+	}
+	@Override
+	public String toString() {
+		return "CartSummary [custEmailId=" + custEmailId + ", lineCount=" + lineCount + ", itemCount=" + itemCount
+				+ ", cartTotal=" + cartTotal + ", version=" + version + "]";
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.purva.pojo;
+
+public class CatalogQuery {
+
+	public enum Sort { GAR_ID, PRICE_ASC, PRICE_DESC }
+
+	private String text,garType;
+	private int minPrice=0,maxPrice=Integer.MAX_VALUE;
+	private Sort sort=Sort.GAR_ID;
+	private int offset=0,limit=20;
+	public String getText() {
+		return text;
+	}
+	public void setText(String text) {
+		this.text = text;
+	}
+	public String getGarType() {
+		return garType;
+	}
+	public void setGarType(String garType) {
+		this.garType = garType;
+	}
+	public int getMinPrice() {
+		return minPrice;
+	}
+	public void setMinPrice(int minPrice) {
+		this.minPrice = minPrice;
+	}
+	public int getMaxPrice() {
+		return maxPrice;
+	}
+	public void setMaxPrice(int maxPrice) {
+		this.maxPrice = maxPrice;
+	}
+	public Sort getSort() {
+		return sort;
+	}
+	public void setSort(Sort sort) {
+		this.sort = sort;
+	}
+	public int getOffset() {
+		return offset;
+	}
+	public void setOffset(int offset) {
+		if (offset < 0) {
+			throw new IllegalArgumentException("offset must not be negative: " + offset);
+		}
+		this.offset = offset;
+	}
+	public int getLimit() {
+		return limit;
+	}
+	public void setLimit(int limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("limit must not be negative: " + limit);
+		}
+		this.limit = limit;
+	}
+	@Override
+	public String toString() {
+		return "CatalogQuery [text=" + text + ", garType=" + garType + ", minPrice=" + minPrice + ", maxPrice="
+				+ maxPrice + ", sort=" + sort + ", offset=" + offset + ", limit=" + limit + "]";
+	}
+
+}
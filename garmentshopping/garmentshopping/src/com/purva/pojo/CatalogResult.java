@@ -0,0 +1,41 @@
+package com.purva.pojo;
+
+import java.util.List;
+import java.util.Map;
+
+public class CatalogResult {
+
+	private List<Garment> garments;
+	private int total;
+	private Map<String, Integer> typeCounts,priceBandCounts;
+	public List<Garment> getGarments() {
+		return garments;
+	}
+	public void setGarments(List<Garment> garments) {
+		this.garments = garments;
+	}
+	public int getTotal() {
+		return total;
+	}
+	public void setTotal(int total) {
+		this.total = total;
+	}
+	public Map<String, Integer> getTypeCounts() {
+		return typeCounts;
+	}
+	public void setTypeCounts(Map<String, Integer> typeCounts) {
+		this.typeCounts = typeCounts;
+	}
+	public Map<String, Integer> getPriceBandCounts() {
+		return priceBandCounts;
+	}
+	public void setPriceBandCounts(Map<String, Integer> priceBandCounts) {
+		this.priceBandCounts = priceBandCounts;
+	}
+	@Override
+	public String toString() {
+		return "CatalogResult [total=" + total + ", garments=" + garments + ", typeCounts=" + typeCounts
+				+ ", priceBandCounts=" + priceBandCounts + "]";
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.purva.pojo;
+
+import java.util.List;
+
+public class CheckoutPage {
+
+	private Customer customer;
+	private List<Cart> cartLines;
+	private CartSummary cartSummary;
+	private List<Garment> catalog;
+	public Customer getCustomer() {
+		return customer;
+	}
+	public void setCustomer(Customer customer) {
+		this.customer = customer;
+	}
+	public List<Cart> getCartLines() {
+		return cartLines;
+	}
+	public void setCartLines(List<Cart> cartLines) {
+		this.cartLines = cartLines;
+	}
+	public CartSummary getCartSummary() {
+		return cartSummary;
+	}
+	public void setCartSummary(CartSummary cartSummary) {
+		this.cartSummary = cartSummary;
+	}
+	public List<Garment> getCatalog() {
+		return catalog;
+	}
+	public void setCatalog(List<Garment> catalog) {
+		this.catalog = catalog;
+	}
+	@Override
+	public String toString() {
+		return "CheckoutPage [customer=" + customer + ", cartLines=" + (cartLines == null ? 0 : cartLines.size())
+				+ ", cartSummary=" + cartSummary + ", catalog=" + (catalog == null ? 0 : catalog.size()) + "]";
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.purva.pojo;
+
+public class OrderStats {
+
+	private String custEmailId;
+	private int orderCount;
+	private double lifetimeSpend;
+	private String lastOrderDate;
+	public String getCustEmailId() {
+		return custEmailId;
+	}
+	public void setCustEmailId(String custEmailId) {
+		this.custEmailId = custEmailId;
+	}
+	public int getOrderCount() {
+		return orderCount;
+	}
+	public void setOrderCount(int orderCount) {
+		this.orderCount = orderCount;
+	}
+	public double getLifetimeSpend() {
+		return lifetimeSpend;
+	}
+	public void setLifetimeSpend(double lifetimeSpend) {
+		this.lifetimeSpend = lifetimeSpend;
+	}
+	public String getLastOrderDate() {
+		return lastOrderDate;
+	}
+	public void setLastOrderDate(String lastOrderDate) {
+		this.lastOrderDate = lastOrderDate;
+	}
+	@Override
+	public String toString() {
+		return "OrderStats [custEmailId=" + custEmailId + ", orderCount=" + orderCount + ", lifetimeSpend="
+				+ lifetimeSpend + ", lastOrderDate=" + lastOrderDate + "]";
+	}
+
+}
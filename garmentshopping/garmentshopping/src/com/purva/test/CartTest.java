@@ -5,6 +5,7 @@ import java.util.Scanner;
 
 import com.purva.daoimpl.CartDaoImpl;
 import com.purva.pojo.Cart;
+import com.purva.pojo.CartSummary;
 
 public class CartTest {
 	public static void main(String[] args) {
@@ -19,6 +20,7 @@ public class CartTest {
 			System.out.println("1.Add in Cart : ");
 			System.out.println("2.Show Cart : ");
 			System.out.println("3.Delete Cart Details : ");
+			System.out.println("4.Show Cart Total : ");
 			
 			choice=sc.nextInt();
 			
@@ -34,11 +36,11 @@ public class CartTest {
 				System.out.println("Enter garment Quantity : ");
 				gQty=sc.nextInt();
 				
-				ct.setCartId(garId);
+				ct.setGarId(garId);
 				ct.setCustEmailId(emailId);
 				ct.setGarQty(gQty);
 				
-				flag=ct.addtoCart(ct);
+				flag=cd.addtoCart(ct);
 				if(flag==true)
 
 				{
@@ -79,6 +81,17 @@ public class CartTest {
 				{
 					System.out.println("Not Deleted");
 				}
+				break;
+				
+			case 4:
+				System.out.println("Enter customer Email Id : ");
+				emailId=sc.next();
+				CartSummary cs=cd.cartSummary(emailId);
+				if(cs!=null)
+				{
+					System.out.println("Items in Cart : "+cs.getItemCount());
+					System.out.println("Cart Total : "+cs.getCartTotal());
+				}
 				
 			}
 		}
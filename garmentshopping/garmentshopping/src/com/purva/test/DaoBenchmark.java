@@ -0,0 +1,573 @@
+package com.purva.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import com.purva.daoimpl.CartDao;
+import com.purva.daoimpl.CartDaoImpl;
+import com.purva.daoimpl.CustomerDao;
+import com.purva.daoimpl.CustomerDaoImpl;
+import com.purva.daoimpl.GarDao;
+import com.purva.daoimpl.GarDaoImpl;
+import com.purva.daoimpl.OrderDao;
+import com.purva.daoimpl.OrderDaoImpl;
+import com.purva.pojo.Cart;
+import com.purva.pojo.Customer;
+import com.purva.pojo.Garment;
+import com.purva.utility.DBUtility;
+import com.purva.utility.QueryMetrics;
+
+/*
+ * Throughput and latency of every GarDaoImpl, CustomerDaoImpl, CartDaoImpl
+ * and OrderDaoImpl method against the EmbeddedDatabase, for each catalog
+ * size and thread count. Each benchmark runs bench.warmup untimed
+ * iterations, then bench.iterations measured ones; an iteration is
+ * bench.ops calls per thread (a tenth of that for batch calls and a
+ * hundredth for full scans). Rows that delete or check out consume are
+ * inserted before the iteration starts and are not timed.
+ *
+ * Settings (system properties):
+ *   bench.sizes      garments per run, comma separated   (1000,10000,100000)
+ *   bench.threads    thread counts, comma separated      (1,4,16)
+ *   bench.ops        calls per thread per iteration      (200)
+ *   bench.warmup     warmup iterations                   (2)
+ *   bench.iterations measured iterations                 (3)
+ *   bench.filter     regex on benchmark names            (all)
+ * plus the usual db.* settings; without -Ddb.url it runs on in-memory H2.
+ * Run with -Ddb.metrics=false to measure without the instrumentation.
+ */
+public class DaoBenchmark {
+
+	private static final int BATCH = 100;
+	private static final int CART_LINES = 3;
+	private static final int PAGE = 50;
+
+	/*
+	 * One benchmarked DAO call. setup() runs untimed before each iteration
+	 * with the total number of calls that iteration will make.
+	 */
+	static abstract class Bench
+	{
+		final String name;
+		final int divisor;
+
+		Bench(String name, int divisor)
+		{
+			this.name = name;
+			this.divisor = divisor;
+		}
+
+		void setup(int calls)
+		{
+		}
+
+		// Returns false when the DAO reported a failure.
+		abstract boolean call(ThreadLocalRandom r);
+	}
+
+	private static int garments;
+	private static int customers;
+	private static final AtomicInteger unique = new AtomicInteger();
+
+	public static void main(String[] args) throws Exception {
+		EmbeddedDatabase.start();
+
+		int[] sizes = ints(System.getProperty("bench.sizes", "1000,10000,100000"));
+		int[] threads = ints(System.getProperty("bench.threads", "1,4,16"));
+		int ops = Integer.getInteger("bench.ops", 200);
+		int warmup = Integer.getInteger("bench.warmup", 2);
+		int iterations = Integer.getInteger("bench.iterations", 3);
+		Pattern filter = Pattern.compile(System.getProperty("bench.filter", ".*"));
+
+		GarDao garDao = new GarDaoImpl();
+		CustomerDao customerDao = new CustomerDaoImpl();
+		CartDao cartDao = new CartDaoImpl();
+		OrderDao orderDao = new OrderDaoImpl(cartDao);
+
+		List<Bench> benches = benches(garDao, customerDao, cartDao, orderDao);
+
+		try
+		{
+			for (int size : sizes)
+			{
+				garments = size;
+				customers = Math.max(10, size / 10);
+				long seedStart = System.nanoTime();
+				EmbeddedDatabase.seed(garments, customers, CART_LINES);
+				System.out.println();
+				System.out.println("== " + garments + " garments, " + customers + " customers, "
+						+ customers * CART_LINES + " cart lines (seeded in "
+						+ (System.nanoTime() - seedStart) / 1000000 + " ms)");
+				System.out.println(String.format("%-22s %7s %12s %10s %10s %10s %7s",
+						"benchmark", "threads", "ops/s", "p50 us", "p99 us", "max us", "errors"));
+
+				for (int t : threads)
+				{
+					for (Bench b : benches)
+					{
+						if (filter.matcher(b.name).matches())
+						{
+							int perThread = Math.max(1, ops / b.divisor);
+							for (int i = 0; i < warmup; i++)
+							{
+								iteration(b, t, perThread);
+							}
+							Result total = new Result();
+							for (int i = 0; i < iterations; i++)
+							{
+								total.add(iteration(b, t, perThread));
+							}
+							System.out.println(total.format(b.name, t));
+						}
+					}
+				}
+				System.out.println("pool: " + DBUtility.getPoolStats());
+				if (QueryMetrics.ENABLED)
+				{
+					System.out.println();
+					System.out.print(QueryMetrics.report());
+					QueryMetrics.reset();
+				}
+			}
+		}
+		finally
+		{
+			DBUtility.shutdown();
+		}
+	}
+
+	private static List<Bench> benches(GarDao garDao, CustomerDao customerDao, CartDao cartDao, OrderDao orderDao)
+	{
+		List<Bench> list = new ArrayList<Bench>();
+
+		// GarDaoImpl
+		list.add(new Bench("displayGarId", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return garDao.displayGarId(garId(r)) != null;
+			}
+		});
+		list.add(new Bench("displayGarPage", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return garDao.displayGarPage(r.nextInt(garments), PAGE) != null;
+			}
+		});
+		list.add(new Bench("displayAllGar", 100) {
+			boolean call(ThreadLocalRandom r) {
+				return garDao.displayAllGar() != null;
+			}
+		});
+		list.add(new Bench("forEachGar", 100) {
+			boolean call(ThreadLocalRandom r) {
+				AtomicLong sum = new AtomicLong();
+				garDao.forEachGar(g -> sum.addAndGet(g.getGarPrice()));
+				return sum.get() > 0;
+			}
+		});
+		list.add(new Bench("streamAllGar", 100) {
+			boolean call(ThreadLocalRandom r) {
+				try (Stream<Garment> s = garDao.streamAllGar())
+				{
+					return s.mapToLong(Garment::getGarPrice).sum() > 0;
+				}
+			}
+		});
+		list.add(new Bench("addGar", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return garDao.addGar(EmbeddedDatabase.garment(unique.incrementAndGet()));
+			}
+		});
+		list.add(new Bench("updateGar", 1) {
+			boolean call(ThreadLocalRandom r) {
+				int garId = garId(r);
+				Garment g = EmbeddedDatabase.garment(garId - 1);
+				g.setGarId(garId);
+				return garDao.updateGar(g);
+			}
+		});
+		list.add(new Bench("deleteGar", 1) {
+			final Queue<Integer> ids = new ConcurrentLinkedQueue<Integer>();
+
+			void setup(int calls) {
+				ids.clear();
+				for (int id : newGarments(calls))
+				{
+					ids.add(id);
+				}
+			}
+
+			boolean call(ThreadLocalRandom r) {
+				return garDao.deleteGar(ids.remove());
+			}
+		});
+		list.add(new Bench("addGars", 10) {
+			boolean call(ThreadLocalRandom r) {
+				List<Garment> batch = new ArrayList<Garment>(BATCH);
+				for (int i = 0; i < BATCH; i++)
+				{
+					batch.add(EmbeddedDatabase.garment(unique.incrementAndGet()));
+				}
+				return garDao.addGars(batch) != null;
+			}
+		});
+		list.add(new Bench("updateGars", 10) {
+			boolean call(ThreadLocalRandom r) {
+				List<Garment> batch = new ArrayList<Garment>(BATCH);
+				for (int i = 0; i < BATCH; i++)
+				{
+					int garId = garId(r);
+					Garment g = EmbeddedDatabase.garment(garId - 1);
+					g.setGarId(garId);
+					batch.add(g);
+				}
+				// A partly failed batch returns only the rows of its committed chunks.
+				return garDao.updateGars(batch) == batch.size();
+			}
+		});
+		list.add(new Bench("deleteGars", 10) {
+			final Queue<int[]> batches = new ConcurrentLinkedQueue<int[]>();
+
+			void setup(int calls) {
+				batches.clear();
+				int[] ids = newGarments(calls * BATCH);
+				for (int i = 0; i < calls; i++)
+				{
+					batches.add(Arrays.copyOfRange(ids, i * BATCH, (i + 1) * BATCH));
+				}
+			}
+
+			boolean call(ThreadLocalRandom r) {
+				return garDao.deleteGars(batches.remove()) == BATCH;
+			}
+		});
+
+		// CustomerDaoImpl
+		list.add(new Bench("displayCustId", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return customerDao.displayCustId(1 + r.nextInt(customers)) != null;
+			}
+		});
+		list.add(new Bench("findByEmail", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return customerDao.findByEmail(email(r)) != null;
+			}
+		});
+		list.add(new Bench("displayCustomerPage", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return customerDao.displayCustomerPage(r.nextInt(customers), PAGE) != null;
+			}
+		});
+		list.add(new Bench("displayAllCustomer", 100) {
+			boolean call(ThreadLocalRandom r) {
+				return customerDao.displayAllCustomer() != null;
+			}
+		});
+		list.add(new Bench("forEachCustomer", 100) {
+			boolean call(ThreadLocalRandom r) {
+				AtomicLong count = new AtomicLong();
+				customerDao.forEachCustomer(c -> count.incrementAndGet());
+				return count.get() > 0;
+			}
+		});
+		list.add(new Bench("streamAllCustomer", 100) {
+			boolean call(ThreadLocalRandom r) {
+				try (Stream<Customer> s = customerDao.streamAllCustomer())
+				{
+					return s.count() > 0;
+				}
+			}
+		});
+		list.add(new Bench("addCustomer", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return customerDao.addCustomer(newCustomer());
+			}
+		});
+		list.add(new Bench("updateCustomer", 1) {
+			boolean call(ThreadLocalRandom r) {
+				int custId = 1 + r.nextInt(customers);
+				Customer c = EmbeddedDatabase.customer(custId - 1);
+				c.setCustId(custId);
+				return customerDao.updateCustomer(c);
+			}
+		});
+		list.add(new Bench("deleteCustomer", 1) {
+			final Queue<Integer> ids = new ConcurrentLinkedQueue<Integer>();
+
+			void setup(int calls) {
+				ids.clear();
+				List<Customer> batch = new ArrayList<Customer>(calls);
+				for (int i = 0; i < calls; i++)
+				{
+					batch.add(newCustomer());
+				}
+				for (int id : customerDao.addCustomers(batch))
+				{
+					ids.add(id);
+				}
+			}
+
+			boolean call(ThreadLocalRandom r) {
+				return customerDao.deleteCustomer(ids.remove());
+			}
+		});
+		list.add(new Bench("addCustomers", 10) {
+			boolean call(ThreadLocalRandom r) {
+				List<Customer> batch = new ArrayList<Customer>(BATCH);
+				for (int i = 0; i < BATCH; i++)
+				{
+					batch.add(newCustomer());
+				}
+				return customerDao.addCustomers(batch) != null;
+			}
+		});
+
+		// CartDaoImpl
+		list.add(new Bench("showCart", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return cartDao.showCart(email(r)) != null;
+			}
+		});
+		list.add(new Bench("cartSummary", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return cartDao.cartSummary(email(r)) != null;
+			}
+		});
+		list.add(new Bench("flushCart", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return cartDao.flushCart(email(r));
+			}
+		});
+		list.add(new Bench("addtoCart", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return cartDao.addtoCart(EmbeddedDatabase.cart(email(r), garId(r), 1));
+			}
+		});
+		list.add(new Bench("deleteCart", 1) {
+			final Queue<Integer> ids = new ConcurrentLinkedQueue<Integer>();
+
+			void setup(int calls) {
+				ids.clear();
+				ThreadLocalRandom r = ThreadLocalRandom.current();
+				List<Cart> batch = new ArrayList<Cart>(calls);
+				for (int i = 0; i < calls; i++)
+				{
+					batch.add(EmbeddedDatabase.cart(email(r), garId(r), 1));
+				}
+				for (int id : cartDao.addtoCarts(batch))
+				{
+					ids.add(id);
+				}
+			}
+
+			boolean call(ThreadLocalRandom r) {
+				return cartDao.deleteCart(ids.remove());
+			}
+		});
+		list.add(new Bench("addtoCarts", 10) {
+			boolean call(ThreadLocalRandom r) {
+				List<Cart> batch = new ArrayList<Cart>(BATCH);
+				for (int i = 0; i < BATCH; i++)
+				{
+					batch.add(EmbeddedDatabase.cart(email(r), garId(r), 1));
+				}
+				return cartDao.addtoCarts(batch) != null;
+			}
+		});
+
+		// OrderDaoImpl
+		list.add(new Bench("checkout", 1) {
+			final Queue<String> buyers = new ConcurrentLinkedQueue<String>();
+
+			void setup(int calls) {
+				buyers.clear();
+				buyers.addAll(newBuyers(calls));
+			}
+
+			boolean call(ThreadLocalRandom r) {
+				return orderDao.checkout(buyers.remove()) > 0;
+			}
+		});
+		list.add(new Bench("placeOrder", 1) {
+			final Queue<String> buyers = new ConcurrentLinkedQueue<String>();
+
+			void setup(int calls) {
+				buyers.clear();
+				buyers.addAll(newBuyers(calls));
+			}
+
+			boolean call(ThreadLocalRandom r) {
+				return orderDao.placeOrder(buyers.remove());
+			}
+		});
+		list.add(new Bench("showOrder", 100) {
+			boolean call(ThreadLocalRandom r) {
+				return orderDao.showOrder() != null;
+			}
+		});
+		list.add(new Bench("showOrders", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return orderDao.showOrders(email(r), 0, PAGE) != null;
+			}
+		});
+		list.add(new Bench("showOrdersBetween", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return orderDao.showOrdersBetween("2000-01-01", "2100-01-01", null, PAGE) != null;
+			}
+		});
+		list.add(new Bench("orderStats", 1) {
+			boolean call(ThreadLocalRandom r) {
+				return orderDao.orderStats(email(r)) != null;
+			}
+		});
+
+		return list;
+	}
+
+	private static Result iteration(Bench b, int threads, int perThread) throws InterruptedException
+	{
+		b.setup(threads * perThread);
+
+		Result result = new Result();
+		long[][] latencies = new long[threads][perThread];
+		AtomicInteger errors = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++)
+		{
+			long[] mine = latencies[t];
+			Thread worker = new Thread(() -> {
+				try
+				{
+					start.await();
+					ThreadLocalRandom r = ThreadLocalRandom.current();
+					for (int i = 0; i < perThread; i++)
+					{
+						long begin = System.nanoTime();
+						boolean ok;
+						try
+						{
+							ok = b.call(r);
+						}
+						catch (RuntimeException e)
+						{
+							ok = false;
+						}
+						mine[i] = System.nanoTime() - begin;
+						if (!ok)
+						{
+							errors.incrementAndGet();
+						}
+					}
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				finally
+				{
+					done.countDown();
+				}
+			}, "bench-" + t);
+			worker.setDaemon(true);
+			worker.start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		result.nanos = System.nanoTime() - begin;
+		result.errors = errors.get();
+		for (long[] l : latencies)
+		{
+			result.latencies.add(l);
+		}
+		return result;
+	}
+
+	private static class Result
+	{
+		long nanos;
+		int errors;
+		final List<long[]> latencies = new ArrayList<long[]>();
+
+		void add(Result other)
+		{
+			nanos += other.nanos;
+			errors += other.errors;
+			latencies.addAll(other.latencies);
+		}
+
+		String format(String name, int threads)
+		{
+			long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+			return String.format("%-22s %7d %12.1f %10.1f %10.1f %10.1f %7d", name, threads,
+					all.length * 1e9 / nanos, percentile(all, 0.50), percentile(all, 0.99),
+					all[all.length - 1] / 1000.0, errors);
+		}
+
+		private static double percentile(long[] sorted, double p)
+		{
+			return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1000.0;
+		}
+	}
+
+	private static int garId(ThreadLocalRandom r)
+	{
+		return 1 + r.nextInt(garments);
+	}
+
+	private static String email(ThreadLocalRandom r)
+	{
+		return EmbeddedDatabase.email(r.nextInt(customers));
+	}
+
+	private static Customer newCustomer()
+	{
+		int i = unique.incrementAndGet();
+		Customer c = EmbeddedDatabase.customer(i);
+		c.setCustEmailId("bench" + i + "@example.com");
+		return c;
+	}
+
+	private static int[] newGarments(int count)
+	{
+		List<Garment> batch = new ArrayList<Garment>(count);
+		for (int i = 0; i < count; i++)
+		{
+			batch.add(EmbeddedDatabase.garment(unique.incrementAndGet()));
+		}
+		return new GarDaoImpl().addGars(batch);
+	}
+
+	// Fresh customers with CART_LINES lines each, ready to check out.
+	private static List<String> newBuyers(int count)
+	{
+		ThreadLocalRandom r = ThreadLocalRandom.current();
+		List<String> emails = new ArrayList<String>(count);
+		List<Cart> carts = new ArrayList<Cart>(count * CART_LINES);
+		for (int i = 0; i < count; i++)
+		{
+			String email = "buyer" + unique.incrementAndGet() + "@example.com";
+			emails.add(email);
+			for (int j = 0; j < CART_LINES; j++)
+			{
+				carts.add(EmbeddedDatabase.cart(email, garId(r), 1 + j));
+			}
+		}
+		new CartDaoImpl().addtoCarts(carts);
+		return emails;
+	}
+
+	private static int[] ints(String csv)
+	{
+		return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+	}
+
+}
@@ -0,0 +1,288 @@
+package com.purva.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.purva.daoimpl.CartDaoImpl;
+import com.purva.daoimpl.CustomerDaoImpl;
+import com.purva.daoimpl.GarDaoImpl;
+import com.purva.pojo.Cart;
+import com.purva.pojo.Customer;
+import com.purva.pojo.Garment;
+import com.purva.utility.DBUtility;
+import com.purva.utility.Schema;
+
+/*
+ * Stand-in for the MySQL shopping database, for tests and benchmarks that
+ * must run without a server. By default it points DBUtility at an in-memory
+ * H2 database in MySQL mode (the H2 jar has to be on the classpath); any
+ * -Ddb.url / -Ddb.driver given on the command line wins, so the same code
+ * can be aimed at a scratch MySQL schema.
+ *
+ * start(replicas) adds that many in-memory read replicas (db.read.urls).
+ * Nothing replicates between them: syncReplicas() copies the primary over,
+ * and until it runs the replicas are as stale as a lagging MySQL replica.
+ *
+ * start() must run before anything else touches DBUtility, which reads the
+ * connection settings once.
+ */
+public class EmbeddedDatabase {
+
+	public static final String H2_URL = "jdbc:h2:mem:shopping;MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+	public static final String H2_REPLICA_URL = "jdbc:h2:mem:shopping_replica%d;MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=TRUE";
+	public static final String H2_DRIVER = "org.h2.Driver";
+
+	private static final String[] TYPES = { "Shirt", "Trouser", "Kurta", "Saree", "Jacket", "Dress", "Sweater", "Jeans" };
+	private static final String[] WORDS = { "cotton", "linen", "silk", "denim", "wool", "slim", "classic", "printed",
+			"striped", "casual", "formal", "summer" };
+
+	private static boolean started;
+
+	/*
+	 * Points DBUtility at the embedded database unless the caller already
+	 * chose one. Safe to call more than once.
+	 */
+	public static void start()
+	{
+		start(0);
+	}
+
+	public static synchronized void start(int replicas)
+	{
+		if (started)
+		{
+			return;
+		}
+		if (System.getProperty("db.url") == null)
+		{
+			System.setProperty("db.url", H2_URL);
+			System.setProperty("db.driver", System.getProperty("db.driver", H2_DRIVER));
+			System.setProperty("db.user", System.getProperty("db.user", "sa"));
+			System.setProperty("db.password", System.getProperty("db.password", ""));
+			if (replicas > 0 && System.getProperty("db.read.urls") == null)
+			{
+				StringBuilder urls = new StringBuilder();
+				for (int i = 1; i <= replicas; i++)
+				{
+					urls.append(i > 1 ? "," : "").append(String.format(H2_REPLICA_URL, i));
+				}
+				System.setProperty("db.read.urls", urls.toString());
+			}
+		}
+		started = true;
+	}
+
+	private static List<String> replicaUrls()
+	{
+		List<String> urls = new ArrayList<String>();
+		for (String url : System.getProperty("db.read.urls", "").split(","))
+		{
+			if (!url.trim().isEmpty())
+			{
+				urls.add(url.trim());
+			}
+		}
+		return urls;
+	}
+
+	private static Connection replica(String url) throws SQLException
+	{
+		return DriverManager.getConnection(url, System.getProperty("db.read.user", System.getProperty("db.user")),
+				System.getProperty("db.read.password", System.getProperty("db.password")));
+	}
+
+	/*
+	 * Drops every table and migrates to Schema.LATEST, on the primary and on
+	 * every replica, so each run starts from the same state.
+	 */
+	public static void reset() throws SQLException
+	{
+		reset(Schema.LATEST);
+	}
+
+	/*
+	 * As reset(), but only up to the given schema version, e.g.
+	 * Schema.TABLES_VERSION for the tables without their indexes.
+	 */
+	public static void reset(int version) throws SQLException
+	{
+		start();
+		try (Connection con = DBUtility.establishConnection())
+		{
+			recreate(con, version);
+		}
+		for (String url : replicaUrls())
+		{
+			try (Connection con = replica(url))
+			{
+				recreate(con, version);
+			}
+		}
+	}
+
+	private static void recreate(Connection con, int version) throws SQLException
+	{
+		try (Statement st = con.createStatement())
+		{
+			for (String table : Schema.TABLES)
+			{
+				st.execute("drop table if exists " + table);
+			}
+			st.execute("drop table if exists " + Schema.VERSION);
+		}
+		Schema.migrate(con, version);
+	}
+
+	/*
+	 * Brings every replica up to date by copying each table from the primary.
+	 */
+	public static void syncReplicas() throws SQLException
+	{
+		List<String> urls = replicaUrls();
+		if (urls.isEmpty())
+		{
+			return;
+		}
+		try (Connection primary = DBUtility.establishConnection())
+		{
+			for (String url : urls)
+			{
+				try (Connection con = replica(url))
+				{
+					con.setAutoCommit(false);
+					for (String table : Schema.TABLES)
+					{
+						copy(primary, con, table);
+					}
+					con.commit();
+				}
+			}
+		}
+	}
+
+	private static void copy(Connection from, Connection to, String table) throws SQLException
+	{
+		try (Statement st = to.createStatement())
+		{
+			st.execute("delete from " + table);
+		}
+		try (Statement select = from.createStatement();
+				ResultSet rs = select.executeQuery("select * from " + table))
+		{
+			int columns = rs.getMetaData().getColumnCount();
+			StringBuilder sql = new StringBuilder("insert into " + table + " values (");
+			for (int i = 1; i <= columns; i++)
+			{
+				sql.append(i > 1 ? ",?" : "?");
+			}
+			try (PreparedStatement ps = to.prepareStatement(sql.append(")").toString()))
+			{
+				int pending = 0;
+				while (rs.next())
+				{
+					for (int i = 1; i <= columns; i++)
+					{
+						ps.setObject(i, rs.getObject(i));
+					}
+					ps.addBatch();
+					if (++pending == 1000)
+					{
+						ps.executeBatch();
+						pending = 0;
+					}
+				}
+				ps.executeBatch();
+			}
+		}
+	}
+
+	/*
+	 * Fresh schema with the given number of garments and customers, and
+	 * cartLines cart lines for each customer. Goes through the batch DAO
+	 * methods, so it also exercises them. Customer i has the email
+	 * email(i) and garment ids run from 1 to garments.
+	 */
+	public static void seed(int garments, int customers, int cartLines) throws SQLException
+	{
+		reset();
+
+		List<Garment> gars = new ArrayList<Garment>(garments);
+		for (int i = 0; i < garments; i++)
+		{
+			gars.add(garment(i));
+		}
+		if (!gars.isEmpty() && new GarDaoImpl().addGars(gars) == null)
+		{
+			throw new SQLException("Seeding " + garments + " garments failed");
+		}
+
+		List<Customer> custs = new ArrayList<Customer>(customers);
+		for (int i = 0; i < customers; i++)
+		{
+			custs.add(customer(i));
+		}
+		if (!custs.isEmpty() && new CustomerDaoImpl().addCustomers(custs) == null)
+		{
+			throw new SQLException("Seeding " + customers + " customers failed");
+		}
+
+		if (garments > 0 && cartLines > 0)
+		{
+			List<Cart> carts = new ArrayList<Cart>(customers * cartLines);
+			for (int i = 0; i < customers; i++)
+			{
+				for (int j = 0; j < cartLines; j++)
+				{
+					carts.add(cart(email(i), 1 + (i * 31 + j * 7) % garments, 1 + j % 3));
+				}
+			}
+			if (new CartDaoImpl().addtoCarts(carts) == null)
+			{
+				throw new SQLException("Seeding " + carts.size() + " cart lines failed");
+			}
+		}
+		syncReplicas();
+	}
+
+	public static String email(int i)
+	{
+		return "customer" + i + "@example.com";
+	}
+
+	public static Garment garment(int i)
+	{
+		Garment g = new Garment();
+		g.setGarName(WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " "
+				+ TYPES[i % TYPES.length].toLowerCase() + " " + i);
+		g.setGarType(TYPES[i % TYPES.length]);
+		g.setGarPrice(199 + (i * 37) % 4800);
+		return g;
+	}
+
+	public static Customer customer(int i)
+	{
+		Customer c = new Customer();
+		c.setCustName("Customer " + i);
+		c.setCustAddr(i + " Market Road");
+		c.setCustCont(900000000 + i);
+		c.setCustEmailId(email(i));
+		c.setPassword("secret" + i);
+		return c;
+	}
+
+	public static Cart cart(String email, int garId, int qty)
+	{
+		Cart ct = new Cart();
+		ct.setCustEmailId(email);
+		ct.setGarId(garId);
+		ct.setGarQty(qty);
+		return ct;
+	}
+
+}
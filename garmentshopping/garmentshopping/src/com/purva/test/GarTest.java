@@ -1,9 +1,12 @@
 package com.purva.test;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
+import com.purva.daoimpl.CatalogImporter;
 import com.purva.daoimpl.GarDaoImpl;
 import com.purva.pojo.Garment;
 
@@ -27,6 +30,7 @@ public class GarTest {
 		System.out.println("3.Delete any garment Details");
 		System.out.println("4.Display Garment Id");
 		System.out.println("5.Display All Garment Details");
+		System.out.println("7.Import Catalog File (.csv or .ndjson)");
 		
 		System.out.println("Enter Element Number :");
 		choice=sc.nextInt();
@@ -146,6 +150,28 @@ public class GarTest {
 	case 6:
 		System.exit(0);
 		break;
+	case 7:
+		System.out.println("Enter catalog file path : ");
+		String file=sc.next();
+		
+		System.out.println("Resume from checkpoint (y/n) : ");
+		boolean resume=sc.next().equalsIgnoreCase("y");
+		
+		try
+		{
+			CatalogImporter.Result r=new CatalogImporter(gd).importFile(Paths.get(file), resume);
+			System.out.println(r);
+			if(r.getRejected()>0)
+			{
+				System.out.println("Rejected rows are listed in "+file+".rejects");
+			}
+		}
+		catch(IOException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+		break;
 	}
 		sc.close();
 		
@@ -0,0 +1,212 @@
+package com.purva.test;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.purva.daoimpl.CartDao;
+import com.purva.daoimpl.CartDaoImpl;
+import com.purva.daoimpl.Inventory;
+import com.purva.daoimpl.InventoryCartDao;
+import com.purva.daoimpl.OrderDao;
+import com.purva.daoimpl.OrderDaoImpl;
+import com.purva.pojo.Cart;
+
+/*
+ * Flash-sale contention check: thousands of shoppers check out the same hot
+ * garment at once, and nothing may be oversold. Variants:
+ *   cas         - Inventory.reserve and confirm, as InventoryCartDao does
+ *   global-lock - the same calls serialized behind one lock
+ *   hold-all    - holdAll and confirmAll over a one-line cart, as checkout does
+ *   counter     - only the compare-and-set on the hot garment's counter
+ * The variants run in a different order each round, so JIT warm-up does not
+ * favour the first. CAS only beats the lock when shoppers run on several
+ * cores at once; on one processor the lock is never contended, and both
+ * are bound by the reservation bookkeeping, which counter leaves out.
+ * With databaseShoppers > 0 that many shoppers then run the real path
+ * against EmbeddedDatabase (or -Ddb.url): add the hot garment to the cart
+ * through InventoryCartDao and OrderDaoImpl.checkout it, perShopper times.
+ * Arguments: [shoppers] [stock] [checkoutsPerShopper] [databaseShoppers]
+ */
+public class InventoryBenchmark {
+
+	private static final int HOT_GAR_ID = 1;
+	private static final String[] VARIANTS = { "cas", "global-lock", "hold-all", "counter" };
+
+	interface Shop
+	{
+		boolean checkout(String email) throws SQLException;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int shoppers = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int stock = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+		int perShopper = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+		int databaseShoppers = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+		for (int round = 1; round <= 3; round++)
+		{
+			System.out.println("Round " + round);
+			for (int i = 0; i < VARIANTS.length; i++)
+			{
+				variant(VARIANTS[(i + round) % VARIANTS.length], shoppers, stock, perShopper);
+			}
+		}
+		if (databaseShoppers > 0)
+		{
+			checkouts(databaseShoppers, stock, perShopper);
+		}
+	}
+
+	private static void variant(String name, int shoppers, int stock, int perShopper) throws InterruptedException
+	{
+		if (name.equals("counter"))
+		{
+			AtomicInteger available = new AtomicInteger(stock);
+			run(name, shoppers, perShopper, stock, email -> {
+				for (;;)
+				{
+					int left = available.get();
+					if (left < 1)
+					{
+						return false;
+					}
+					if (available.compareAndSet(left, left - 1))
+					{
+						return true;
+					}
+				}
+			});
+			return;
+		}
+		try (Inventory inventory = new Inventory(60000, 0))
+		{
+			inventory.track(HOT_GAR_ID, stock);
+			if (name.equals("cas"))
+			{
+				run(name, shoppers, perShopper, stock, email -> {
+					Inventory.Reservation r = inventory.reserve(email, HOT_GAR_ID, 1);
+					return r != null && inventory.confirm(r);
+				});
+			}
+			else if (name.equals("global-lock"))
+			{
+				Object globalLock = new Object();
+				run(name, shoppers, perShopper, stock, email -> {
+					synchronized (globalLock)
+					{
+						Inventory.Reservation r = inventory.reserve(email, HOT_GAR_ID, 1);
+						return r != null && inventory.confirm(r);
+					}
+				});
+			}
+			else
+			{
+				// A tracked garment never reads the connection, so there is none.
+				run(name, shoppers, perShopper, stock, email -> {
+					List<Cart> lines = Collections.singletonList(EmbeddedDatabase.cart(email, HOT_GAR_ID, 1));
+					List<Inventory.Reservation> held = inventory.holdAll(null, email, lines);
+					return held != null && inventory.confirmAll(held);
+				});
+			}
+			System.out.println("  " + name + " left in stock : " + inventory.available(HOT_GAR_ID));
+		}
+	}
+
+	/*
+	 * The whole checkout against the database: cart insert with a
+	 * reservation, then the order transaction that holds and confirms it.
+	 * Confirmed units are reconciled to Stock_21828 when the inventory
+	 * closes, so onHand must come out as stock minus what was sold.
+	 */
+	private static void checkouts(int shoppers, int stock, int perShopper) throws Exception
+	{
+		System.out.println("Database checkout");
+		EmbeddedDatabase.start();
+		EmbeddedDatabase.seed(1, shoppers, 0);
+		AtomicInteger outOfStock = new AtomicInteger();
+		AtomicInteger failed = new AtomicInteger();
+		try (Inventory inventory = new Inventory(60000, 1000))
+		{
+			if (!inventory.restock(HOT_GAR_ID, stock))
+			{
+				throw new SQLException("Restocking garment " + HOT_GAR_ID + " failed");
+			}
+			CartDao cartDao = new InventoryCartDao(new CartDaoImpl(), inventory);
+			OrderDao orderDao = new OrderDaoImpl(cartDao);
+			run("checkout", shoppers, perShopper, stock, email -> {
+				if (!cartDao.addtoCart(EmbeddedDatabase.cart(email, HOT_GAR_ID, 1)))
+				{
+					outOfStock.incrementAndGet();
+					return false;
+				}
+				int orderId = orderDao.checkout(email);
+				if (orderId == OrderDao.OUT_OF_STOCK)
+				{
+					outOfStock.incrementAndGet();
+				}
+				else if (orderId <= 0)
+				{
+					failed.incrementAndGet();
+				}
+				return orderId > 0;
+			});
+		}
+		try (Inventory reloaded = new Inventory(60000, 0))
+		{
+			System.out.println("  out of stock " + outOfStock.get() + ", failed " + failed.get()
+					+ ", onHand in the database " + reloaded.available(HOT_GAR_ID));
+		}
+	}
+
+	private static void run(String name, int shoppers, int perShopper, int stock, Shop shop) throws InterruptedException
+	{
+		AtomicInteger sold = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(shoppers);
+		for (int i = 0; i < shoppers; i++)
+		{
+			String email = EmbeddedDatabase.email(i);
+			Thread t = new Thread(() -> {
+				try
+				{
+					start.await();
+					for (int j = 0; j < perShopper; j++)
+					{
+						if (shop.checkout(email))
+						{
+							sold.incrementAndGet();
+						}
+					}
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				catch (SQLException e)
+				{
+					System.out.println(e);
+				}
+				finally
+				{
+					done.countDown();
+				}
+			});
+			t.setDaemon(true);
+			t.start();
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		done.await();
+		long nanos = System.nanoTime() - begin;
+		long attempts = (long) shoppers * perShopper;
+		int expected = (int) Math.min(stock, attempts);
+		System.out.println("  " + name + " : " + shoppers + " shoppers, " + attempts + " checkouts in "
+				+ nanos / 1000000 + " ms (" + (long) (attempts * 1e9 / nanos) + "/s), sold " + sold.get() + "/" + expected
+				+ (sold.get() == expected ? " OK" : " OVERSOLD OR LOST"));
+	}
+
+}
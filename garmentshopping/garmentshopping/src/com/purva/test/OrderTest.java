@@ -21,6 +21,8 @@ public class OrderTest {
 	     try (Scanner sc = new Scanner(System.in)) {
 			System.out.println("1.Place Order");
 			 System.out.println("2.Show Order");
+			 System.out.println("3.Order History");
+			 System.out.println("4.Order Stats");
 			 
 			 System.out.println("Enter your choice : ");
 			 choice=sc.nextInt();
@@ -54,6 +56,36 @@ public class OrderTest {
 						System.out.println(i);
 					} 
 				 break;
+
+			 case 3:
+				 System.out.println("Enter Customer EmailId : ");
+				 emailid =sc.next();
+				 int before=0;
+				 while(true)
+				 {
+					 List<Order> page = od.showOrders(emailid, before, 10);
+					 for(Order i : page)
+					 {
+						 System.out.println(i);
+						 before=i.getOrderId();
+					 }
+					 if(page.size()<10)
+					 {
+						 break;
+					 }
+					 System.out.println("Show more? (y/n) : ");
+					 if(!sc.next().equalsIgnoreCase("y"))
+					 {
+						 break;
+					 }
+				 }
+				 break;
+
+			 case 4:
+				 System.out.println("Enter Customer EmailId : ");
+				 emailid =sc.next();
+				 System.out.println(od.orderStats(emailid));
+				 break;
 				 
 			 
 			 }
@@ -0,0 +1,89 @@
+package com.purva.test;
+
+import java.util.List;
+
+import com.purva.daoimpl.CartDao;
+import com.purva.daoimpl.CartDaoImpl;
+import com.purva.daoimpl.GarDao;
+import com.purva.daoimpl.GarDaoImpl;
+import com.purva.pojo.Cart;
+import com.purva.utility.ConnectionPool;
+import com.purva.utility.DBUtility;
+
+/*
+ * Read/write splitting against a primary and two embedded read replicas
+ * that only catch up when told to (EmbeddedDatabase.syncReplicas). Checks
+ * that a customer sees their own cart change straight away, that other
+ * reads are spread over the replicas, and that once the sticky window has
+ * passed the customer reads from a replica again.
+ * Needs the H2 jar on the classpath. Argument: [catalogReads]
+ */
+public class ReadRoutingTest {
+
+	private static final long STICKY_MS = 300;
+
+	public static void main(String[] args) throws Exception {
+		int catalogReads = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		System.setProperty("db.read.stickyMs", String.valueOf(STICKY_MS));
+		EmbeddedDatabase.start(2);
+
+		try
+		{
+			EmbeddedDatabase.seed(100, 10, 2);
+			Thread.sleep(STICKY_MS);
+
+			CartDao cartDao = new CartDaoImpl();
+			GarDao garDao = new GarDaoImpl();
+			String writer = EmbeddedDatabase.email(0);
+			String other = EmbeddedDatabase.email(1);
+
+			check("writer sees own line at once", cartDao.addtoCart(EmbeddedDatabase.cart(writer, 42, 1))
+					&& lines(cartDao.showCart(writer), 42) == 1);
+			check("other customer unaffected", cartDao.showCart(other).size() == 2);
+
+			long[] before = DBUtility.getReadRoutingCounts();
+			for (int i = 0; i < catalogReads; i++)
+			{
+				garDao.displayGarId(1 + i % 100);
+			}
+			long[] after = DBUtility.getReadRoutingCounts();
+			check("catalog reads served by replicas", after[0] - before[0] == catalogReads);
+			List<ConnectionPool.PoolStats> replicas = DBUtility.getReadPoolStats();
+			for (int i = 0; i < replicas.size(); i++)
+			{
+				System.out.println("  replica " + (i + 1) + ": " + replicas.get(i).getBorrowed() + " borrows");
+			}
+
+			Thread.sleep(STICKY_MS);
+			check("after the sticky window the replica is stale", lines(cartDao.showCart(writer), 42) == 0);
+			EmbeddedDatabase.syncReplicas();
+			check("and catches up once replicated", lines(cartDao.showCart(writer), 42) == 1);
+
+			long[] counts = DBUtility.getReadRoutingCounts();
+			System.out.println("replica reads " + counts[0] + ", sticky reads " + counts[1] + ", fallbacks " + counts[2]);
+		}
+		finally
+		{
+			DBUtility.shutdown();
+		}
+	}
+
+	private static int lines(List<Cart> cart, int garId)
+	{
+		int n = 0;
+		for (Cart ct : cart)
+		{
+			if (ct.getGarId() == garId)
+			{
+				n++;
+			}
+		}
+		return n;
+	}
+
+	private static void check(String what, boolean ok)
+	{
+		System.out.println((ok ? "OK     " : "FAILED ") + what);
+	}
+
+}
@@ -0,0 +1,224 @@
+package com.purva.test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.purva.daoimpl.CartDao;
+import com.purva.daoimpl.CartDaoImpl;
+import com.purva.daoimpl.CustomerDao;
+import com.purva.daoimpl.CustomerDaoImpl;
+import com.purva.daoimpl.OrderDao;
+import com.purva.daoimpl.OrderDaoImpl;
+import com.purva.utility.DBUtility;
+import com.purva.utility.Schema;
+
+/*
+ * Latency of the DAO lookups that Schema's index migration exists for,
+ * measured at bench.rows customers, cart lines and orders. The tables are
+ * first built at Schema.TABLES_VERSION, without secondary indexes, and
+ * every lookup is timed. Then the database is migrated to Schema.LATEST,
+ * which also times each index build, and the same lookups are timed
+ * again. displayCustId goes by primary key and is the control.
+ *
+ * Settings (system properties):
+ *   bench.rows   customers, cart lines and orders   (1000000)
+ *   bench.ops    timed calls per lookup and phase   (50)
+ * plus the usual db.* settings; without -Ddb.url it runs on in-memory H2.
+ */
+public class SchemaBenchmark {
+
+	private static final int GARMENTS = 10000;
+	private static final int LOAD_BATCH = 5000;
+	private static final int PAGE = 20;
+	private static final LocalDateTime FIRST_ORDER = LocalDateTime.of(2024, 1, 1, 0, 0);
+	private static final DateTimeFormatter SQL_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	private interface Lookup
+	{
+		// Returns false when the DAO reported a failure.
+		boolean call(ThreadLocalRandom r);
+	}
+
+	private static int rows;
+
+	public static void main(String[] args) throws Exception {
+		rows = Integer.getInteger("bench.rows", 1000000);
+		int ops = Integer.getInteger("bench.ops", 50);
+		EmbeddedDatabase.start();
+
+		try
+		{
+			EmbeddedDatabase.reset(Schema.TABLES_VERSION);
+			long start = System.nanoTime();
+			load();
+			System.out.println("Loaded " + rows + " customers, cart lines and orders in "
+					+ (System.nanoTime() - start) / 1000000 + "ms");
+
+			List<String> names = new ArrayList<String>();
+			List<Lookup> lookups = lookups(names);
+			long[][] before = new long[lookups.size()][];
+			for (int i = 0; i < lookups.size(); i++)
+			{
+				before[i] = time(lookups.get(i), ops);
+			}
+
+			try (Connection con = DBUtility.establishConnection())
+			{
+				Schema.migrate(con);
+			}
+
+			System.out.println();
+			System.out.println(String.format("%-20s %12s %12s %12s %12s %9s", "lookup", "before p50", "before p99",
+					"after p50", "after p99", "speedup"));
+			for (int i = 0; i < lookups.size(); i++)
+			{
+				long[] after = time(lookups.get(i), ops);
+				System.out.println(String.format("%-20s %10.2fms %10.2fms %10.2fms %10.2fms %8.0fx", names.get(i),
+						percentile(before[i], 0.50), percentile(before[i], 0.99),
+						percentile(after, 0.50), percentile(after, 0.99),
+						percentile(before[i], 0.50) / Math.max(percentile(after, 0.50), 0.001)));
+			}
+		}
+		finally
+		{
+			DBUtility.shutdown();
+		}
+	}
+
+	private static List<Lookup> lookups(List<String> names)
+	{
+		CustomerDao customerDao = new CustomerDaoImpl();
+		CartDao cartDao = new CartDaoImpl();
+		OrderDao orderDao = new OrderDaoImpl();
+		List<Lookup> lookups = new ArrayList<Lookup>();
+
+		names.add("displayCustId");
+		lookups.add(r -> customerDao.displayCustId(1 + r.nextInt(rows)) != null);
+		names.add("findByEmail");
+		lookups.add(r -> customerDao.findByEmail(EmbeddedDatabase.email(r.nextInt(rows))) != null);
+		names.add("showCart");
+		lookups.add(r -> cartDao.showCart(EmbeddedDatabase.email(r.nextInt(rows))) != null);
+		names.add("showOrders");
+		lookups.add(r -> orderDao.showOrders(EmbeddedDatabase.email(r.nextInt(rows)), Integer.MAX_VALUE, PAGE) != null);
+		names.add("showOrdersBetween");
+		lookups.add(r -> {
+			LocalDateTime from = FIRST_ORDER.plusMinutes(r.nextInt(rows));
+			return orderDao.showOrdersBetween(from.format(SQL_DATE), from.plusHours(1).format(SQL_DATE), null, PAGE) != null;
+		});
+		return lookups;
+	}
+
+	/*
+	 * One warmup call, then ops timed ones. Returns sorted latencies in nanos.
+	 */
+	private static long[] time(Lookup lookup, int ops)
+	{
+		ThreadLocalRandom r = ThreadLocalRandom.current();
+		if (!lookup.call(r))
+		{
+			throw new IllegalStateException("DAO call failed");
+		}
+		long[] nanos = new long[ops];
+		for (int i = 0; i < ops; i++)
+		{
+			long start = System.nanoTime();
+			if (!lookup.call(r))
+			{
+				throw new IllegalStateException("DAO call failed");
+			}
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		return nanos;
+	}
+
+	private static double percentile(long[] sorted, double p)
+	{
+		return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+	}
+
+	/*
+	 * Plain JDBC batches on one connection: the DAO batch methods would also
+	 * maintain cart summaries, which this benchmark does not read.
+	 * Customer i has cart line i and order i, placed i minutes after
+	 * FIRST_ORDER, so an hour's window holds about 60 orders.
+	 */
+	private static void load() throws SQLException
+	{
+		try (Connection con = DBUtility.establishConnection())
+		{
+			con.setAutoCommit(false);
+			try (PreparedStatement ps = con.prepareStatement("insert into " + Schema.GARMENT
+					+ "(garName, garType, garPrice) values (?,?,?)"))
+			{
+				for (int i = 0; i < GARMENTS; i++)
+				{
+					ps.setString(1, EmbeddedDatabase.garment(i).getGarName());
+					ps.setString(2, EmbeddedDatabase.garment(i).getGarType());
+					ps.setInt(3, EmbeddedDatabase.garment(i).getGarPrice());
+					add(con, ps, i);
+				}
+				ps.executeBatch();
+			}
+			try (PreparedStatement ps = con.prepareStatement("insert into " + Schema.CUSTOMER
+					+ "(custName, custAddr, custCont, custEmailId, custPassword) values (?,?,?,?,?)"))
+			{
+				for (int i = 0; i < rows; i++)
+				{
+					ps.setString(1, "Customer " + i);
+					ps.setString(2, i + " Market Road");
+					ps.setInt(3, 900000000 + i);
+					ps.setString(4, EmbeddedDatabase.email(i));
+					ps.setString(5, "secret" + i);
+					add(con, ps, i);
+				}
+				ps.executeBatch();
+			}
+			try (PreparedStatement ps = con.prepareStatement("insert into " + Schema.CART
+					+ "(garId, custEmailId, garQty, garPrice) values (?,?,?,?)"))
+			{
+				for (int i = 0; i < rows; i++)
+				{
+					ps.setInt(1, 1 + i % GARMENTS);
+					ps.setString(2, EmbeddedDatabase.email(i));
+					ps.setInt(3, 1 + i % 3);
+					ps.setDouble(4, 199 + i % 4800);
+					add(con, ps, i);
+				}
+				ps.executeBatch();
+			}
+			try (PreparedStatement ps = con.prepareStatement("insert into " + Schema.ORDER
+					+ "(custEmailId, orderDate, totalBill) values (?,?,?)"))
+			{
+				for (int i = 0; i < rows; i++)
+				{
+					ps.setString(1, EmbeddedDatabase.email(i));
+					ps.setTimestamp(2, Timestamp.valueOf(FIRST_ORDER.plusMinutes(i)));
+					ps.setDouble(3, 199 + i % 9000);
+					add(con, ps, i);
+				}
+				ps.executeBatch();
+			}
+			con.commit();
+		}
+	}
+
+	private static void add(Connection con, PreparedStatement ps, int i) throws SQLException
+	{
+		ps.addBatch();
+		if ((i + 1) % LOAD_BATCH == 0)
+		{
+			ps.executeBatch();
+			con.commit();
+		}
+	}
+
+}
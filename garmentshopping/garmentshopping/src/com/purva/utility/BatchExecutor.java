@@ -0,0 +1,140 @@
+package com.purva.utility;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Runs one statement over many rows with addBatch/executeBatch,
+ * committing each chunk in its own transaction.
+ * With rewriteBatchedStatements=true on the MySQL URL the driver turns each
+ * insert batch into multi-row INSERT statements.
+ */
+public class BatchExecutor {
+
+	public static final int DEFAULT_BATCH_SIZE = Integer.getInteger("db.batchSize", 1000);
+
+	public interface Binder<T>
+	{
+		void bind(PreparedStatement ps, T item) throws SQLException;
+	}
+
+	/*
+	 * Thrown when a chunk fails. The chunks before it stay committed:
+	 * getResults() holds their keys or counts, and 0 for every row from
+	 * getCommitted() on.
+	 */
+	public static class PartialBatchException extends SQLException
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int[] results;
+		private final int committed;
+
+		PartialBatchException(SQLException cause, int[] results, int committed)
+		{
+			super(cause.getMessage() + " (" + committed + " of " + results.length + " rows committed)",
+					cause.getSQLState(), cause.getErrorCode(), cause);
+			this.results = results;
+			this.committed = committed;
+		}
+
+		public int[] getResults()
+		{
+			return results;
+		}
+
+		public int getCommitted()
+		{
+			return committed;
+		}
+	}
+
+	/*
+	 * Returns the generated key of every row when returnKeys is set,
+	 * otherwise the update count of every row. If a chunk fails it is rolled
+	 * back and a PartialBatchException is thrown; earlier chunks stay committed.
+	 */
+	public static <T> int[] execute(String sql, List<T> items, int batchSize, boolean returnKeys, Binder<T> binder)
+			throws SQLException
+	{
+		checkBatchSize(batchSize);
+		int[] results = new int[items.size()];
+		if (items.isEmpty())
+		{
+			return results;
+		}
+		// Writes for whichever session is bound to this thread.
+		try (Connection con = DBUtility.establishConnection(null);
+				PreparedStatement ps = returnKeys ? con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+						: con.prepareStatement(sql))
+		{
+			con.setAutoCommit(false);
+			for (int from = 0; from < items.size(); from += batchSize)
+			{
+				int to = Math.min(items.size(), from + batchSize);
+				try
+				{
+					for (int i = from; i < to; i++)
+					{
+						binder.bind(ps, items.get(i));
+						ps.addBatch();
+					}
+					int[] counts = ps.executeBatch();
+					if (returnKeys)
+					{
+						try (ResultSet keys = ps.getGeneratedKeys())
+						{
+							for (int i = from; i < to && keys.next(); i++)
+							{
+								results[i] = keys.getInt(1);
+							}
+						}
+					}
+					else
+					{
+						System.arraycopy(counts, 0, results, from, Math.min(counts.length, to - from));
+					}
+					con.commit();
+				}
+				catch (SQLException e)
+				{
+					ps.clearBatch();
+					con.rollback();
+					Arrays.fill(results, from, results.length, 0);
+					throw new PartialBatchException(e, results, from);
+				}
+			}
+			con.setAutoCommit(true);
+		}
+		return results;
+	}
+
+	/*
+	 * A chunk size of 0 or less would never advance through the rows.
+	 */
+	public static int checkBatchSize(int batchSize)
+	{
+		if (batchSize <= 0)
+		{
+			throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+		}
+		return batchSize;
+	}
+
+	public static int sum(int[] counts)
+	{
+		int total = 0;
+		for (int count : counts)
+		{
+			// Statement.SUCCESS_NO_INFO (-2) still means the row was processed.
+			total += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+		}
+		return total;
+	}
+
+}
@@ -0,0 +1,186 @@
+package com.purva.utility;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/*
+ * Bounded, thread-safe LRU cache. Keys are spread over independently locked
+ * segments so concurrent readers rarely contend; each segment evicts its own
+ * least recently used entry once it is full.
+ */
+public class BoundedCache<K, V> {
+
+	private static final int SEGMENTS = 16;
+
+	private final Segment<K, V>[] segments;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	@SuppressWarnings("unchecked")
+	public BoundedCache(int maxSize)
+	{
+		segments = (Segment<K, V>[]) new Segment<?, ?>[SEGMENTS];
+		int perSegment = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+		for (int i = 0; i < SEGMENTS; i++)
+		{
+			segments[i] = new Segment<K, V>(perSegment, evictions);
+		}
+	}
+
+	private Segment<K, V> segmentFor(Object key)
+	{
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[h & (SEGMENTS - 1)];
+	}
+
+	public V get(K key)
+	{
+		V value;
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment)
+		{
+			value = segment.get(key);
+		}
+		(value == null ? misses : hits).incrementAndGet();
+		return value;
+	}
+
+	public void put(K key, V value)
+	{
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment)
+		{
+			segment.put(key, value);
+		}
+	}
+
+	public V remove(K key)
+	{
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment)
+		{
+			return segment.remove(key);
+		}
+	}
+
+	/*
+	 * Removes the entry only while it still maps to value, so a newer
+	 * entry put by another thread is left alone.
+	 */
+	public boolean remove(K key, V value)
+	{
+		Segment<K, V> segment = segmentFor(key);
+		synchronized (segment)
+		{
+			return segment.remove(key, value);
+		}
+	}
+
+	public void removeIf(Predicate<V> predicate)
+	{
+		for (Segment<K, V> segment : segments)
+		{
+			synchronized (segment)
+			{
+				segment.values().removeIf(predicate);
+			}
+		}
+	}
+
+	public void clear()
+	{
+		for (Segment<K, V> segment : segments)
+		{
+			synchronized (segment)
+			{
+				segment.clear();
+			}
+		}
+	}
+
+	public int size()
+	{
+		int size = 0;
+		for (Segment<K, V> segment : segments)
+		{
+			synchronized (segment)
+			{
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	public CacheStats getStats()
+	{
+		return new CacheStats(hits.get(), misses.get(), evictions.get(), size());
+	}
+
+	private static class Segment<K, V> extends LinkedHashMap<K, V>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int maxSize;
+		private final AtomicLong evictions;
+
+		Segment(int maxSize, AtomicLong evictions)
+		{
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+			this.evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+		{
+			if (size() > maxSize)
+			{
+				evictions.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	public static class CacheStats
+	{
+		private final long hits, misses, evictions;
+		private final int size;
+
+		public CacheStats(long hits, long misses, long evictions, int size)
+		{
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.size = size;
+		}
+
+		public long getHits() {
+			return hits;
+		}
+		public long getMisses() {
+			return misses;
+		}
+		public long getEvictions() {
+			return evictions;
+		}
+		public int getSize() {
+			return size;
+		}
+		public double getHitRatio() {
+			long requests = hits + misses;
+			return requests == 0 ? 0 : (double) hits / requests;
+		}
+
+		@Override
+		public String toString() {
+			return "CacheStats [hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", size=" + size
+					+ ", hitRatio=" + String.format("%.3f", getHitRatio()) + "]";
+		}
+	}
+
+}
@@ -0,0 +1,420 @@
+package com.purva.utility;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Bounded JDBC connection pool.
+ * Connections handed out are proxies whose close() returns the physical
+ * connection to the pool instead of closing it.
+ */
+public class ConnectionPool {
+
+	private final String url;
+	private final String user;
+	private final String password;
+	private final int maxSize;
+	private final int minIdle;
+	private final long borrowTimeoutMillis;
+	private final long idleTimeoutMillis;
+	private final long validationIntervalMillis;
+	private final long leakThresholdMillis;
+	private final int statementCacheSize;
+
+	private final Deque<PooledConnection> idle = new ArrayDeque<PooledConnection>();
+	private final Map<PooledConnection, Exception> borrowed = new ConcurrentHashMap<PooledConnection, Exception>();
+	private final ScheduledExecutorService housekeeper;
+	private int total;
+	private int waiting;
+	private boolean closed;
+
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong createdCount = new AtomicLong();
+	private final AtomicLong destroyedCount = new AtomicLong();
+	private final AtomicLong timeoutCount = new AtomicLong();
+	private final AtomicLong leakCount = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+
+	public ConnectionPool(String url, String user, String password, int maxSize, int minIdle,
+			long borrowTimeoutMillis, long idleTimeoutMillis, long validationIntervalMillis, long leakThresholdMillis,
+			int statementCacheSize)
+	{
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.maxSize = maxSize;
+		this.minIdle = minIdle;
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.validationIntervalMillis = validationIntervalMillis;
+		this.leakThresholdMillis = leakThresholdMillis;
+		this.statementCacheSize = statementCacheSize;
+
+		housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "connection-pool-housekeeper");
+			t.setDaemon(true);
+			return t;
+		});
+		long period = Math.max(1000, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+		housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * Borrows a connection, waiting up to the borrow timeout when the pool is exhausted.
+	 */
+	public Connection getConnection() throws SQLException
+	{
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+		while (true)
+		{
+			PooledConnection pc = null;
+			boolean create = false;
+			synchronized (this)
+			{
+				if (closed)
+				{
+					throw new SQLException("Connection pool is closed");
+				}
+				waiting++;
+				try
+				{
+					while (idle.isEmpty() && total >= maxSize)
+					{
+						long remaining = deadline - System.nanoTime();
+						if (remaining <= 0)
+						{
+							timeoutCount.incrementAndGet();
+							throw new SQLException("Timed out after " + borrowTimeoutMillis + "ms waiting for a connection ("
+									+ total + " open, max " + maxSize + ")");
+						}
+						TimeUnit.NANOSECONDS.timedWait(this, remaining);
+					}
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new SQLException("Interrupted while waiting for a connection", e);
+				}
+				finally
+				{
+					waiting--;
+				}
+				pc = idle.pollFirst();
+				if (pc == null)
+				{
+					total++;
+					create = true;
+				}
+			}
+
+			if (create)
+			{
+				try
+				{
+					pc = new PooledConnection(DriverManager.getConnection(url, user, password));
+					createdCount.incrementAndGet();
+				}
+				catch (SQLException e)
+				{
+					synchronized (this)
+					{
+						total--;
+						notifyAll();
+					}
+					throw e;
+				}
+			}
+			else if (!validate(pc))
+			{
+				destroy(pc);
+				continue;
+			}
+
+			pc.borrowedAt = System.currentTimeMillis();
+			borrowed.put(pc, new Exception("Connection borrowed by thread " + Thread.currentThread().getName()));
+			borrowCount.incrementAndGet();
+			totalWaitNanos.addAndGet(System.nanoTime() - start);
+			return pc.proxy;
+		}
+	}
+
+	private boolean validate(PooledConnection pc)
+	{
+		if (System.currentTimeMillis() - pc.lastUsedAt < validationIntervalMillis)
+		{
+			return true;
+		}
+		try
+		{
+			return pc.physical.isValid(2);
+		}
+		catch (SQLException e)
+		{
+			return false;
+		}
+	}
+
+	private void release(PooledConnection pc)
+	{
+		if (borrowed.remove(pc) == null)
+		{
+			return;
+		}
+		pc.lastUsedAt = System.currentTimeMillis();
+		pc.statements.releaseAll();
+		boolean reusable;
+		try
+		{
+			reusable = !pc.physical.isClosed();
+			// Undo transaction state left behind by the borrower.
+			if (reusable && !pc.physical.getAutoCommit())
+			{
+				pc.physical.rollback();
+				pc.physical.setAutoCommit(true);
+			}
+		}
+		catch (SQLException e)
+		{
+			reusable = false;
+		}
+		synchronized (this)
+		{
+			if (reusable && !closed)
+			{
+				idle.offerFirst(pc);
+				notifyAll();
+				return;
+			}
+		}
+		destroy(pc);
+	}
+
+	private void destroy(PooledConnection pc)
+	{
+		pc.statements.closeAll();
+		try
+		{
+			pc.physical.close();
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+		}
+		destroyedCount.incrementAndGet();
+		synchronized (this)
+		{
+			total--;
+			notifyAll();
+		}
+	}
+
+	/*
+	 * Evicts connections idle longer than the idle timeout (keeping minIdle)
+	 * and reports connections held longer than the leak threshold.
+	 */
+	private void housekeep()
+	{
+		long now = System.currentTimeMillis();
+		Deque<PooledConnection> evicted = new ArrayDeque<PooledConnection>();
+		synchronized (this)
+		{
+			// Oldest idle connections sit at the tail.
+			while (idle.size() > minIdle && now - idle.peekLast().lastUsedAt > idleTimeoutMillis)
+			{
+				evicted.add(idle.pollLast());
+			}
+		}
+		for (PooledConnection pc : evicted)
+		{
+			destroy(pc);
+		}
+
+		for (Map.Entry<PooledConnection, Exception> e : borrowed.entrySet())
+		{
+			PooledConnection pc = e.getKey();
+			if (!pc.leakReported && now - pc.borrowedAt > leakThresholdMillis)
+			{
+				pc.leakReported = true;
+				leakCount.incrementAndGet();
+				System.out.println("Possible connection leak: held for " + (now - pc.borrowedAt) + "ms");
+				e.getValue().printStackTrace();
+			}
+		}
+	}
+
+	public void close()
+	{
+		Deque<PooledConnection> toClose;
+		synchronized (this)
+		{
+			closed = true;
+			toClose = new ArrayDeque<PooledConnection>(idle);
+			idle.clear();
+			notifyAll();
+		}
+		for (PooledConnection pc : toClose)
+		{
+			destroy(pc);
+		}
+		housekeeper.shutdownNow();
+	}
+
+	/*
+	 * Connections currently out, without taking the pool lock.
+	 */
+	public int getBorrowedCount()
+	{
+		return borrowed.size();
+	}
+
+	public synchronized PoolStats getStats()
+	{
+		long borrows = borrowCount.get();
+		return new PoolStats(total, total - idle.size(), idle.size(), waiting, maxSize, borrows,
+				createdCount.get(), destroyedCount.get(), timeoutCount.get(), leakCount.get(),
+				borrows == 0 ? 0 : totalWaitNanos.get() / borrows / 1000,
+				StatementCache.HITS.get(), StatementCache.MISSES.get());
+	}
+
+	/*
+	 * Snapshot of pool counters.
+	 */
+	public static class PoolStats
+	{
+		private final int total, active, idle, waiting, maxSize;
+		private final long borrowed, created, destroyed, timeouts, leaks, avgWaitMicros;
+		private final long statementCacheHits, statementCacheMisses;
+
+		PoolStats(int total, int active, int idle, int waiting, int maxSize, long borrowed, long created,
+				long destroyed, long timeouts, long leaks, long avgWaitMicros, long statementCacheHits,
+				long statementCacheMisses)
+		{
+			this.total = total;
+			this.active = active;
+			this.idle = idle;
+			this.waiting = waiting;
+			this.maxSize = maxSize;
+			this.borrowed = borrowed;
+			this.created = created;
+			this.destroyed = destroyed;
+			this.timeouts = timeouts;
+			this.leaks = leaks;
+			this.avgWaitMicros = avgWaitMicros;
+			this.statementCacheHits = statementCacheHits;
+			this.statementCacheMisses = statementCacheMisses;
+		}
+
+		public int getTotal() {
+			return total;
+		}
+		public int getActive() {
+			return active;
+		}
+		public int getIdle() {
+			return idle;
+		}
+		public int getWaiting() {
+			return waiting;
+		}
+		public int getMaxSize() {
+			return maxSize;
+		}
+		public long getBorrowed() {
+			return borrowed;
+		}
+		public long getCreated() {
+			return created;
+		}
+		public long getDestroyed() {
+			return destroyed;
+		}
+		public long getTimeouts() {
+			return timeouts;
+		}
+		public long getLeaks() {
+			return leaks;
+		}
+		public long getAvgWaitMicros() {
+			return avgWaitMicros;
+		}
+		public long getStatementCacheHits() {
+			return statementCacheHits;
+		}
+		public long getStatementCacheMisses() {
+			return statementCacheMisses;
+		}
+
+		@Override
+		public String toString() {
+			return "PoolStats [total=" + total + ", active=" + active + ", idle=" + idle + ", waiting=" + waiting
+					+ ", maxSize=" + maxSize + ", borrowed=" + borrowed + ", created=" + created + ", destroyed="
+					+ destroyed + ", timeouts=" + timeouts + ", leaks=" + leaks + ", avgWaitMicros=" + avgWaitMicros
+					+ ", statementCacheHits=" + statementCacheHits + ", statementCacheMisses=" + statementCacheMisses + "]";
+		}
+	}
+
+	private class PooledConnection implements InvocationHandler
+	{
+		final Connection physical;
+		final Connection proxy;
+		final StatementCache statements;
+		volatile long borrowedAt;
+		volatile long lastUsedAt = System.currentTimeMillis();
+		volatile boolean leakReported;
+
+		PooledConnection(Connection physical)
+		{
+			this.physical = physical;
+			this.statements = new StatementCache(physical, statementCacheSize);
+			this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, this);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			if (name.equals("close"))
+			{
+				leakReported = false;
+				release(this);
+				return null;
+			}
+			if (name.equals("isClosed"))
+			{
+				return !borrowed.containsKey(this) || physical.isClosed();
+			}
+			if (!borrowed.containsKey(this))
+			{
+				throw new SQLException("Connection has already been returned to the pool");
+			}
+			if (name.equals("prepareStatement"))
+			{
+				return statements.prepare(method, args);
+			}
+			try
+			{
+				return method.invoke(physical, args);
+			}
+			catch (InvocationTargetException e)
+			{
+				throw e.getCause();
+			}
+		}
+	}
+
+}
@@ -1,21 +1,48 @@
 package com.purva.utility;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 
 
 public class DBUtility {
-	
+
+	// Overridable with -Ddb.url, -Ddb.user, -Ddb.password, -Ddb.pool.maxSize and so on.
+	private static final String URL = System.getProperty("db.url", "jdbc:mysql://localhost:3306/shopping?rewriteBatchedStatements=true&useCursorFetch=true");
+	private static final String USER = System.getProperty("db.user", "root");
+	private static final String PASSWORD = System.getProperty("db.password", "root");
+	private static final String DRIVER = System.getProperty("db.driver", "com.mysql.cj.jdbc.Driver");
+	// Comma-separated read replica URLs; none means every read goes to db.url.
+	private static final String READ_URLS = System.getProperty("db.read.urls", "");
+	private static final String READ_USER = System.getProperty("db.read.user", USER);
+	private static final String READ_PASSWORD = System.getProperty("db.read.password", PASSWORD);
+
+	// Read without the class lock on every borrow; created and cleared under it.
+	private static volatile ConnectionPool pool;
+	private static volatile ReadRouter router;
+	private static final ThreadLocal<String> SESSION = new ThreadLocal<String>();
+	private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<Boolean>();
+
+	/*
+	 * Borrows a connection from the shared pool. Callers must close() it,
+	 * which hands it back to the pool. Unless -Ddb.metrics=false the
+	 * connection reports its statements to QueryMetrics.
+	 * Borrowing records no write; writers use establishConnection(session)
+	 * or wrote().
+	 */
 	public static Connection  establishConnection()
 
 	{
 		Connection con=null;
 		{
-		
-	try 
+
+	try
 	{
-	Class.forName("com.mysql.cj.jdbc.Driver");
-	 con=DriverManager.getConnection("jdbc:mysql://localhost:3306/shopping","root","root");
+	long start=System.nanoTime();
+	con=getPool().getConnection();
+	con=instrument(con, start);
 	}
 	catch (Exception e) {
 		e.printStackTrace();
@@ -25,4 +52,238 @@ public class DBUtility {
 
 	}
 
+	/*
+	 * Primary connection for writing data that belongs to the given session,
+	 * normally the customer's email. That session's reads stay on the
+	 * primary for the next db.read.stickyMs. A null session stands for the
+	 * one bound to this thread, if any.
+	 */
+	public static Connection establishConnection(String session)
+	{
+		wrote(session);
+		return establishConnection();
+	}
+
+	/*
+	 * Connection for reads that may be slightly stale: from a read replica
+	 * when any are configured, else from the primary. session may be null;
+	 * if it, or the session bound to this thread, wrote recently the
+	 * primary is used so the writer sees its own changes. Inside
+	 * readFromPrimary it is always the primary.
+	 */
+	public static Connection establishReadConnection(String session)
+	{
+		Connection con=null;
+		try
+		{
+			long start=System.nanoTime();
+			if(PRIMARY_READS.get()==null)
+			{
+				con=getRouter().read(session, SESSION.get());
+			}
+			if(con==null)
+			{
+				con=getPool().getConnection();
+			}
+			con=instrument(con, start);
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+		return con;
+	}
+
+	/*
+	 * Records a write made outside establishConnection(session), e.g. by a batch.
+	 * As there, a null session stands for the one bound to this thread.
+	 */
+	public static void wrote(String session)
+	{
+		try
+		{
+			getRouter().wrote(session!=null ? session : SESSION.get());
+		}
+		catch (ClassNotFoundException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/*
+	 * Binds a session to the current thread, so establishConnection(null),
+	 * wrote(null) and establishReadConnection(null) calls count for it as well.
+	 * Returns the previously bound session, to be restored afterwards.
+	 */
+	public static String bindSession(String session)
+	{
+		String previous=SESSION.get();
+		SESSION.set(session);
+		return previous;
+	}
+
+	/*
+	 * Runs work with every establishReadConnection on this thread going to
+	 * the primary. For reads that outlive the call, like a cache refill: a
+	 * row read from a lagging replica would stay cached after the write that
+	 * changed it had already invalidated the entry.
+	 */
+	public static <T> T readFromPrimary(Supplier<T> work)
+	{
+		Boolean previous=PRIMARY_READS.get();
+		PRIMARY_READS.set(Boolean.TRUE);
+		try
+		{
+			return work.get();
+		}
+		finally
+		{
+			if(previous==null)
+			{
+				PRIMARY_READS.remove();
+			}
+		}
+	}
+
+	private static Connection instrument(Connection con, long start)
+	{
+		if(QueryMetrics.ENABLED)
+		{
+			QueryMetrics.connectionWait(System.nanoTime()-start);
+			return InstrumentedConnection.wrap(con);
+		}
+		return con;
+	}
+
+	public static ConnectionPool getPool() throws ClassNotFoundException
+	{
+		ConnectionPool p=pool;
+		if(p!=null)
+		{
+			return p;
+		}
+		synchronized(DBUtility.class)
+		{
+			if(pool==null)
+			{
+				Class.forName(DRIVER);
+				p=newPool(URL, USER, PASSWORD);
+				if(Boolean.getBoolean("db.migrate"))
+				{
+					migrate(p);
+				}
+				pool=p;
+			}
+			return pool;
+		}
+	}
+
+	// Brings the primary up to Schema.LATEST before the first DAO call uses it.
+	private static void migrate(ConnectionPool p)
+	{
+		try (Connection con=p.getConnection())
+		{
+			Schema.migrate(con);
+		}
+		catch(SQLException e)
+		{
+			System.out.println(e);
+			e.printStackTrace();
+		}
+	}
+
+	private static ReadRouter getRouter() throws ClassNotFoundException
+	{
+		ReadRouter r=router;
+		if(r!=null)
+		{
+			return r;
+		}
+		synchronized(DBUtility.class)
+		{
+			if(router==null)
+			{
+				Class.forName(DRIVER);
+				List<String> urls=new ArrayList<String>();
+				for(String url : READ_URLS.split(","))
+				{
+					if(!url.trim().isEmpty())
+					{
+						urls.add(url.trim());
+					}
+				}
+				router=new ReadRouter(urls, url -> newPool(url, READ_USER, READ_PASSWORD),
+						Long.getLong("db.read.stickyMs", 5000),
+						Long.getLong("db.read.retryMs", 10000));
+			}
+			return router;
+		}
+	}
+
+	private static ConnectionPool newPool(String url, String user, String password)
+	{
+		return new ConnectionPool(url, user, password,
+				getMaxPoolSize(),
+				Integer.getInteger("db.pool.minIdle", 2),
+				Long.getLong("db.pool.borrowTimeoutMs", 5000),
+				Long.getLong("db.pool.idleTimeoutMs", 300000),
+				Long.getLong("db.pool.validationIntervalMs", 30000),
+				Long.getLong("db.pool.leakThresholdMs", 60000),
+				Integer.getInteger("db.pool.statementCacheSize", 64));
+	}
+
+	public static int getMaxPoolSize()
+	{
+		return Integer.getInteger("db.pool.maxSize", 10);
+	}
+
+	public static ConnectionPool.PoolStats getPoolStats() throws ClassNotFoundException
+	{
+		return getPool().getStats();
+	}
+
+	public static List<ConnectionPool.PoolStats> getReadPoolStats() throws ClassNotFoundException
+	{
+		return getRouter().getStats();
+	}
+
+	/*
+	 * Reads served by a replica, reads kept on the primary for
+	 * read-your-writes, and reads that fell back because no replica was usable.
+	 */
+	public static long[] getReadRoutingCounts() throws ClassNotFoundException
+	{
+		ReadRouter r=getRouter();
+		return new long[] { r.replicaReads.get(), r.stickyReads.get(), r.fallbackReads.get() };
+	}
+
+	public static void closeConnection(Connection con)
+	{
+		if(con!=null)
+		{
+			try
+			{
+				con.close();
+			}
+			catch (SQLException e)
+			{
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public static synchronized void shutdown()
+	{
+		if(pool!=null)
+		{
+			pool.close();
+			pool=null;
+		}
+		if(router!=null)
+		{
+			router.close();
+			router=null;
+		}
+	}
+
 }
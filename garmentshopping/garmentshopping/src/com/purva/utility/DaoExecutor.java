@@ -0,0 +1,112 @@
+package com.purva.utility;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * Runs blocking DAO calls off the caller's thread.
+ * On Java 21+ every call gets its own virtual thread, so a call parked on a
+ * JDBC round trip costs no platform thread. On older runtimes it falls back
+ * to a cached pool of daemon threads.
+ * Callers pass a Semaphore sized to the connection pool: calls beyond the
+ * limit wait for a permit on their own (cheap) thread instead of all
+ * piling up in the pool's borrow queue. The pool is shared by every DAO,
+ * so the Async DAOs share one limit too (sharedLimit()); a limit per DAO
+ * would let them together hold several times more calls than there are
+ * connections.
+ */
+public class DaoExecutor {
+
+	private static final boolean VIRTUAL;
+	private static final ExecutorService EXECUTOR;
+	private static final Semaphore SHARED_LIMIT;
+
+	static
+	{
+		EXECUTOR = newPerTaskExecutor("dao-async-");
+		VIRTUAL = !(EXECUTOR instanceof ThreadPoolExecutor);
+		SHARED_LIMIT = new Semaphore(Integer.getInteger("db.async.maxConcurrency", DBUtility.getMaxPoolSize()), true);
+	}
+
+	public static boolean isVirtual()
+	{
+		return VIRTUAL;
+	}
+
+	/*
+	 * A virtual thread per task where the runtime has them, otherwise a
+	 * cached pool of daemon threads named prefix + number.
+	 */
+	public static ExecutorService newPerTaskExecutor(String prefix)
+	{
+		AtomicInteger counter = new AtomicInteger();
+		try
+		{
+			// Looked up reflectively so the code still compiles and runs on Java 17.
+			Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) m.invoke(null);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return Executors.newCachedThreadPool(r -> {
+				Thread t = new Thread(r, prefix + counter.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+
+	/*
+	 * One permit per pooled connection, shared by every caller that does not
+	 * bring its own limit.
+	 */
+	public static Semaphore sharedLimit()
+	{
+		return SHARED_LIMIT;
+	}
+
+	/*
+	 * The work runs in the caller's QueryMetrics scope.
+	 */
+	public static <T> CompletableFuture<T> supply(Semaphore limit, Supplier<T> work)
+	{
+		QueryMetrics.Scope scope = QueryMetrics.currentScope();
+		return CompletableFuture.supplyAsync(() -> {
+			try
+			{
+				limit.acquire();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new CompletionException(e);
+			}
+			QueryMetrics.Scope previous = QueryMetrics.attach(scope);
+			try
+			{
+				return work.get();
+			}
+			finally
+			{
+				QueryMetrics.attach(previous);
+				limit.release();
+			}
+		}, EXECUTOR);
+	}
+
+	public static CompletableFuture<Void> run(Semaphore limit, Runnable work)
+	{
+		return supply(limit, () -> {
+			work.run();
+			return null;
+		});
+	}
+
+}
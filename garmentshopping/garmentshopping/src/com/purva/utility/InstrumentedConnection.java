@@ -0,0 +1,242 @@
+package com.purva.utility;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Connection wrapper that times every statement executed through it and
+ * reports to QueryMetrics. A query is timed from executeQuery() until its
+ * ResultSet is closed, so the time includes fetching the rows.
+ * Bind parameters are recorded by JDBC type only; their values are never
+ * kept. Like the connection it wraps, it is used by one thread at a time.
+ */
+class InstrumentedConnection implements InvocationHandler {
+
+	private final Connection target;
+
+	private InstrumentedConnection(Connection target)
+	{
+		this.target = target;
+	}
+
+	static Connection wrap(Connection con)
+	{
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new InstrumentedConnection(con));
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+	{
+		String name = method.getName();
+		if (name.equals("prepareStatement"))
+		{
+			PreparedStatement ps = (PreparedStatement) call(target, method, args);
+			return new Instrumented(ps, QueryMetrics.stats((String) args[0])).wrap(PreparedStatement.class);
+		}
+		if (name.equals("createStatement"))
+		{
+			Statement st = (Statement) call(target, method, args);
+			return new Instrumented(st, null).wrap(Statement.class);
+		}
+		return call(target, method, args);
+	}
+
+	private static Object call(Object target, Method method, Object[] args) throws Throwable
+	{
+		try
+		{
+			return method.invoke(target, args);
+		}
+		catch (InvocationTargetException e)
+		{
+			throw e.getCause();
+		}
+	}
+
+	/*
+	 * Statement or PreparedStatement. For a plain Statement the template
+	 * comes from the SQL passed to each execute call.
+	 */
+	private static class Instrumented implements InvocationHandler
+	{
+		final Statement target;
+		final QueryMetrics.SqlStats prepared;
+		final List<String> params = new ArrayList<String>();
+		String batchSql;
+
+		// The query whose ResultSet is still open.
+		Rows open;
+
+		Instrumented(Statement target, QueryMetrics.SqlStats prepared)
+		{
+			this.target = target;
+			this.prepared = prepared;
+		}
+
+		Object wrap(Class<? extends Statement> type)
+		{
+			return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, this);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			if (name.startsWith("execute"))
+			{
+				return execute(name, method, args);
+			}
+			if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer)
+			{
+				param((Integer) args[0], name.substring(3));
+			}
+			else if (name.equals("clearParameters"))
+			{
+				params.clear();
+			}
+			else if (name.equals("addBatch") && args != null && batchSql == null)
+			{
+				batchSql = (String) args[0];
+			}
+			else if (name.equals("close"))
+			{
+				finishQuery(false);
+			}
+			return InstrumentedConnection.call(target, method, args);
+		}
+
+		private void param(int index, String type)
+		{
+			while (params.size() < index)
+			{
+				params.add("?");
+			}
+			params.set(index - 1, type);
+		}
+
+		private QueryMetrics.SqlStats stats(Object[] args)
+		{
+			if (prepared != null)
+			{
+				return prepared;
+			}
+			String sql = args != null && args.length > 0 ? (String) args[0] : batchSql;
+			return QueryMetrics.stats(QueryMetrics.template(String.valueOf(sql)));
+		}
+
+		private Object execute(String name, Method method, Object[] args) throws Throwable
+		{
+			finishQuery(false);
+			QueryMetrics.SqlStats stats = stats(args);
+			long start = System.nanoTime();
+			Object result;
+			try
+			{
+				result = InstrumentedConnection.call(target, method, args);
+			}
+			catch (Throwable e)
+			{
+				QueryMetrics.executed(stats, System.nanoTime() - start, 0, true, params);
+				throw e;
+			}
+			if (result instanceof ResultSet)
+			{
+				open = new Rows((ResultSet) result, stats, start);
+				return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, open);
+			}
+			long rows = 0;
+			if (result instanceof Number)
+			{
+				rows = ((Number) result).longValue();
+			}
+			else if (result instanceof int[])
+			{
+				for (int n : (int[]) result)
+				{
+					rows += Math.max(n, 0);
+				}
+			}
+			else if (result instanceof long[])
+			{
+				for (long n : (long[]) result)
+				{
+					rows += Math.max(n, 0);
+				}
+			}
+			if (name.contains("Batch"))
+			{
+				batchSql = null;
+			}
+			QueryMetrics.executed(stats, System.nanoTime() - start, rows, false, params);
+			return result;
+		}
+
+		private void finishQuery(boolean failed)
+		{
+			if (open != null)
+			{
+				Rows query = open;
+				open = null;
+				QueryMetrics.executed(query.stats, System.nanoTime() - query.start, query.rows, failed,
+						params.isEmpty() ? Collections.<String>emptyList() : params);
+			}
+		}
+
+		private class Rows implements InvocationHandler
+		{
+			final ResultSet target;
+			final QueryMetrics.SqlStats stats;
+			final long start;
+			long rows;
+
+			Rows(ResultSet target, QueryMetrics.SqlStats stats, long start)
+			{
+				this.target = target;
+				this.stats = stats;
+				this.start = start;
+			}
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+			{
+				String name = method.getName();
+				if (name.equals("next"))
+				{
+					try
+					{
+						Object more = InstrumentedConnection.call(target, method, args);
+						if ((Boolean) more)
+						{
+							rows++;
+						}
+						return more;
+					}
+					catch (Throwable e)
+					{
+						if (open == this)
+						{
+							finishQuery(true);
+						}
+						throw e;
+					}
+				}
+				if (name.equals("close") && open == this)
+				{
+					finishQuery(false);
+				}
+				return InstrumentedConnection.call(target, method, args);
+			}
+		}
+	}
+
+}
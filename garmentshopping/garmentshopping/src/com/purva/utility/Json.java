@@ -0,0 +1,319 @@
+package com.purva.utility;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * The little JSON the shop needs: flat objects in (catalog feeds, API
+ * request bodies) and a streaming writer out, so a large response goes to
+ * the client as it is produced instead of being built up as one string.
+ */
+public final class Json {
+
+	private Json()
+	{
+	}
+
+	/*
+	 * Writes JSON to an Appendable, adding the commas itself. Values must
+	 * follow name() inside an object. Not thread-safe.
+	 */
+	public static class Writer
+	{
+		private final Appendable out;
+		// One bit per open container: set once it has a first element.
+		private long started;
+		private int depth;
+		private boolean afterName;
+
+		public Writer(Appendable out)
+		{
+			this.out = out;
+		}
+
+		public Writer beginObject() throws IOException
+		{
+			return open('{');
+		}
+
+		public Writer endObject() throws IOException
+		{
+			return close('}');
+		}
+
+		public Writer beginArray() throws IOException
+		{
+			return open('[');
+		}
+
+		public Writer endArray() throws IOException
+		{
+			return close(']');
+		}
+
+		public Writer name(String name) throws IOException
+		{
+			separate();
+			quote(name, out);
+			out.append(':');
+			afterName = true;
+			return this;
+		}
+
+		public Writer value(String value) throws IOException
+		{
+			separate();
+			if (value == null)
+			{
+				out.append("null");
+			}
+			else
+			{
+				quote(value, out);
+			}
+			return this;
+		}
+
+		public Writer value(long value) throws IOException
+		{
+			separate();
+			out.append(Long.toString(value));
+			return this;
+		}
+
+		public Writer value(double value) throws IOException
+		{
+			separate();
+			out.append(Double.isFinite(value) ? Double.toString(value) : "null");
+			return this;
+		}
+
+		public Writer value(boolean value) throws IOException
+		{
+			separate();
+			out.append(value ? "true" : "false");
+			return this;
+		}
+
+		private Writer open(char c) throws IOException
+		{
+			separate();
+			if (depth == 63)
+			{
+				throw new IllegalStateException("JSON nested too deeply");
+			}
+			out.append(c);
+			depth++;
+			started &= ~(1L << depth);
+			return this;
+		}
+
+		private Writer close(char c) throws IOException
+		{
+			out.append(c);
+			depth--;
+			return this;
+		}
+
+		private void separate() throws IOException
+		{
+			if (afterName)
+			{
+				afterName = false;
+				return;
+			}
+			if (depth > 0)
+			{
+				long bit = 1L << depth;
+				if ((started & bit) != 0)
+				{
+					out.append(',');
+				}
+				started |= bit;
+			}
+		}
+	}
+
+	public static void quote(String s, Appendable out) throws IOException
+	{
+		out.append('"');
+		for (int i = 0; i < s.length(); i++)
+		{
+			char c = s.charAt(i);
+			switch (c)
+			{
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				if (c < 0x20)
+				{
+					out.append(String.format("\\u%04x", (int) c));
+				}
+				else
+				{
+					out.append(c);
+				}
+			}
+		}
+		out.append('"');
+	}
+
+	/*
+	 * One flat JSON object: string, number, true/false and null values only.
+	 * Keys match case-insensitively; values come back as their text, with
+	 * JSON null as null. Malformed input throws IllegalArgumentException.
+	 */
+	public static Map<String, String> parseObject(String record)
+	{
+		Map<String, String> fields = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		int[] pos = { skip(record, 0) };
+		expect(record, pos, '{');
+		if (peek(record, pos) == '}')
+		{
+			pos[0]++;
+		}
+		else
+		{
+			while (true)
+			{
+				String key = string(record, pos);
+				expect(record, pos, ':');
+				fields.put(key, value(record, pos));
+				char c = peek(record, pos);
+				pos[0]++;
+				if (c == '}')
+				{
+					break;
+				}
+				if (c != ',')
+				{
+					throw new IllegalArgumentException("malformed JSON at column " + pos[0]);
+				}
+			}
+		}
+		if (skip(record, pos[0]) != record.length())
+		{
+			throw new IllegalArgumentException("trailing characters after JSON object");
+		}
+		return fields;
+	}
+
+	private static int skip(String s, int i)
+	{
+		while (i < s.length() && Character.isWhitespace(s.charAt(i)))
+		{
+			i++;
+		}
+		return i;
+	}
+
+	private static char peek(String s, int[] pos)
+	{
+		pos[0] = skip(s, pos[0]);
+		if (pos[0] >= s.length())
+		{
+			throw new IllegalArgumentException("unexpected end of JSON");
+		}
+		return s.charAt(pos[0]);
+	}
+
+	private static void expect(String s, int[] pos, char c)
+	{
+		if (peek(s, pos) != c)
+		{
+			throw new IllegalArgumentException("expected '" + c + "' at column " + pos[0]);
+		}
+		pos[0]++;
+	}
+
+	private static String value(String s, int[] pos)
+	{
+		char c = peek(s, pos);
+		if (c == '"')
+		{
+			return string(s, pos);
+		}
+		if (c == '{' || c == '[')
+		{
+			throw new IllegalArgumentException("nested JSON values are not supported");
+		}
+		int start = pos[0];
+		while (pos[0] < s.length() && ",} \t".indexOf(s.charAt(pos[0])) < 0)
+		{
+			pos[0]++;
+		}
+		String literal = s.substring(start, pos[0]);
+		return literal.equals("null") ? null : literal;
+	}
+
+	private static String string(String s, int[] pos)
+	{
+		expect(s, pos, '"');
+		StringBuilder sb = new StringBuilder();
+		while (true)
+		{
+			if (pos[0] >= s.length())
+			{
+				throw new IllegalArgumentException("unterminated JSON string");
+			}
+			char c = s.charAt(pos[0]++);
+			if (c == '"')
+			{
+				return sb.toString();
+			}
+			if (c != '\\')
+			{
+				sb.append(c);
+				continue;
+			}
+			if (pos[0] >= s.length())
+			{
+				throw new IllegalArgumentException("unterminated JSON string");
+			}
+			char e = s.charAt(pos[0]++);
+			switch (e)
+			{
+			case 'n':
+				sb.append('\n');
+				break;
+			case 't':
+				sb.append('\t');
+				break;
+			case 'r':
+				sb.append('\r');
+				break;
+			case 'b':
+				sb.append('\b');
+				break;
+			case 'f':
+				sb.append('\f');
+				break;
+			case 'u':
+				if (pos[0] + 4 > s.length())
+				{
+					throw new IllegalArgumentException("bad \\u escape");
+				}
+				sb.append((char) Integer.parseInt(s.substring(pos[0], pos[0] + 4), 16));
+				pos[0] += 4;
+				break;
+			default:
+				sb.append(e);
+			}
+		}
+	}
+
+}
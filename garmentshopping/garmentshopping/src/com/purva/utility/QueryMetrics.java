@@ -0,0 +1,380 @@
+package com.purva.utility;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/*
+ * Where the time goes in the database: per-SQL statistics, connection wait,
+ * a slow-query log and an N+1 detector. DBUtility hands out connections
+ * wrapped by InstrumentedConnection, which reports every execution here.
+ *
+ * Statistics are keyed by SQL template, i.e. the prepared SQL text; SQL
+ * run through a plain Statement has its literals replaced by ? first.
+ * Each template remembers the DAO method that first ran it.
+ *
+ * Settings (system properties):
+ *   db.metrics               instrument connections         (true)
+ *   db.slowQueryMs           slow-query threshold, -1 = off (500)
+ *   db.slowQueryLog          file to append slow queries to (stdout)
+ *   db.nPlusOneThreshold     same statement executions in one scope
+ *                            that count as N+1              (10)
+ *   db.metrics.maxTemplates  templates tracked separately   (1000)
+ */
+public class QueryMetrics {
+
+	public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("db.metrics", "true"));
+
+	private static final long SLOW_NANOS = Long.getLong("db.slowQueryMs", 500) * 1000000;
+	private static final int N_PLUS_ONE_THRESHOLD = Integer.getInteger("db.nPlusOneThreshold", 10);
+	private static final int MAX_TEMPLATES = Integer.getInteger("db.metrics.maxTemplates", 1000);
+	private static final String OTHER = "<other>";
+	private static final String DAO_PACKAGE = "com.purva.daoimpl.";
+
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+	private static final Map<String, SqlStats> STATS = new ConcurrentHashMap<String, SqlStats>();
+	private static final Histogram CONNECTION_WAIT = new Histogram();
+	private static final AtomicLong SLOW_QUERIES = new AtomicLong();
+	private static final AtomicLong N_PLUS_ONE = new AtomicLong();
+	private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<Scope>();
+
+	private static PrintWriter slowLog;
+
+	/*
+	 * Latency histogram with power-of-two microsecond buckets: cheap to
+	 * update from many threads, percentiles are accurate to within 2x.
+	 */
+	public static class Histogram
+	{
+		private static final int BUCKETS = 40;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		void record(long nanos)
+		{
+			long micros = nanos / 1000;
+			buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros)));
+			count.increment();
+			totalNanos.add(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+		public long getTotalNanos() {
+			return totalNanos.sum();
+		}
+		public long getMaxMicros() {
+			return maxNanos.get() / 1000;
+		}
+		public long getAvgMicros() {
+			long n = count.sum();
+			return n == 0 ? 0 : totalNanos.sum() / n / 1000;
+		}
+
+		/*
+		 * Upper bound of the bucket holding the p-th percentile, in microseconds.
+		 */
+		public long percentileMicros(double p)
+		{
+			long n = count.sum();
+			if (n == 0)
+			{
+				return 0;
+			}
+			long rank = (long) Math.ceil(p * n);
+			long seen = 0;
+			for (int b = 0; b < BUCKETS; b++)
+			{
+				seen += buckets.get(b);
+				if (seen >= rank)
+				{
+					return Math.min(1L << b, getMaxMicros());
+				}
+			}
+			return getMaxMicros();
+		}
+	}
+
+	public static class SqlStats
+	{
+		private final String sql;
+		private final String owner;
+		private final Histogram latency = new Histogram();
+		private final LongAdder rows = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+
+		SqlStats(String sql, String owner)
+		{
+			this.sql = sql;
+			this.owner = owner;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+		// DAO method that first ran this statement, e.g. CartDaoImpl.addtoCart
+		public String getOwner() {
+			return owner;
+		}
+		public Histogram getLatency() {
+			return latency;
+		}
+		public long getRows() {
+			return rows.sum();
+		}
+		public long getErrors() {
+			return errors.sum();
+		}
+	}
+
+	/*
+	 * One unit of work, e.g. serving a request. Identical statements executed
+	 * N+1 style inside it are reported when it closes. Scopes nest, and
+	 * DaoExecutor carries the caller's scope over to its worker threads.
+	 */
+	public static class Scope implements AutoCloseable
+	{
+		private final String name;
+		private final Scope outer;
+		private final Map<String, AtomicInteger> executions = new ConcurrentHashMap<String, AtomicInteger>();
+
+		private Scope(String name, Scope outer)
+		{
+			this.name = name;
+			this.outer = outer;
+		}
+
+		void executed(String sql)
+		{
+			executions.computeIfAbsent(sql, k -> new AtomicInteger()).incrementAndGet();
+			if (outer != null)
+			{
+				outer.executed(sql);
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int executions(String sql)
+		{
+			AtomicInteger n = executions.get(sql);
+			return n == null ? 0 : n.get();
+		}
+
+		@Override
+		public void close()
+		{
+			if (SCOPE.get() == this)
+			{
+				SCOPE.set(outer);
+			}
+			for (Map.Entry<String, AtomicInteger> e : executions.entrySet())
+			{
+				int n = e.getValue().get();
+				if (N_PLUS_ONE_THRESHOLD > 0 && n >= N_PLUS_ONE_THRESHOLD)
+				{
+					N_PLUS_ONE.incrementAndGet();
+					log("Possible N+1 in " + name + ": executed " + n + " times: " + e.getKey());
+				}
+			}
+		}
+	}
+
+	/*
+	 * Starts a scope nested in the current one and makes it current.
+	 */
+	public static Scope beginScope(String name)
+	{
+		Scope scope = newScope(name);
+		SCOPE.set(scope);
+		return scope;
+	}
+
+	/*
+	 * Nested in the current scope but not made current, for work that runs
+	 * on other threads and finishes after the caller has moved on.
+	 */
+	public static Scope newScope(String name)
+	{
+		return new Scope(name, SCOPE.get());
+	}
+
+	public static Scope currentScope()
+	{
+		return SCOPE.get();
+	}
+
+	/*
+	 * Makes scope the current one on this thread and returns the one it
+	 * replaces, for code that runs work on behalf of another thread.
+	 */
+	public static Scope attach(Scope scope)
+	{
+		Scope previous = SCOPE.get();
+		SCOPE.set(scope);
+		return previous;
+	}
+
+	static void connectionWait(long nanos)
+	{
+		CONNECTION_WAIT.record(nanos);
+	}
+
+	static SqlStats stats(String sql)
+	{
+		SqlStats s = STATS.get(sql);
+		if (s == null)
+		{
+			String key = STATS.size() < MAX_TEMPLATES ? sql : OTHER;
+			s = STATS.computeIfAbsent(key, k -> new SqlStats(k, owner()));
+		}
+		return s;
+	}
+
+	/*
+	 * Replaces the literals in ad-hoc SQL so that statements differing only
+	 * in their values share a template, and values never reach the log.
+	 */
+	static String template(String sql)
+	{
+		return NUMBER_LITERAL.matcher(STRING_LITERAL.matcher(sql).replaceAll("?")).replaceAll("?");
+	}
+
+	/*
+	 * Called by InstrumentedConnection when an execution has finished.
+	 * params holds the JDBC types of the bind parameters, never their values.
+	 */
+	static void executed(SqlStats s, long nanos, long rows, boolean failed, List<String> params)
+	{
+		s.latency.record(nanos);
+		s.rows.add(rows);
+		if (failed)
+		{
+			s.errors.increment();
+		}
+		Scope scope = SCOPE.get();
+		if (scope != null)
+		{
+			scope.executed(s.sql);
+		}
+		if (SLOW_NANOS >= 0 && nanos >= SLOW_NANOS)
+		{
+			SLOW_QUERIES.incrementAndGet();
+			log("Slow query: " + nanos / 1000000 + " ms, " + rows + " rows" + (failed ? ", failed" : "")
+					+ (scope != null ? ", in " + scope.name : "") + ", from " + s.owner + ": " + s.sql
+					+ (params.isEmpty() ? "" : " params=" + params));
+		}
+	}
+
+	private static String owner()
+	{
+		return StackWalker.getInstance().walk(frames -> frames
+				.filter(f -> f.getClassName().startsWith(DAO_PACKAGE))
+				.map(f -> f.getClassName().substring(DAO_PACKAGE.length()) + "." + f.getMethodName())
+				.findFirst()
+				.orElse("?"));
+	}
+
+	private static synchronized void log(String message)
+	{
+		String line = LocalDateTime.now() + " [" + Thread.currentThread().getName() + "] " + message;
+		String file = System.getProperty("db.slowQueryLog");
+		if (file == null)
+		{
+			System.out.println(line);
+			return;
+		}
+		try
+		{
+			if (slowLog == null)
+			{
+				slowLog = new PrintWriter(new FileWriter(file, true), true);
+			}
+			slowLog.println(line);
+		}
+		catch (IOException e)
+		{
+			System.out.println(e);
+			System.out.println(line);
+		}
+	}
+
+	public static List<SqlStats> getStats()
+	{
+		List<SqlStats> list = new ArrayList<SqlStats>(STATS.values());
+		list.sort(Comparator.comparingLong((SqlStats s) -> s.latency.getTotalNanos()).reversed());
+		return list;
+	}
+
+	public static Histogram getConnectionWait()
+	{
+		return CONNECTION_WAIT;
+	}
+
+	public static long getSlowQueries()
+	{
+		return SLOW_QUERIES.get();
+	}
+
+	public static long getNPlusOneReports()
+	{
+		return N_PLUS_ONE.get();
+	}
+
+	public static void reset()
+	{
+		STATS.clear();
+	}
+
+	/*
+	 * Text report: statements by total time, then time per DAO method.
+	 */
+	public static String report()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%10s %8s %8s %8s %8s %10s %6s  %s%n",
+				"total ms", "count", "avg us", "p99 us", "max us", "rows", "errors", "statement"));
+		Map<String, long[]> byDao = new TreeMap<String, long[]>();
+		for (SqlStats s : getStats())
+		{
+			Histogram h = s.latency;
+			sb.append(String.format("%10d %8d %8d %8d %8d %10d %6d  %s%n", h.getTotalNanos() / 1000000, h.getCount(),
+					h.getAvgMicros(), h.percentileMicros(0.99), h.getMaxMicros(), s.getRows(), s.getErrors(), s.sql));
+			long[] dao = byDao.computeIfAbsent(s.owner, k -> new long[2]);
+			dao[0] += h.getTotalNanos();
+			dao[1] += h.getCount();
+		}
+		sb.append(String.format("%n%10s %8s  %s%n", "total ms", "count", "dao method"));
+		for (Map.Entry<String, long[]> e : byDao.entrySet())
+		{
+			sb.append(String.format("%10d %8d  %s%n", e.getValue()[0] / 1000000, e.getValue()[1], e.getKey()));
+		}
+		Histogram w = CONNECTION_WAIT;
+		sb.append(String.format("%nconnection wait: %d borrows, avg %d us, p99 %d us, max %d us; "
+				+ "slow queries %d, N+1 reports %d%n", w.getCount(), w.getAvgMicros(), w.percentileMicros(0.99),
+				w.getMaxMicros(), SLOW_QUERIES.get(), N_PLUS_ONE.get()));
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.purva.utility;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * Walks a query's rows one at a time instead of materializing them in a list.
+ * The statement is forward-only with a bounded fetch size, so with
+ * useCursorFetch=true the driver keeps only fetchSize rows in memory.
+ */
+public class QueryStreams {
+
+	public static final int FETCH_SIZE = Integer.getInteger("db.fetchSize", 500);
+
+	public interface RowReader<T>
+	{
+		T read(ResultSet rs) throws SQLException;
+	}
+
+	/*
+	 * The stream holds a pooled connection until it is closed,
+	 * so always use it in try-with-resources. Streams are bulk reads and
+	 * may be served by a read replica.
+	 */
+	public static <T> Stream<T> stream(String sql, RowReader<T> reader) throws SQLException
+	{
+		Connection con = DBUtility.establishReadConnection(null);
+		if (con == null)
+		{
+			throw new SQLException("No database connection available");
+		}
+		PreparedStatement ps = null;
+		ResultSet rs;
+		try
+		{
+			ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			ps.setFetchSize(FETCH_SIZE);
+			rs = ps.executeQuery();
+		}
+		catch (SQLException e)
+		{
+			closeQuietly(null, ps, con);
+			throw e;
+		}
+		final PreparedStatement statement = ps;
+		Spliterator<T> rows = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action)
+			{
+				try
+				{
+					if (!rs.next())
+					{
+						return false;
+					}
+					action.accept(reader.read(rs));
+					return true;
+				}
+				catch (SQLException e)
+				{
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		return StreamSupport.stream(rows, false).onClose(() -> closeQuietly(rs, statement, con));
+	}
+
+	public static <T> void forEach(String sql, RowReader<T> reader, Consumer<? super T> action) throws SQLException
+	{
+		try (Stream<T> rows = stream(sql, reader))
+		{
+			rows.forEach(action);
+		}
+	}
+
+	private static void closeQuietly(ResultSet rs, PreparedStatement ps, Connection con)
+	{
+		try
+		{
+			if (rs != null)
+			{
+				rs.close();
+			}
+			if (ps != null)
+			{
+				ps.close();
+			}
+		}
+		catch (SQLException e)
+		{
+			System.out.println(e);
+		}
+		DBUtility.closeConnection(con);
+	}
+
+}
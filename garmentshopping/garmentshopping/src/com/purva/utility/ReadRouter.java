@@ -0,0 +1,170 @@
+package com.purva.utility;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Chooses where DBUtility's read connections come from.
+ *
+ * Each read replica has its own pool, sized like the primary's. A read
+ * goes to the replica with the fewest connections out; ties rotate.
+ * A replica that fails to hand out a connection, including a borrow
+ * timeout, is skipped for db.read.retryMs, and when none is usable the read falls back to the
+ * primary.
+ *
+ * Read-your-writes: a session (normally the customer's email) that wrote
+ * through the primary in the last db.read.stickyMs reads from the primary
+ * too, so a customer never sees a replica that has not caught up with
+ * their own cart or order.
+ */
+class ReadRouter {
+
+	private final List<Replica> replicas = new ArrayList<Replica>();
+	private final long stickyMillis;
+	private final long retryMillis;
+	private final Map<String, Long> lastWrite = new ConcurrentHashMap<String, Long>();
+	private final AtomicInteger next = new AtomicInteger();
+	private volatile long nextPrune;
+
+	final AtomicLong replicaReads = new AtomicLong();
+	final AtomicLong stickyReads = new AtomicLong();
+	final AtomicLong fallbackReads = new AtomicLong();
+
+	private static class Replica
+	{
+		final String url;
+		final ConnectionPool pool;
+		volatile long downUntil;
+
+		Replica(String url, ConnectionPool pool)
+		{
+			this.url = url;
+			this.pool = pool;
+		}
+	}
+
+	interface PoolFactory
+	{
+		ConnectionPool create(String url);
+	}
+
+	ReadRouter(List<String> urls, PoolFactory pools, long stickyMillis, long retryMillis)
+	{
+		for (String url : urls)
+		{
+			replicas.add(new Replica(url, pools.create(url)));
+		}
+		this.stickyMillis = stickyMillis;
+		this.retryMillis = retryMillis;
+	}
+
+	void wrote(String session)
+	{
+		if (session == null || replicas.isEmpty())
+		{
+			return;
+		}
+		long now = System.currentTimeMillis();
+		lastWrite.put(key(session), now);
+		if (now >= nextPrune)
+		{
+			nextPrune = now + stickyMillis;
+			lastWrite.values().removeIf(t -> now - t >= stickyMillis);
+		}
+	}
+
+	boolean sticky(String session)
+	{
+		if (session == null)
+		{
+			return false;
+		}
+		Long t = lastWrite.get(key(session));
+		return t != null && System.currentTimeMillis() - t < stickyMillis;
+	}
+
+	/*
+	 * A replica connection, or null when the read should go to the primary.
+	 */
+	Connection read(String session, String threadSession)
+	{
+		if (replicas.isEmpty())
+		{
+			return null;
+		}
+		if (sticky(session) || sticky(threadSession))
+		{
+			stickyReads.incrementAndGet();
+			return null;
+		}
+		int n = replicas.size();
+		int start = Math.floorMod(next.getAndIncrement(), n);
+		boolean[] tried = new boolean[n];
+		for (int attempt = 0; attempt < n; attempt++)
+		{
+			Replica best = null;
+			int bestIndex = -1;
+			long now = System.currentTimeMillis();
+			for (int i = 0; i < n; i++)
+			{
+				int index = (start + i) % n;
+				Replica r = replicas.get(index);
+				if (!tried[index] && r.downUntil <= now
+						&& (best == null || r.pool.getBorrowedCount() < best.pool.getBorrowedCount()))
+				{
+					best = r;
+					bestIndex = index;
+				}
+			}
+			if (best == null)
+			{
+				break;
+			}
+			tried[bestIndex] = true;
+			try
+			{
+				Connection con = best.pool.getConnection();
+				replicaReads.incrementAndGet();
+				return con;
+			}
+			catch (SQLException e)
+			{
+				best.downUntil = System.currentTimeMillis() + retryMillis;
+				System.out.println("Read replica " + best.url + " unavailable, skipping it for " + retryMillis + "ms: " + e);
+			}
+		}
+		fallbackReads.incrementAndGet();
+		return null;
+	}
+
+	List<ConnectionPool.PoolStats> getStats()
+	{
+		List<ConnectionPool.PoolStats> stats = new ArrayList<ConnectionPool.PoolStats>(replicas.size());
+		for (Replica r : replicas)
+		{
+			stats.add(r.pool.getStats());
+		}
+		return stats;
+	}
+
+	void close()
+	{
+		for (Replica r : replicas)
+		{
+			r.pool.close();
+		}
+	}
+
+	private static String key(String session)
+	{
+		return session.trim().toLowerCase(Locale.ROOT);
+	}
+
+}
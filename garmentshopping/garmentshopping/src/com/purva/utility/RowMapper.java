@@ -0,0 +1,146 @@
+package com.purva.utility;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/*
+ * Declarative mapping from column labels to POJO setters.
+ *
+ * A mapper is only a description; reader() gives the RowReader for one
+ * statement. The first time that reader sees a ResultSet it looks the
+ * labels up in the metadata and compiles one step per column present,
+ * with the column index baked in. After that a row costs the POJO and the
+ * getXxx(index) calls, with no label lookups and no boxing.
+ *
+ * Columns the statement does not select are skipped, so a projection
+ * (e.g. a scan without custPassword) needs no mapper of its own. Because
+ * the indexes are resolved once, the statement must name its columns
+ * rather than select *.
+ */
+public class RowMapper<T> {
+
+	public interface IntSetter<T>
+	{
+		void set(T target, int value);
+	}
+
+	public interface LongSetter<T>
+	{
+		void set(T target, long value);
+	}
+
+	public interface DoubleSetter<T>
+	{
+		void set(T target, double value);
+	}
+
+	public interface StringSetter<T>
+	{
+		void set(T target, String value);
+	}
+
+	// One column bound to its index.
+	private interface Step<T>
+	{
+		void apply(T target, ResultSet rs) throws SQLException;
+	}
+
+	// One column before it is bound: makes the step for a given index.
+	private interface Column<T>
+	{
+		Step<T> bind(int index);
+	}
+
+	private final Supplier<T> factory;
+	private final List<String> labels = new ArrayList<String>();
+	private final List<Column<T>> columns = new ArrayList<Column<T>>();
+
+	private RowMapper(Supplier<T> factory)
+	{
+		this.factory = factory;
+	}
+
+	public static <T> RowMapper<T> of(Supplier<T> factory)
+	{
+		return new RowMapper<T>(factory);
+	}
+
+	public RowMapper<T> intColumn(String label, IntSetter<T> setter)
+	{
+		return column(label, i -> (t, rs) -> setter.set(t, rs.getInt(i)));
+	}
+
+	public RowMapper<T> longColumn(String label, LongSetter<T> setter)
+	{
+		return column(label, i -> (t, rs) -> setter.set(t, rs.getLong(i)));
+	}
+
+	public RowMapper<T> doubleColumn(String label, DoubleSetter<T> setter)
+	{
+		return column(label, i -> (t, rs) -> setter.set(t, rs.getDouble(i)));
+	}
+
+	public RowMapper<T> stringColumn(String label, StringSetter<T> setter)
+	{
+		return column(label, i -> (t, rs) -> setter.set(t, rs.getString(i)));
+	}
+
+	private RowMapper<T> column(String label, Column<T> column)
+	{
+		labels.add(label);
+		columns.add(column);
+		return this;
+	}
+
+	/*
+	 * Reader for the rows of one SQL statement. Keep it next to the SQL
+	 * constant and use it only for that statement.
+	 */
+	public QueryStreams.RowReader<T> reader()
+	{
+		return new QueryStreams.RowReader<T>() {
+			private volatile Step<T>[] steps;
+
+			@Override
+			public T read(ResultSet rs) throws SQLException
+			{
+				Step<T>[] s = steps;
+				if (s == null)
+				{
+					// Racing threads compile the same steps; either result will do.
+					steps = s = compile(rs.getMetaData());
+				}
+				T row = factory.get();
+				for (Step<T> step : s)
+				{
+					step.apply(row, rs);
+				}
+				return row;
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private Step<T>[] compile(ResultSetMetaData meta) throws SQLException
+	{
+		List<Step<T>> steps = new ArrayList<Step<T>>(labels.size());
+		int count = meta.getColumnCount();
+		for (int c = 0; c < labels.size(); c++)
+		{
+			for (int i = 1; i <= count; i++)
+			{
+				if (labels.get(c).equalsIgnoreCase(meta.getColumnLabel(i)))
+				{
+					steps.add(columns.get(c).bind(i));
+					break;
+				}
+			}
+		}
+		return steps.toArray((Step<T>[]) new Step<?>[steps.size()]);
+	}
+
+}
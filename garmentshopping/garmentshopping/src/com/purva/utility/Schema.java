@@ -0,0 +1,265 @@
+package com.purva.utility;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * The shopping database schema: one name for every table, and the
+ * versioned migrations that create it.
+ *
+ * DAOs build their SQL from the table constants here, so a table cannot be
+ * called Cart in one place and Cart_21828 in another. migrate() brings a
+ * database up to LATEST. Each applied version is recorded in SchemaVersion,
+ * and only versions above the highest recorded one run.
+ *
+ * Every step is idempotent: create table if not exists, a column or an
+ * index is only added when the metadata does not list it yet. So a
+ * migration that fails half way can simply be run again. MySQL commits each
+ * DDL statement on its own, so there is no transaction around a version.
+ *
+ * A database from before this class can be migrated too, with limits.
+ * Tables that already exist are kept as they are, except that Cart_21828
+ * gets the garPrice column cart lines now record their price in. Nothing
+ * else is checked, so a same-named table with other columns must be fixed
+ * by hand. The old code also inserted into Cart and Orderrs, which nothing
+ * reads any more. Their rows are not copied into Cart_21828 and
+ * Order_21828; move them by hand if they matter.
+ *
+ * DBUtility runs migrate() when the pool first starts if -Ddb.migrate=true.
+ */
+public final class Schema {
+
+	public static final String GARMENT = "Garment";
+	public static final String CUSTOMER = "Customer_21828";
+	public static final String CART = "Cart_21828";
+	public static final String CART_SUMMARY = "CartSummary_21828";
+	public static final String STOCK = "Stock_21828";
+	public static final String ORDER = "Order_21828";
+	public static final String ORDER_ITEM = "OrderItem_21828";
+	public static final String ORDER_STATS = "CustomerOrderStats_21828";
+	public static final String VERSION = "SchemaVersion";
+
+	/*
+	 * Every table, children before parents, i.e. in the order to drop them.
+	 */
+	public static final List<String> TABLES = Collections.unmodifiableList(Arrays.asList(
+			ORDER_STATS, ORDER_ITEM, ORDER, CART_SUMMARY, STOCK, CART, CUSTOMER, GARMENT));
+
+	// One idempotent change.
+	private interface Step
+	{
+		void apply(Connection con) throws SQLException;
+	}
+
+	private static class Migration
+	{
+		final int version;
+		final String description;
+		final Step[] steps;
+
+		Migration(int version, String description, Step... steps)
+		{
+			this.version = version;
+			this.description = description;
+			this.steps = steps;
+		}
+	}
+
+	private static final List<Migration> MIGRATIONS = new ArrayList<Migration>();
+
+	static
+	{
+		MIGRATIONS.add(new Migration(1, "catalog, customers, carts and orders",
+				sql("create table if not exists " + GARMENT + "(garId int auto_increment primary key, "
+						+ "garName varchar(100), garType varchar(50), garPrice int)"),
+				sql("create table if not exists " + CUSTOMER + "(custId int auto_increment primary key, "
+						+ "custName varchar(100), custAddr varchar(200), custCont int, custEmailId varchar(100), "
+						+ "custPassword varchar(100))"),
+				sql("create table if not exists " + CART + "(cartId int auto_increment primary key, garId int, "
+						+ "custEmailId varchar(100), garQty int, garPrice double)"),
+				// Cart_21828 tables from before cart lines kept their price lack it.
+				column(CART, "garPrice", "double"),
+				sql("create table if not exists " + ORDER + "(orderId int auto_increment primary key, "
+						+ "custEmailId varchar(100), orderDate datetime, totalBill double)"),
+				sql("create table if not exists " + ORDER_ITEM + "(orderId int, garId int, garQty int, garPrice double)")));
+
+		MIGRATIONS.add(new Migration(2, "cart summaries, stock and order stats",
+				sql("create table if not exists " + CART_SUMMARY + "(custEmailId varchar(100) primary key, "
+						+ "lineCount int, itemCount int, cartTotal double, version bigint)"),
+				sql("create table if not exists " + STOCK + "(garId int primary key, onHand int)"),
+				sql("create table if not exists " + ORDER_STATS + "(custEmailId varchar(100) primary key, "
+						+ "orderCount int, lifetimeSpend double, lastOrderDate datetime)")));
+
+		/*
+		 * One index per lookup the DAOs make on something other than a
+		 * primary key:
+		 *   login and checkout find the customer by email,
+		 *   showCart, placeOrder and the cart summary rebuild read a cart by email,
+		 *   order history pages by (email, orderId) and by (orderDate, orderId).
+		 * OrderItem is only ever written, so it gets none.
+		 */
+		MIGRATIONS.add(new Migration(3, "indexes for the DAO access paths",
+				index("idx_customer_email", CUSTOMER, "custEmailId"),
+				index("idx_cart_email", CART, "custEmailId"),
+				index("idx_order_email", ORDER, "custEmailId, orderId"),
+				index("idx_order_date", ORDER, "orderDate, orderId")));
+	}
+
+	/*
+	 * Highest version with tables only; versions above it add indexes.
+	 */
+	public static final int TABLES_VERSION = 2;
+	public static final int LATEST = MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+
+	private Schema()
+	{
+	}
+
+	public static int migrate(Connection con) throws SQLException
+	{
+		return migrate(con, LATEST);
+	}
+
+	/*
+	 * Applies every migration above the current version up to target and
+	 * returns the version the database is now at.
+	 */
+	public static int migrate(Connection con, int target) throws SQLException
+	{
+		boolean autoCommit = con.getAutoCommit();
+		con.setAutoCommit(true);
+		try
+		{
+			try (Statement st = con.createStatement())
+			{
+				st.execute("create table if not exists " + VERSION + "(version int primary key, "
+						+ "description varchar(200), appliedOn datetime)");
+			}
+			int current = currentVersion(con);
+			for (Migration m : MIGRATIONS)
+			{
+				if (m.version <= current || m.version > target)
+				{
+					continue;
+				}
+				long start = System.nanoTime();
+				for (Step step : m.steps)
+				{
+					step.apply(con);
+				}
+				try (PreparedStatement ps = con.prepareStatement("insert into " + VERSION
+						+ "(version, description, appliedOn) values (?, ?, now())"))
+				{
+					ps.setInt(1, m.version);
+					ps.setString(2, m.description);
+					ps.executeUpdate();
+				}
+				current = m.version;
+				System.out.println("Schema V" + m.version + " (" + m.description + ") applied in "
+						+ (System.nanoTime() - start) / 1000000 + "ms");
+			}
+			return current;
+		}
+		finally
+		{
+			con.setAutoCommit(autoCommit);
+		}
+	}
+
+	/*
+	 * Version the database is at, 0 before any migration has run.
+	 */
+	public static int currentVersion(Connection con) throws SQLException
+	{
+		try (Statement st = con.createStatement();
+				ResultSet rs = st.executeQuery("select max(version) from " + VERSION))
+		{
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+	private static Step sql(String ddl)
+	{
+		return con -> {
+			try (Statement st = con.createStatement())
+			{
+				st.execute(ddl);
+			}
+		};
+	}
+
+	private static Step column(String table, String column, String type)
+	{
+		return con -> {
+			if (!hasColumn(con, table, column))
+			{
+				try (Statement st = con.createStatement())
+				{
+					st.execute("alter table " + table + " add column " + column + " " + type);
+				}
+			}
+		};
+	}
+
+	private static Step index(String name, String table, String columns)
+	{
+		return con -> {
+			if (!hasIndex(con, table, name))
+			{
+				try (Statement st = con.createStatement())
+				{
+					st.execute("create index " + name + " on " + table + "(" + columns + ")");
+				}
+			}
+		};
+	}
+
+	private static boolean hasIndex(Connection con, String table, String name) throws SQLException
+	{
+		DatabaseMetaData meta = con.getMetaData();
+		try (ResultSet rs = meta.getIndexInfo(con.getCatalog(), null, stored(meta, table), false, true))
+		{
+			while (rs.next())
+			{
+				if (name.equalsIgnoreCase(rs.getString("INDEX_NAME")))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean hasColumn(Connection con, String table, String column) throws SQLException
+	{
+		DatabaseMetaData meta = con.getMetaData();
+		try (ResultSet rs = meta.getColumns(con.getCatalog(), null, stored(meta, table), stored(meta, column)))
+		{
+			return rs.next();
+		}
+	}
+
+	// Metadata lookups match names as the database stored them, e.g. upper case on H2.
+	private static String stored(DatabaseMetaData meta, String name) throws SQLException
+	{
+		if (meta.storesUpperCaseIdentifiers())
+		{
+			return name.toUpperCase(Locale.ROOT);
+		}
+		if (meta.storesLowerCaseIdentifiers())
+		{
+			return name.toLowerCase(Locale.ROOT);
+		}
+		return name;
+	}
+
+}
@@ -0,0 +1,177 @@
+package com.purva.utility;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * LRU cache of PreparedStatements for one physical connection, keyed by SQL text
+ * (plus any extra prepareStatement arguments). A cached statement's close()
+ * only clears its parameters so the next prepare of the same SQL reuses it.
+ * Not thread-safe on its own: a pooled connection is used by one borrower at a time.
+ */
+class StatementCache {
+
+	static final AtomicLong HITS = new AtomicLong();
+	static final AtomicLong MISSES = new AtomicLong();
+
+	private final Connection physical;
+	private final int maxSize;
+	private final LinkedHashMap<String, CachedStatement> cache;
+
+	StatementCache(Connection physical, int maxSize)
+	{
+		this.physical = physical;
+		this.maxSize = maxSize;
+		this.cache = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest)
+			{
+				if (size() <= StatementCache.this.maxSize)
+				{
+					return false;
+				}
+				eldest.getValue().evict();
+				return true;
+			}
+		};
+	}
+
+	/*
+	 * Handles Connection.prepareStatement(...) for the pooled connection proxy.
+	 */
+	PreparedStatement prepare(Method method, Object[] args) throws Throwable
+	{
+		if (maxSize <= 0)
+		{
+			return (PreparedStatement) invoke(physical, method, args);
+		}
+		String key = args.length == 1 ? (String) args[0] : Arrays.deepToString(args);
+		CachedStatement cached = cache.get(key);
+		if (cached != null && !cached.inUse)
+		{
+			HITS.incrementAndGet();
+			cached.inUse = true;
+			return cached.proxy;
+		}
+		MISSES.incrementAndGet();
+		PreparedStatement ps = (PreparedStatement) invoke(physical, method, args);
+		if (cached != null)
+		{
+			// Same SQL is already open on this connection; hand out an uncached statement.
+			return ps;
+		}
+		cached = new CachedStatement(ps);
+		cached.inUse = true;
+		cache.put(key, cached);
+		return cached.proxy;
+	}
+
+	/*
+	 * Called when the connection goes back to the pool; statements the borrower
+	 * forgot to close become reusable.
+	 */
+	void releaseAll()
+	{
+		for (CachedStatement cached : cache.values())
+		{
+			cached.inUse = false;
+		}
+	}
+
+	void closeAll()
+	{
+		List<CachedStatement> all = new ArrayList<CachedStatement>(cache.values());
+		cache.clear();
+		for (CachedStatement cached : all)
+		{
+			cached.evict();
+		}
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable
+	{
+		try
+		{
+			return method.invoke(target, args);
+		}
+		catch (InvocationTargetException e)
+		{
+			throw e.getCause();
+		}
+	}
+
+	private static class CachedStatement implements InvocationHandler
+	{
+		final PreparedStatement physical;
+		final PreparedStatement proxy;
+		boolean inUse;
+		boolean evicted;
+
+		CachedStatement(PreparedStatement physical)
+		{
+			this.physical = physical;
+			this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, this);
+		}
+
+		void evict()
+		{
+			evicted = true;
+			if (!inUse)
+			{
+				closeQuietly();
+			}
+		}
+
+		private void closeQuietly()
+		{
+			try
+			{
+				physical.close();
+			}
+			catch (SQLException e)
+			{
+				System.out.println(e);
+			}
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+		{
+			String name = method.getName();
+			if (name.equals("close"))
+			{
+				inUse = false;
+				if (evicted)
+				{
+					closeQuietly();
+				}
+				else
+				{
+					physical.clearParameters();
+					physical.clearBatch();
+				}
+				return null;
+			}
+			if (name.equals("isClosed"))
+			{
+				return !inUse || physical.isClosed();
+			}
+			return StatementCache.invoke(physical, method, args);
+		}
+	}
+
+}
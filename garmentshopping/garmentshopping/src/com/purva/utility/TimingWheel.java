@@ -0,0 +1,163 @@
+package com.purva.utility;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Hashed timing wheel for large numbers of cheap, mostly cancelled timeouts.
+ * Scheduling and cancelling are O(1) and lock-free; one daemon thread
+ * advances the wheel every tickMs and runs what is due on that thread, so
+ * tasks must be short. Timeouts fire up to one tick late.
+ * New timeouts wait in one queue per stripe of scheduling threads, so
+ * threads on different cores do not all append to the same queue tail.
+ * A timeout cancelled before the next tick never enters a bucket, so it is
+ * not kept for a whole revolution.
+ */
+public class TimingWheel implements AutoCloseable {
+
+	public interface Timeout
+	{
+		/*
+		 * Returns false if the task already ran or was cancelled.
+		 */
+		boolean cancel();
+	}
+
+	private static class Task implements Timeout
+	{
+		final Runnable action;
+		final long deadline;
+		long rounds;
+		final AtomicBoolean done = new AtomicBoolean();
+
+		Task(Runnable action, long deadline)
+		{
+			this.action = action;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public boolean cancel()
+		{
+			return done.compareAndSet(false, true);
+		}
+	}
+
+	private final long tickNanos;
+	private final List<List<Task>> buckets;
+	private final List<Queue<Task>> pending;
+	private final long start = System.nanoTime();
+	private final Thread worker;
+	private volatile boolean running = true;
+	private long tick;
+
+	public TimingWheel(long tickMs, int wheelSize)
+	{
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+		this.buckets = new ArrayList<List<Task>>(wheelSize);
+		for (int i = 0; i < wheelSize; i++)
+		{
+			buckets.add(new ArrayList<Task>());
+		}
+		int stripes = 1;
+		while (stripes < 2 * Runtime.getRuntime().availableProcessors())
+		{
+			stripes <<= 1;
+		}
+		this.pending = new ArrayList<Queue<Task>>(stripes);
+		for (int i = 0; i < stripes; i++)
+		{
+			pending.add(new ConcurrentLinkedQueue<Task>());
+		}
+		worker = new Thread(this::run, "timing-wheel");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	public Timeout schedule(Runnable action, long delayMs)
+	{
+		Task task = new Task(action, System.nanoTime() - start + TimeUnit.MILLISECONDS.toNanos(delayMs));
+		pending.get((int) Thread.currentThread().getId() & (pending.size() - 1)).add(task);
+		return task;
+	}
+
+	private void run()
+	{
+		while (running)
+		{
+			long sleep = (tick + 1) * tickNanos - (System.nanoTime() - start);
+			if (sleep > 0)
+			{
+				try
+				{
+					TimeUnit.NANOSECONDS.sleep(sleep);
+				}
+				catch (InterruptedException e)
+				{
+					return;
+				}
+			}
+			// Only this thread touches the buckets, so they need no locking.
+			for (Queue<Task> queue : pending)
+			{
+				drain(queue);
+			}
+			List<Task> bucket = buckets.get((int) (tick % buckets.size()));
+			for (Iterator<Task> it = bucket.iterator(); it.hasNext();)
+			{
+				Task task = it.next();
+				if (task.done.get())
+				{
+					it.remove();
+				}
+				else if (task.rounds > 0)
+				{
+					task.rounds--;
+				}
+				else
+				{
+					it.remove();
+					if (task.done.compareAndSet(false, true))
+					{
+						try
+						{
+							task.action.run();
+						}
+						catch (RuntimeException e)
+						{
+							e.printStackTrace();
+						}
+					}
+				}
+			}
+			tick++;
+		}
+	}
+
+	private void drain(Queue<Task> queue)
+	{
+		for (Task task; (task = queue.poll()) != null;)
+		{
+			if (task.done.get())
+			{
+				continue;
+			}
+			long ticks = Math.max(task.deadline / tickNanos, tick);
+			task.rounds = (ticks - tick) / buckets.size();
+			buckets.get((int) (ticks % buckets.size())).add(task);
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		running = false;
+		worker.interrupt();
+	}
+
+}
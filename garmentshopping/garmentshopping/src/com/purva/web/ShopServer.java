@@ -0,0 +1,777 @@
+package com.purva.web;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.purva.daoimpl.CachingCustomerDao;
+import com.purva.daoimpl.CachingGarDao;
+import com.purva.daoimpl.CartDao;
+import com.purva.daoimpl.CartDaoImpl;
+import com.purva.daoimpl.CustomerDao;
+import com.purva.daoimpl.GarDao;
+import com.purva.daoimpl.OrderDao;
+import com.purva.daoimpl.OrderDaoImpl;
+import com.purva.pojo.Cart;
+import com.purva.pojo.CartSummary;
+import com.purva.pojo.Customer;
+import com.purva.pojo.Garment;
+import com.purva.pojo.Order;
+import com.purva.pojo.OrderStats;
+import com.purva.utility.DBUtility;
+import com.purva.utility.DaoExecutor;
+import com.purva.utility.Json;
+import com.purva.utility.QueryMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ * JSON storefront over the DAO layer, on the JDK's built-in HTTP server.
+ *
+ *   GET    /health
+ *   GET    /garments                      whole catalog, from the cached snapshot
+ *   GET    /garments?after=0&limit=50     one keyset page
+ *   GET    /garments/{id}
+ *   POST   /garments                      {"garName","garType","garPrice"}
+ *   PUT    /garments/{id}
+ *   DELETE /garments/{id}
+ *   POST   /customers                     {"custName","custAddr","custCont","custEmailId","password"}
+ *   GET    /customers/{id}
+ *   GET    /customers?email=
+ *   GET    /carts/{email}                 lines and summary
+ *   POST   /carts/{email}/lines           {"garId","garQty"}
+ *   DELETE /carts/{email}/lines/{cartId}
+ *   POST   /orders/{email}                checkout
+ *   GET    /orders/{email}?before=&limit= newest first
+ *   GET    /orders/{email}/stats
+ *
+ * Each request runs on its own thread from DaoExecutor.newPerTaskExecutor:
+ * a virtual thread on Java 21+, a pooled platform thread before that. At
+ * most api.maxInFlight requests run at once, since they all share the
+ * connection pool anyway. A request that cannot get a slot within
+ * api.queueMs gets 503, so load is shed rather than queued without end.
+ *
+ * Responses are written straight to the socket as they are produced
+ * (chunked), so the full catalog never sits in memory as one string.
+ * Requests on /carts and /orders bind the customer's email as the DB
+ * session, so they read their own writes. Every request is a QueryMetrics
+ * scope. Passwords are accepted but never written back.
+ *
+ * stop() drains: new requests get 503 while those in flight may finish
+ * within the grace period.
+ */
+public class ShopServer {
+
+	private static final int DEFAULT_PAGE = 50;
+	private static final int MAX_PAGE = 500;
+	private static final int MAX_BODY = 64 * 1024;
+
+	private final GarDao garDao;
+	private final CustomerDao customerDao;
+	private final CartDao cartDao;
+	private final OrderDao orderDao;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Semaphore slots;
+	private final long queueMillis;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicLong served = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private volatile boolean draining;
+
+	// Request failed in a way the client should hear about, with this status.
+	private static class HttpError extends RuntimeException
+	{
+		private static final long serialVersionUID = 1L;
+		final int status;
+
+		HttpError(int status, String message)
+		{
+			super(message);
+			this.status = status;
+		}
+	}
+
+	private interface Body
+	{
+		void write(Json.Writer json) throws IOException;
+	}
+
+	private interface Route
+	{
+		void handle(HttpExchange ex, String[] path) throws IOException;
+	}
+
+	public ShopServer(GarDao garDao, CustomerDao customerDao, CartDao cartDao, OrderDao orderDao,
+			int port, int maxInFlight, long queueMillis) throws IOException
+	{
+		this.garDao = garDao;
+		this.customerDao = customerDao;
+		this.cartDao = cartDao;
+		this.orderDao = orderDao;
+		this.slots = new Semaphore(maxInFlight);
+		this.queueMillis = queueMillis;
+		this.executor = DaoExecutor.newPerTaskExecutor("http-");
+		this.server = HttpServer.create(new InetSocketAddress(port), Integer.getInteger("api.backlog", 0));
+		server.setExecutor(executor);
+		context("/health", this::health);
+		context("/garments", this::garments);
+		context("/customers", this::customers);
+		context("/carts", this::carts);
+		context("/orders", this::orders);
+	}
+
+	public void start()
+	{
+		server.start();
+		System.out.println("Shop API listening on port " + getPort()
+				+ (DaoExecutor.isVirtual() ? " (virtual threads)" : " (platform threads)"));
+	}
+
+	public int getPort()
+	{
+		return server.getAddress().getPort();
+	}
+
+	/*
+	 * Refuses new requests, waits up to graceMillis for the ones in flight,
+	 * then closes the listener and the request threads.
+	 */
+	public void stop(long graceMillis)
+	{
+		draining = true;
+		long deadline = System.currentTimeMillis() + graceMillis;
+		synchronized (inFlight)
+		{
+			long left;
+			while (inFlight.get() > 0 && (left = deadline - System.currentTimeMillis()) > 0)
+			{
+				try
+				{
+					inFlight.wait(left);
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		int unfinished = inFlight.get();
+		server.stop(0);
+		executor.shutdown();
+		try
+		{
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		System.out.println("Shop API stopped: " + served.get() + " requests served, " + rejected.get()
+				+ " turned away" + (unfinished > 0 ? ", " + unfinished + " cut off" : ""));
+	}
+
+	private void context(String prefix, Route route)
+	{
+		server.createContext(prefix, ex -> dispatch(ex, prefix, route));
+	}
+
+	/*
+	 * A request is counted in inFlight before it looks at draining. stop()
+	 * sets draining before it reads inFlight, so every request either sees
+	 * draining and is turned away, or is counted and waited for.
+	 */
+	@SuppressWarnings("try")
+	private void dispatch(HttpExchange ex, String prefix, Route route)
+	{
+		inFlight.incrementAndGet();
+		try
+		{
+			if (!admit(ex))
+			{
+				return;
+			}
+			// The scope only has to be open while the route runs.
+			try (QueryMetrics.Scope scope = QueryMetrics.beginScope(ex.getRequestMethod() + " " + prefix))
+			{
+				route.handle(ex, segments(ex.getRequestURI().getPath()));
+			}
+			catch (HttpError e)
+			{
+				error(ex, e.status, e.getMessage());
+			}
+			catch (IllegalArgumentException e)
+			{
+				error(ex, 400, e.getMessage());
+			}
+			catch (IOException e)
+			{
+				// The client went away mid-response; nothing left to tell it.
+			}
+			catch (RuntimeException e)
+			{
+				System.out.println(e);
+				e.printStackTrace();
+				error(ex, 500, "internal error");
+			}
+			finally
+			{
+				ex.close();
+				slots.release();
+				served.incrementAndGet();
+			}
+		}
+		finally
+		{
+			if (inFlight.decrementAndGet() == 0 && draining)
+			{
+				synchronized (inFlight)
+				{
+					inFlight.notifyAll();
+				}
+			}
+		}
+	}
+
+	// Takes a slot for the request, or answers it with 503 and returns false.
+	private boolean admit(HttpExchange ex)
+	{
+		try
+		{
+			if (draining)
+			{
+				reject(ex, "shutting down");
+				return false;
+			}
+			if (!slots.tryAcquire(queueMillis, TimeUnit.MILLISECONDS))
+			{
+				reject(ex, "busy");
+				return false;
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			ex.close();
+			return false;
+		}
+		if (draining)
+		{
+			// stop() began while this request waited for a slot, and none of it has run yet.
+			slots.release();
+			reject(ex, "shutting down");
+			return false;
+		}
+		return true;
+	}
+
+	private void reject(HttpExchange ex, String why)
+	{
+		rejected.incrementAndGet();
+		ex.getResponseHeaders().set("Retry-After", "1");
+		if (draining)
+		{
+			ex.getResponseHeaders().set("Connection", "close");
+		}
+		error(ex, 503, why);
+		ex.close();
+	}
+
+	// ---- routes ----
+
+	private void health(HttpExchange ex, String[] path) throws IOException
+	{
+		method(ex, "GET");
+		send(ex, 200, json -> json.beginObject()
+				.name("status").value(draining ? "draining" : "ok")
+				.name("inFlight").value(inFlight.get())
+				.name("virtualThreads").value(DaoExecutor.isVirtual())
+				.endObject());
+	}
+
+	private void garments(HttpExchange ex, String[] path) throws IOException
+	{
+		Map<String, String> query = query(ex);
+		if (path.length == 1)
+		{
+			if (is(ex, "GET"))
+			{
+				if (query.containsKey("limit") || query.containsKey("after"))
+				{
+					List<Garment> page = found(garDao.displayGarPage(intParam(query, "after", 0), limit(query)), "catalog");
+					send(ex, 200, json -> {
+						json.beginArray();
+						for (Garment g : page)
+						{
+							garment(json, g);
+						}
+						json.endArray();
+					});
+				}
+				else
+				{
+					// The cached snapshot: no connection is held while a slow client reads the response.
+					List<Garment> all = found(garDao.displayAllGar(), "catalog");
+					send(ex, 200, json -> {
+						json.beginArray();
+						for (Garment g : all)
+						{
+							garment(json, g);
+						}
+						json.endArray();
+					});
+				}
+				return;
+			}
+			method(ex, "POST");
+			Garment g = garmentBody(ex);
+			saved(garDao.addGar(g));
+			send(ex, 201, json -> garment(json, g));
+			return;
+		}
+		int id = id(path[1]);
+		if (is(ex, "GET"))
+		{
+			Garment g = found(garDao.displayGarId(id), "garment " + id);
+			send(ex, 200, json -> garment(json, g));
+		}
+		else if (is(ex, "PUT"))
+		{
+			Garment g = garmentBody(ex);
+			g.setGarId(id);
+			saved(garDao.updateGar(g));
+			send(ex, 200, json -> garment(json, g));
+		}
+		else
+		{
+			method(ex, "DELETE");
+			if (!garDao.deleteGar(id))
+			{
+				throw new HttpError(404, "garment " + id + " not found");
+			}
+			noContent(ex);
+		}
+	}
+
+	private void customers(HttpExchange ex, String[] path) throws IOException
+	{
+		if (path.length == 1 && is(ex, "POST"))
+		{
+			Map<String, String> body = body(ex);
+			Customer c = new Customer();
+			c.setCustName(required(body, "custName"));
+			c.setCustAddr(required(body, "custAddr"));
+			c.setCustCont(integer(body, "custCont"));
+			c.setCustEmailId(required(body, "custEmailId"));
+			c.setPassword(required(body, "password"));
+			if (customerDao.findByEmail(c.getCustEmailId()) != null)
+			{
+				throw new HttpError(409, "email already registered");
+			}
+			saved(customerDao.addCustomer(c));
+			// addCustomer does not report the generated id; read the row back for it.
+			Customer created = customerDao.findByEmail(c.getCustEmailId());
+			send(ex, 201, json -> customer(json, created != null ? created : c));
+			return;
+		}
+		method(ex, "GET");
+		Customer c;
+		if (path.length == 1)
+		{
+			String email = query(ex).get("email");
+			if (email == null)
+			{
+				throw new IllegalArgumentException("email is required");
+			}
+			c = found(customerDao.findByEmail(email), "customer " + email);
+		}
+		else
+		{
+			int id = id(path[1]);
+			c = found(customerDao.displayCustId(id), "customer " + id);
+		}
+		send(ex, 200, json -> customer(json, c));
+	}
+
+	private void carts(HttpExchange ex, String[] path) throws IOException
+	{
+		if (path.length < 2)
+		{
+			throw new HttpError(404, "no such resource");
+		}
+		String email = path[1];
+		String previous = DBUtility.bindSession(email);
+		try
+		{
+			if (path.length == 2)
+			{
+				method(ex, "GET");
+				List<Cart> lines = found(cartDao.showCart(email), "cart");
+				CartSummary summary = cartDao.cartSummary(email);
+				send(ex, 200, json -> {
+					json.beginObject().name("lines").beginArray();
+					for (Cart ct : lines)
+					{
+						cartLine(json, ct);
+					}
+					json.endArray();
+					if (summary != null)
+					{
+						json.name("lineCount").value(summary.getLineCount())
+								.name("itemCount").value(summary.getItemCount())
+								.name("cartTotal").value(summary.getCartTotal());
+					}
+					json.endObject();
+				});
+			}
+			else if (path.length == 3 && path[2].equals("lines"))
+			{
+				method(ex, "POST");
+				Map<String, String> body = body(ex);
+				Cart ct = new Cart();
+				ct.setCustEmailId(email);
+				ct.setGarId(integer(body, "garId"));
+				ct.setGarQty(integer(body, "garQty"));
+				if (ct.getGarQty() <= 0)
+				{
+					throw new IllegalArgumentException("garQty must be positive");
+				}
+				if (!cartDao.addtoCart(ct))
+				{
+					throw new HttpError(409, "garment " + ct.getGarId() + " could not be added");
+				}
+				send(ex, 201, json -> cartLine(json, ct));
+			}
+			else if (path.length == 4 && path[2].equals("lines"))
+			{
+				method(ex, "DELETE");
+				int cartId = id(path[3]);
+				// Scoped to the email in the path: another customer's line is reported as missing.
+				if (!cartDao.deleteCart(cartId, email))
+				{
+					throw new HttpError(404, "cart line " + cartId + " not found");
+				}
+				noContent(ex);
+			}
+			else
+			{
+				throw new HttpError(404, "no such resource");
+			}
+		}
+		finally
+		{
+			DBUtility.bindSession(previous);
+		}
+	}
+
+	private void orders(HttpExchange ex, String[] path) throws IOException
+	{
+		if (path.length < 2)
+		{
+			throw new HttpError(404, "no such resource");
+		}
+		String email = path[1];
+		String previous = DBUtility.bindSession(email);
+		try
+		{
+			if (path.length == 2 && is(ex, "POST"))
+			{
+				int orderId = orderDao.checkout(email);
+				if (orderId == OrderDao.OUT_OF_STOCK)
+				{
+					throw new HttpError(409, "some garments in the cart are out of stock");
+				}
+				if (orderId == 0)
+				{
+					throw new HttpError(422, "cart is empty");
+				}
+				if (orderId < 0)
+				{
+					throw new HttpError(500, "checkout failed");
+				}
+				send(ex, 201, json -> json.beginObject().name("orderId").value(orderId).endObject());
+			}
+			else if (path.length == 2)
+			{
+				method(ex, "GET");
+				Map<String, String> query = query(ex);
+				List<Order> page = found(orderDao.showOrders(email, intParam(query, "before", Integer.MAX_VALUE),
+						limit(query)), "orders");
+				send(ex, 200, json -> {
+					json.beginArray();
+					for (Order o : page)
+					{
+						json.beginObject()
+								.name("orderId").value(o.getOrderId())
+								.name("orderDate").value(o.getOrderDate())
+								.name("totalBill").value(o.getTotalBill())
+								.endObject();
+					}
+					json.endArray();
+				});
+			}
+			else if (path.length == 3 && path[2].equals("stats"))
+			{
+				method(ex, "GET");
+				OrderStats s = found(orderDao.orderStats(email), "order stats");
+				send(ex, 200, json -> json.beginObject()
+						.name("custEmailId").value(s.getCustEmailId())
+						.name("orderCount").value(s.getOrderCount())
+						.name("lifetimeSpend").value(s.getLifetimeSpend())
+						.name("lastOrderDate").value(s.getLastOrderDate())
+						.endObject());
+			}
+			else
+			{
+				throw new HttpError(404, "no such resource");
+			}
+		}
+		finally
+		{
+			DBUtility.bindSession(previous);
+		}
+	}
+
+	// ---- JSON bodies ----
+
+	private static void garment(Json.Writer json, Garment g) throws IOException
+	{
+		json.beginObject()
+				.name("garId").value(g.getGarId())
+				.name("garName").value(g.getGarName())
+				.name("garType").value(g.getGarType())
+				.name("garPrice").value(g.getGarPrice())
+				.endObject();
+	}
+
+	private static void customer(Json.Writer json, Customer c) throws IOException
+	{
+		json.beginObject()
+				.name("custId").value(c.getCustId())
+				.name("custName").value(c.getCustName())
+				.name("custAddr").value(c.getCustAddr())
+				.name("custCont").value(c.getCustCont())
+				.name("custEmailId").value(c.getCustEmailId())
+				.endObject();
+	}
+
+	private static void cartLine(Json.Writer json, Cart ct) throws IOException
+	{
+		json.beginObject()
+				.name("cartId").value(ct.getCartId())
+				.name("garId").value(ct.getGarId())
+				.name("garName").value(ct.getGarName())
+				.name("garPrice").value(ct.getGarPrice())
+				.name("garQty").value(ct.getGarQty())
+				.endObject();
+	}
+
+	private Garment garmentBody(HttpExchange ex) throws IOException
+	{
+		Map<String, String> body = body(ex);
+		Garment g = new Garment();
+		g.setGarName(required(body, "garName"));
+		g.setGarType(required(body, "garType"));
+		g.setGarPrice(integer(body, "garPrice"));
+		if (g.getGarPrice() <= 0)
+		{
+			throw new IllegalArgumentException("garPrice must be positive");
+		}
+		return g;
+	}
+
+	// ---- HTTP plumbing ----
+
+	private static void send(HttpExchange ex, int status, Body body) throws IOException
+	{
+		ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		ex.sendResponseHeaders(status, 0);
+		Writer out = new BufferedWriter(new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8), 8192);
+		body.write(new Json.Writer(out));
+		out.flush();
+	}
+
+	private static void noContent(HttpExchange ex) throws IOException
+	{
+		ex.sendResponseHeaders(204, -1);
+	}
+
+	private static void error(HttpExchange ex, int status, String message)
+	{
+		try
+		{
+			send(ex, status, json -> json.beginObject().name("error").value(message).endObject());
+		}
+		catch (IOException e)
+		{
+			// Headers already sent or the client is gone.
+		}
+	}
+
+	private static boolean is(HttpExchange ex, String method)
+	{
+		return ex.getRequestMethod().equalsIgnoreCase(method);
+	}
+
+	private static void method(HttpExchange ex, String method)
+	{
+		if (!is(ex, method))
+		{
+			ex.getResponseHeaders().set("Allow", method);
+			throw new HttpError(405, ex.getRequestMethod() + " not allowed here");
+		}
+	}
+
+	private static <T> T found(T value, String what)
+	{
+		if (value == null)
+		{
+			throw new HttpError(404, what + " not found");
+		}
+		return value;
+	}
+
+	private static void saved(boolean ok)
+	{
+		if (!ok)
+		{
+			throw new HttpError(500, "could not be saved");
+		}
+	}
+
+	private static String[] segments(String path)
+	{
+		String trimmed = path.replaceAll("^/+|/+$", "");
+		return trimmed.isEmpty() ? new String[0] : trimmed.split("/+");
+	}
+
+	private static int id(String segment)
+	{
+		try
+		{
+			return Integer.parseInt(segment);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new HttpError(404, "no such resource");
+		}
+	}
+
+	private static Map<String, String> query(HttpExchange ex)
+	{
+		Map<String, String> params = new HashMap<String, String>();
+		String raw = ex.getRequestURI().getRawQuery();
+		if (raw != null)
+		{
+			for (String pair : raw.split("&"))
+			{
+				int eq = pair.indexOf('=');
+				if (eq > 0)
+				{
+					params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+							URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		return params;
+	}
+
+	private static int intParam(Map<String, String> params, String name, int otherwise)
+	{
+		String value = params.get(name);
+		if (value == null)
+		{
+			return otherwise;
+		}
+		try
+		{
+			return Integer.parseInt(value.trim());
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException(name + " must be a whole number");
+		}
+	}
+
+	private static int limit(Map<String, String> query)
+	{
+		int limit = intParam(query, "limit", DEFAULT_PAGE);
+		if (limit <= 0 || limit > MAX_PAGE)
+		{
+			throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE);
+		}
+		return limit;
+	}
+
+	private static Map<String, String> body(HttpExchange ex) throws IOException
+	{
+		try (InputStream in = ex.getRequestBody())
+		{
+			byte[] bytes = in.readNBytes(MAX_BODY + 1);
+			if (bytes.length > MAX_BODY)
+			{
+				throw new HttpError(413, "request body over " + MAX_BODY + " bytes");
+			}
+			return Json.parseObject(new String(bytes, StandardCharsets.UTF_8).trim());
+		}
+	}
+
+	private static String required(Map<String, String> body, String name)
+	{
+		String value = body.get(name);
+		if (value == null || value.trim().isEmpty())
+		{
+			throw new IllegalArgumentException(name + " is required");
+		}
+		return value.trim();
+	}
+
+	private static int integer(Map<String, String> body, String name)
+	{
+		try
+		{
+			return Integer.parseInt(required(body, name));
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IllegalArgumentException(name + " must be a whole number");
+		}
+	}
+
+	/*
+	 * Serves the shop on -Dapi.port (8080) until the JVM is told to stop,
+	 * then drains for up to -Dapi.graceMs (10000) and closes the pool.
+	 * -Dapi.maxInFlight (256) and -Dapi.queueMs (1000) bound concurrency.
+	 */
+	public static void main(String[] args) throws IOException {
+		CachingGarDao garDao = new CachingGarDao();
+		CartDao cartDao = new CartDaoImpl();
+		ShopServer shop = new ShopServer(garDao, new CachingCustomerDao(), cartDao,
+				new OrderDaoImpl(cartDao), Integer.getInteger("api.port", 8080),
+				Integer.getInteger("api.maxInFlight", 256), Long.getLong("api.queueMs", 1000));
+		long grace = Long.getLong("api.graceMs", 10000);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			shop.stop(grace);
+			// Leaves a catalog snapshot behind for the next start, if one is configured.
+			garDao.close();
+			DBUtility.shutdown();
+		}, "shop-shutdown"));
+		shop.start();
+	}
+
+}